@@ -1,13 +1,27 @@
 package com.furongsoft.ide.debugger.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.furongsoft.core.entities.RestResponse;
 import com.furongsoft.ide.debugger.core.IDebugger;
+import com.furongsoft.ide.debugger.entities.AnalysisJob;
 import com.furongsoft.ide.debugger.entities.Breakpoint;
+import com.furongsoft.ide.debugger.entities.CallHierarchy;
+import com.furongsoft.ide.debugger.entities.Diagnostic;
 import com.furongsoft.ide.debugger.entities.Information;
+import com.furongsoft.ide.debugger.entities.SemanticTokens;
+import com.furongsoft.ide.debugger.entities.Symbol;
+import com.furongsoft.ide.debugger.entities.TypeHierarchy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -15,16 +29,48 @@ import java.util.Map;
 @CrossOrigin
 public class DebuggerController {
     private final IDebugger debugger;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public DebuggerController(IDebugger debugger) {
+    public DebuggerController(IDebugger debugger, ObjectMapper objectMapper) {
         this.debugger = debugger;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/analyze")
-    public RestResponse analyze(@RequestParam String rootPath) {
-        debugger.analyze(rootPath);
-        return new RestResponse(HttpStatus.OK);
+    public RestResponse analyze(@RequestParam String rootPath, @RequestParam(required = false) String classPath) {
+        return new RestResponse(HttpStatus.OK, null, debugger.analyze(rootPath, classPath));
+    }
+
+    @GetMapping("/workspaceRoots")
+    public RestResponse getWorkspaceRoots() {
+        return new RestResponse(HttpStatus.OK, null, debugger.getWorkspaceRoots());
+    }
+
+    @DeleteMapping("/workspaceRoots")
+    public RestResponse removeWorkspaceRoot(@RequestParam String rootPath) {
+        return new RestResponse(debugger.removeWorkspaceRoot(rootPath) ? HttpStatus.OK : HttpStatus.NOT_FOUND);
+    }
+
+    @GetMapping("/analysisJobs")
+    public RestResponse getAnalysisJob(@RequestParam long id) {
+        AnalysisJob job = debugger.getAnalysisJob(id);
+        return (job == null) ? new RestResponse(HttpStatus.NOT_FOUND) : new RestResponse(HttpStatus.OK, null, job);
+    }
+
+    @GetMapping("/analysisMetrics")
+    public RestResponse getAnalysisMetrics() {
+        return new RestResponse(HttpStatus.OK, null, debugger.getAnalysisMetrics());
+    }
+
+    @GetMapping("/bindingCacheMetrics")
+    public RestResponse getBindingCacheMetrics() {
+        return new RestResponse(HttpStatus.OK, null, debugger.getBindingCacheMetrics());
+    }
+
+    @GetMapping("/schedulerMetrics")
+    public RestResponse getSchedulerMetrics() {
+        return new RestResponse(HttpStatus.OK, null, debugger.getSchedulerMetrics());
     }
 
     @GetMapping("/declarationSymbols")
@@ -32,6 +78,90 @@ public class DebuggerController {
         return new RestResponse(HttpStatus.OK, null, debugger.getDeclarationSymbol(sourcePath, lineNumber, columnNumber));
     }
 
+    @GetMapping("/symbols")
+    public RestResponse searchSymbols(@RequestParam String query, @RequestParam(defaultValue = "100") int limit) {
+        return new RestResponse(HttpStatus.OK, null, debugger.searchSymbols(query, limit));
+    }
+
+    @GetMapping("/completions")
+    public RestResponse complete(@RequestParam String sourcePath, @RequestParam int lineNumber, @RequestParam int columnNumber,
+                                 @RequestParam(required = false) String lineText, @RequestParam(defaultValue = "50") int limit) {
+        return new RestResponse(HttpStatus.OK, null, debugger.complete(sourcePath, lineNumber, columnNumber, lineText, limit));
+    }
+
+    @GetMapping("/incomingCalls")
+    public RestResponse getIncomingCalls(@RequestParam String sourcePath, @RequestParam int lineNumber, @RequestParam int columnNumber, @RequestParam(defaultValue = "1") int depth) {
+        CallHierarchy hierarchy = debugger.getIncomingCalls(sourcePath, lineNumber, columnNumber, depth);
+        return (hierarchy == null) ? new RestResponse(HttpStatus.NOT_FOUND) : new RestResponse(HttpStatus.OK, null, hierarchy);
+    }
+
+    @GetMapping("/outgoingCalls")
+    public RestResponse getOutgoingCalls(@RequestParam String sourcePath, @RequestParam int lineNumber, @RequestParam int columnNumber, @RequestParam(defaultValue = "1") int depth) {
+        CallHierarchy hierarchy = debugger.getOutgoingCalls(sourcePath, lineNumber, columnNumber, depth);
+        return (hierarchy == null) ? new RestResponse(HttpStatus.NOT_FOUND) : new RestResponse(HttpStatus.OK, null, hierarchy);
+    }
+
+    @GetMapping("/subtypes")
+    public RestResponse getSubtypes(@RequestParam String sourcePath, @RequestParam int lineNumber, @RequestParam int columnNumber, @RequestParam(defaultValue = "1") int depth) {
+        TypeHierarchy hierarchy = debugger.getSubtypes(sourcePath, lineNumber, columnNumber, depth);
+        return (hierarchy == null) ? new RestResponse(HttpStatus.NOT_FOUND) : new RestResponse(HttpStatus.OK, null, hierarchy);
+    }
+
+    @GetMapping("/supertypes")
+    public RestResponse getSupertypes(@RequestParam String sourcePath, @RequestParam int lineNumber, @RequestParam int columnNumber, @RequestParam(defaultValue = "1") int depth) {
+        TypeHierarchy hierarchy = debugger.getSupertypes(sourcePath, lineNumber, columnNumber, depth);
+        return (hierarchy == null) ? new RestResponse(HttpStatus.NOT_FOUND) : new RestResponse(HttpStatus.OK, null, hierarchy);
+    }
+
+    @GetMapping("/implementations")
+    public RestResponse findImplementations(@RequestParam String sourcePath, @RequestParam int lineNumber, @RequestParam int columnNumber) {
+        List<Symbol> symbols = debugger.findImplementations(sourcePath, lineNumber, columnNumber);
+        return (symbols == null) ? new RestResponse(HttpStatus.NOT_FOUND) : new RestResponse(HttpStatus.OK, null, symbols);
+    }
+
+    @GetMapping("/diagnostics")
+    public RestResponse getDiagnostics(@RequestParam(required = false) String sourcePath) {
+        List<Diagnostic> diagnostics = debugger.getDiagnostics(sourcePath);
+        return (diagnostics == null) ? new RestResponse(HttpStatus.NOT_FOUND) : new RestResponse(HttpStatus.OK, null, diagnostics);
+    }
+
+    @GetMapping("/semanticTokens")
+    public RestResponse getSemanticTokens(@RequestParam String sourcePath, @RequestParam(defaultValue = "1") int startLineNumber,
+                                          @RequestParam(defaultValue = "2147483647") int endLineNumber) {
+        SemanticTokens tokens = debugger.getSemanticTokens(sourcePath, startLineNumber, endLineNumber);
+        return (tokens == null) ? new RestResponse(HttpStatus.NOT_FOUND) : new RestResponse(HttpStatus.OK, null, tokens);
+    }
+
+    @GetMapping("/references")
+    public ResponseEntity<StreamingResponseBody> findReferences(@RequestParam String sourcePath, @RequestParam int lineNumber, @RequestParam int columnNumber,
+                                                                @RequestParam(defaultValue = "0") int pageIndex, @RequestParam(defaultValue = "1000") int pageSize) {
+        StreamingResponseBody body = output -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(output);
+            generator.writeStartObject();
+            generator.writeNumberField("code", HttpStatus.OK.value());
+            generator.writeNumberField("errno", 0);
+            generator.writeObjectFieldStart("data");
+            generator.writeNumberField("pageIndex", pageIndex);
+            generator.writeNumberField("pageSize", pageSize);
+            generator.writeArrayFieldStart("files");
+            boolean hasMore = debugger.findReferences(sourcePath, lineNumber, columnNumber, pageIndex, pageSize, references -> {
+                try {
+                    generator.writeObject(references);
+                    generator.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+            generator.writeBooleanField("hasMore", hasMore);
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.close();
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(body);
+    }
+
     @GetMapping("/symbolValues")
     public RestResponse getSymbolValue(@RequestParam String sourcePath, @RequestParam int lineNumber, @RequestParam int columnNumber) {
         return new RestResponse(HttpStatus.OK, null, debugger.getSymbolValue(sourcePath, lineNumber, columnNumber));
@@ -52,6 +182,16 @@ public class DebuggerController {
         return new RestResponse(HttpStatus.OK, null, debugger.saveCode(map.get("sourcePath"), map.get("code")));
     }
 
+    @PostMapping("/format")
+    public RestResponse format(@RequestParam(defaultValue = "0") int startLineNumber, @RequestParam(defaultValue = "0") int endLineNumber, @RequestBody Map<String, String> map) {
+        return new RestResponse(HttpStatus.OK, null, debugger.format(map.get("sourcePath"), map.get("code"), startLineNumber, endLineNumber));
+    }
+
+    @PostMapping("/rename")
+    public RestResponse rename(@RequestParam String sourcePath, @RequestParam int lineNumber, @RequestParam int columnNumber, @RequestParam String newName) {
+        return new RestResponse(HttpStatus.OK, null, debugger.rename(sourcePath, lineNumber, columnNumber, newName));
+    }
+
     @GetMapping("/information")
     public RestResponse getInformation() {
         return new RestResponse(HttpStatus.OK, null, new Information(
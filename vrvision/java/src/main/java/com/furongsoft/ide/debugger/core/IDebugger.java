@@ -4,6 +4,7 @@ import com.furongsoft.ide.debugger.entities.*;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 调试器
@@ -27,11 +28,59 @@ public interface IDebugger {
 
     /**
      * 分析源代码
+     * <p>
+     * 分析在后台执行, 新的分析请求将取消尚未完成的分析任务. 根目录加入工作区, 分析成功后成为当前根目录,
+     * 此前分析过的根目录保留符号表并继续监视文件变化.
+     *
+     * @param rootPath  根目录
+     * @param classPath 类目录列表, 其中的JAR文件将建立类库索引, 可为空
+     * @return 分析任务
+     */
+    AnalysisJob analyze(String rootPath, String classPath);
+
+    /**
+     * 获取工作区根目录列表
+     *
+     * @return 根目录列表, 按加入顺序排列
+     */
+    List<String> getWorkspaceRoots();
+
+    /**
+     * 从工作区移除根目录, 停止监视并释放符号表
      *
      * @param rootPath 根目录
-     * @return 是否成功
+     * @return 是否成功, 根目录不在工作区时返回false
      */
-    boolean analyze(String rootPath);
+    boolean removeWorkspaceRoot(String rootPath);
+
+    /**
+     * 获取分析任务
+     *
+     * @param id 任务标识
+     * @return 分析任务, 不存在时返回null
+     */
+    AnalysisJob getAnalysisJob(long id);
+
+    /**
+     * 获取分析性能统计
+     *
+     * @return 最近的分析和增量分析性能统计列表, 按时间先后排列
+     */
+    List<AnalysisMetrics> getAnalysisMetrics();
+
+    /**
+     * 获取当前根目录的绑定缓存统计
+     *
+     * @return 绑定缓存统计
+     */
+    BindingCacheMetrics getBindingCacheMetrics();
+
+    /**
+     * 获取分析调度器各优先级的统计
+     *
+     * @return 调度统计列表
+     */
+    List<SchedulerMetrics> getSchedulerMetrics();
 
     /**
      * 获取定义符号
@@ -43,6 +92,124 @@ public interface IDebugger {
      */
     Symbol getDeclarationSymbol(String sourcePath, int lineNumber, int columnNumber);
 
+    /**
+     * 按名称查找声明符号
+     *
+     * @param query 查询字符串, 支持前缀、驼峰缩写和模糊匹配
+     * @param limit 最多返回的符号数量
+     * @return 声明符号列表
+     */
+    List<Symbol> searchSymbols(String query, int limit);
+
+    /**
+     * 代码补全
+     * <p>
+     * 编辑中的文本尚未分析, 名称前缀和接收者表达式从光标所在行的当前文本中解析.
+     *
+     * @param sourcePath   源代码路径
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @param lineText     光标所在行的当前文本, 可为空
+     * @param limit        最多返回的候选项数量
+     * @return 按匹配程度排序的候选符号列表
+     */
+    List<Symbol> complete(String sourcePath, int lineNumber, int columnNumber, String lineText, int limit);
+
+    /**
+     * 获取呼入调用层次
+     * <p>
+     * 调用图由分析时收集的方法调用符号生成, 查询无需重新解析源代码.
+     *
+     * @param sourcePath   源代码路径
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @param depth        展开深度
+     * @return 以指定位置的方法为根, 下层节点为调用方的调用层次, 位置不在方法中时返回null
+     */
+    CallHierarchy getIncomingCalls(String sourcePath, int lineNumber, int columnNumber, int depth);
+
+    /**
+     * 获取呼出调用层次
+     *
+     * @param sourcePath   源代码路径
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @param depth        展开深度
+     * @return 以指定位置的方法为根, 下层节点为被调用方法的调用层次, 位置不在方法中时返回null
+     */
+    CallHierarchy getOutgoingCalls(String sourcePath, int lineNumber, int columnNumber, int depth);
+
+    /**
+     * 获取子类型层次
+     * <p>
+     * 继承关系在分析时记录并随符号缓存保存, 查询无需重新解析源代码.
+     *
+     * @param sourcePath   源代码路径
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @param depth        展开深度
+     * @return 以指定位置的类型为根, 下层节点为直接子类型的类型层次, 位置不在类型中时返回null
+     */
+    TypeHierarchy getSubtypes(String sourcePath, int lineNumber, int columnNumber, int depth);
+
+    /**
+     * 获取超类型层次
+     *
+     * @param sourcePath   源代码路径
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @param depth        展开深度
+     * @return 以指定位置的类型为根, 下层节点为直接超类和接口的类型层次, 位置不在类型中时返回null
+     */
+    TypeHierarchy getSupertypes(String sourcePath, int lineNumber, int columnNumber, int depth);
+
+    /**
+     * 查找实现
+     *
+     * @param sourcePath   源代码路径
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @return 位置处为方法时返回覆盖该方法的方法声明, 否则返回所在类型的全部子类型声明, 位置不在类型中时返回null
+     */
+    List<Symbol> findImplementations(String sourcePath, int lineNumber, int columnNumber);
+
+    /**
+     * 获取诊断信息
+     * <p>
+     * 诊断信息来自分析时的语法解析和绑定解析, 随增量分析更新, 无需编译.
+     *
+     * @param sourcePath 源代码路径, 为空时返回所有文件的诊断信息
+     * @return 诊断信息列表, 文件未分析时返回null
+     */
+    List<Diagnostic> getDiagnostics(String sourcePath);
+
+    /**
+     * 获取语义令牌
+     * <p>
+     * 只返回指定行范围内的令牌, 用于按可见区域着色.
+     *
+     * @param sourcePath      源代码路径
+     * @param startLineNumber 起始行号
+     * @param endLineNumber   结束行号(含)
+     * @return 语义令牌, 文件未分析时返回null
+     */
+    SemanticTokens getSemanticTokens(String sourcePath, int startLineNumber, int endLineNumber);
+
+    /**
+     * 查找符号引用
+     * <p>
+     * 引用按源代码文件分组, 每组生成后立即回调, 调用方可以边接收边输出.
+     *
+     * @param sourcePath   源代码路径
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @param pageIndex    页码, 从0开始
+     * @param pageSize     每页引用数量
+     * @param consumer     引用处理函数
+     * @return 是否还有下一页
+     */
+    boolean findReferences(String sourcePath, int lineNumber, int columnNumber, int pageIndex, int pageSize, Consumer<References> consumer);
+
     /**
      * 获取符号值
      *
@@ -125,6 +292,32 @@ public interface IDebugger {
      */
     boolean saveCode(String sourcePath, String code);
 
+    /**
+     * 格式化源代码
+     * <p>
+     * 只返回内容变化的文本修改, 不修改文件.
+     *
+     * @param sourcePath      源代码路径
+     * @param code            源代码, 为空时格式化文件内容
+     * @param startLineNumber 起始行号, 小于1时从第一行开始
+     * @param endLineNumber   结束行号(含), 小于1时到最后一行
+     * @return 文本修改列表, 无法格式化时返回null
+     */
+    List<TextEdit> format(String sourcePath, String code, int startLineNumber, int endLineNumber);
+
+    /**
+     * 重命名符号
+     * <p>
+     * 修改声明和全部引用, 涉及的文件一起写入, 写入失败时都保持原样; 完成后只重新解析修改过的文件.
+     *
+     * @param sourcePath   源代码路径
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @param newName      新名称
+     * @return 文件修改列表, 无法重命名时返回null
+     */
+    List<FileEdits> rename(String sourcePath, int lineNumber, int columnNumber, String newName);
+
     /**
      * 获取状态
      *
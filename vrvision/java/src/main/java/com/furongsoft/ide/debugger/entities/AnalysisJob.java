@@ -0,0 +1,141 @@
+package com.furongsoft.ide.debugger.entities;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分析任务
+ * <p>
+ * 进度以已解析的源代码文件数表示, 增量分析时待解析文件总数会随依赖文件的加入而增加.
+ *
+ * @author Alex
+ */
+@Getter
+public class AnalysisJob {
+    /**
+     * 任务标识
+     */
+    private final long id;
+
+    /**
+     * 源代码根目录
+     */
+    private final String rootPath;
+
+    /**
+     * 状态
+     */
+    private volatile AnalysisState state = AnalysisState.Pending;
+
+    /**
+     * 是否已请求取消
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * 待解析文件总数
+     */
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger totalFiles = new AtomicInteger();
+
+    /**
+     * 已解析文件数
+     */
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger parsedFiles = new AtomicInteger();
+
+    /**
+     * 开始时间
+     */
+    private volatile long startTime;
+
+    /**
+     * 结束时间
+     */
+    private volatile long endTime;
+
+    /**
+     * 结束信号
+     */
+    @Getter(AccessLevel.NONE)
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    public AnalysisJob(long id, String rootPath) {
+        this.id = id;
+        this.rootPath = rootPath;
+    }
+
+    /**
+     * 获取待解析文件总数
+     *
+     * @return 待解析文件总数
+     */
+    public int getTotalFiles() {
+        return totalFiles.get();
+    }
+
+    /**
+     * 获取已解析文件数
+     *
+     * @return 已解析文件数
+     */
+    public int getParsedFiles() {
+        return parsedFiles.get();
+    }
+
+    /**
+     * 增加待解析文件数
+     *
+     * @param count 文件数
+     */
+    public void addTotalFiles(int count) {
+        totalFiles.addAndGet(count);
+    }
+
+    /**
+     * 增加已解析文件数
+     */
+    public void addParsedFile() {
+        parsedFiles.incrementAndGet();
+    }
+
+    /**
+     * 请求取消
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * 开始执行
+     */
+    public void start() {
+        startTime = System.currentTimeMillis();
+        state = AnalysisState.Running;
+    }
+
+    /**
+     * 结束执行
+     *
+     * @param state 结束状态
+     */
+    public void finish(AnalysisState state) {
+        endTime = System.currentTimeMillis();
+        this.state = state;
+        finished.countDown();
+    }
+
+    /**
+     * 等待任务结束
+     *
+     * @return 结束状态
+     * @throws InterruptedException 等待被中断
+     */
+    public AnalysisState await() throws InterruptedException {
+        finished.await();
+        return state;
+    }
+}
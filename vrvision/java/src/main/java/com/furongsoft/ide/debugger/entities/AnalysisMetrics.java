@@ -0,0 +1,129 @@
+package com.furongsoft.ide.debugger.entities;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * 分析性能统计
+ * <p>
+ * 耗时单位均为微秒. 并行解析时解析、绑定解析、符号收集和类型缩写转换耗时为各线程耗时之和, 可能大于总耗时.
+ *
+ * @author Alex
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class AnalysisMetrics {
+    /**
+     * 分析类型: analyze、update 或 resolve
+     */
+    private String kind;
+
+    /**
+     * 源代码根目录
+     */
+    private String rootPath;
+
+    /**
+     * 开始时间
+     */
+    private long startTime;
+
+    /**
+     * 总耗时
+     */
+    private long totalTime;
+
+    /**
+     * 扫描目录耗时
+     */
+    private long scanTime;
+
+    /**
+     * 计算文件内容摘要耗时
+     */
+    private long hashTime;
+
+    /**
+     * 加载类库索引耗时
+     */
+    private long libraryTime;
+
+    /**
+     * 从缓存恢复符号耗时
+     */
+    private long restoreTime;
+
+    /**
+     * 语法解析耗时, 即开始解析到收到第一个编译单元的时间
+     */
+    private long parseTime;
+
+    /**
+     * 绑定解析耗时, 即相邻两个编译单元之间的时间
+     */
+    private long resolveTime;
+
+    /**
+     * 符号收集耗时, 包括类型缩写转换
+     */
+    private long visitTime;
+
+    /**
+     * 类型缩写转换耗时
+     */
+    private long keyTime;
+
+    /**
+     * 链接符号耗时
+     */
+    private long linkTime;
+
+    /**
+     * 保存缓存耗时
+     */
+    private long saveTime;
+
+    /**
+     * 生成快照耗时
+     */
+    private long snapshotTime;
+
+    /**
+     * 源代码文件数
+     */
+    private int files;
+
+    /**
+     * 解析的文件数
+     */
+    private int parsedFiles;
+
+    /**
+     * 从缓存恢复的文件数
+     */
+    private int restoredFiles;
+
+    /**
+     * 收集的符号数
+     */
+    private long symbols;
+
+    /**
+     * 无法解析的绑定数
+     */
+    private long unresolvedBindings;
+
+    /**
+     * 恢复的绑定数
+     */
+    private long recoveredBindings;
+
+    /**
+     * 耗时最长的文件列表
+     */
+    private List<FileMetrics> slowestFiles;
+}
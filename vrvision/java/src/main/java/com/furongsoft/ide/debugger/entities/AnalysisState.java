@@ -0,0 +1,45 @@
+package com.furongsoft.ide.debugger.entities;
+
+import lombok.Getter;
+
+/**
+ * 分析任务状态
+ *
+ * @author Alex
+ */
+@Getter
+public enum AnalysisState {
+    /**
+     * 等待中
+     */
+    Pending(0),
+
+    /**
+     * 分析中
+     */
+    Running(1),
+
+    /**
+     * 已完成
+     */
+    Succeeded(2),
+
+    /**
+     * 失败
+     */
+    Failed(3),
+
+    /**
+     * 已取消
+     */
+    Cancelled(4);
+
+    /**
+     * 分析任务状态
+     */
+    private int state;
+
+    AnalysisState(int value) {
+        this.state = value;
+    }
+}
@@ -0,0 +1,62 @@
+package com.furongsoft.ide.debugger.entities;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 绑定缓存统计
+ * <p>
+ * 耗时单位均为微秒. 命中和未命中按需要单个文件绑定的查询计数.
+ *
+ * @author Alex
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class BindingCacheMetrics {
+    /**
+     * 已解析绑定的文件数量上限
+     */
+    private int capacity;
+
+    /**
+     * 已解析绑定的文件数量
+     */
+    private int resolvedFiles;
+
+    /**
+     * 未解析绑定的文件数量
+     */
+    private int unresolvedFiles;
+
+    /**
+     * 命中次数
+     */
+    private long hits;
+
+    /**
+     * 未命中次数
+     */
+    private long misses;
+
+    /**
+     * 淘汰的文件数量
+     */
+    private long evictions;
+
+    /**
+     * 重新解析次数
+     */
+    private long rebuilds;
+
+    /**
+     * 重新解析总耗时
+     */
+    private long rebuildTime;
+
+    /**
+     * 重新解析最长耗时
+     */
+    private long maxRebuildTime;
+}
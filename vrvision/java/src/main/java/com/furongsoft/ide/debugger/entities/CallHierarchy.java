@@ -0,0 +1,34 @@
+package com.furongsoft.ide.debugger.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * 调用层次节点
+ *
+ * @author Alex
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CallHierarchy {
+    /**
+     * 方法声明符号, 类型中方法外的调用为类型声明符号
+     */
+    private Symbol symbol;
+
+    /**
+     * 与上层节点之间的方法调用符号, 位于调用方声明中: 呼入层次中调用方为本节点, 呼出层次中调用方为上层节点. 根节点为空列表
+     */
+    private List<Symbol> callSites;
+
+    /**
+     * 下层节点: 呼入层次为调用本节点的方法, 呼出层次为本节点调用的方法. 超过查询深度或出现递归时为空
+     */
+    private List<CallHierarchy> calls;
+}
@@ -0,0 +1,72 @@
+package com.furongsoft.ide.debugger.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 诊断信息
+ *
+ * @author Alex
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class Diagnostic {
+    /**
+     * 严重程度: 错误
+     */
+    public static final int SEVERITY_ERROR = 1;
+
+    /**
+     * 严重程度: 警告
+     */
+    public static final int SEVERITY_WARNING = 2;
+
+    /**
+     * 严重程度: 提示
+     */
+    public static final int SEVERITY_INFO = 3;
+
+    /**
+     * 严重程度
+     */
+    private int severity;
+
+    /**
+     * 问题编号, 与JDT的IProblem编号一致
+     */
+    private int id;
+
+    /**
+     * 描述
+     */
+    private String message;
+
+    /**
+     * 源代码路径
+     */
+    private String sourcePath;
+
+    /**
+     * 位置
+     */
+    private int position;
+
+    /**
+     * 长度
+     */
+    private int length;
+
+    /**
+     * 行号
+     */
+    private int lineNumber;
+
+    /**
+     * 列号
+     */
+    private int columnNumber;
+}
@@ -0,0 +1,29 @@
+package com.furongsoft.ide.debugger.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * 源代码文件中的文本修改
+ *
+ * @author Alex
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileEdits {
+    /**
+     * 源代码路径
+     */
+    private String sourcePath;
+
+    /**
+     * 文本修改列表, 按位置排序且互不重叠
+     */
+    private List<TextEdit> edits;
+}
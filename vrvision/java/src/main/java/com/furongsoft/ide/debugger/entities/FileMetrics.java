@@ -0,0 +1,37 @@
+package com.furongsoft.ide.debugger.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 单个源代码文件的分析耗时
+ *
+ * @author Alex
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileMetrics {
+    /**
+     * 源代码路径
+     */
+    private String sourcePath;
+
+    /**
+     * 绑定解析耗时(微秒)
+     */
+    private long resolveTime;
+
+    /**
+     * 符号收集耗时(微秒)
+     */
+    private long visitTime;
+
+    /**
+     * 符号数量
+     */
+    private int symbols;
+}
@@ -0,0 +1,29 @@
+package com.furongsoft.ide.debugger.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * 源代码文件中的符号引用
+ *
+ * @author Alex
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class References {
+    /**
+     * 源代码路径
+     */
+    private String sourcePath;
+
+    /**
+     * 引用符号列表
+     */
+    private List<Symbol> symbols;
+}
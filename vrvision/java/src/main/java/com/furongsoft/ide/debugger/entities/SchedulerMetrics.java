@@ -0,0 +1,47 @@
+package com.furongsoft.ide.debugger.entities;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 分析调度统计
+ * <p>
+ * 耗时单位均为微秒. 等待时间为任务从提交到开始执行的时间.
+ *
+ * @author Alex
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class SchedulerMetrics {
+    /**
+     * 优先级: INTERACTIVE、UPDATE 或 BACKGROUND
+     */
+    private String priority;
+
+    /**
+     * 已执行的任务数
+     */
+    private long tasks;
+
+    /**
+     * 等待中的任务数
+     */
+    private int pendingTasks;
+
+    /**
+     * 等待总时间
+     */
+    private long waitTime;
+
+    /**
+     * 最长等待时间
+     */
+    private long maxWaitTime;
+
+    /**
+     * 执行总时间
+     */
+    private long runTime;
+}
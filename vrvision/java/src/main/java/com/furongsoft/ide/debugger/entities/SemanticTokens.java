@@ -0,0 +1,35 @@
+package com.furongsoft.ide.debugger.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 语义令牌
+ * <p>
+ * 编码方式与LSP一致, 每个令牌占5个整数: 与上一个令牌的行号差, 列号差(不同行时为列号), 长度, 令牌类型, 令牌修饰符.
+ * 行号从0开始, 首个令牌的行号差即为其行号. 令牌类型即符号子类型, 见 {@link Symbol}.
+ *
+ * @author Alex
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SemanticTokens {
+    /**
+     * 令牌修饰符: 声明
+     */
+    public static final int TOKEN_MODIFIER_DECLARATION = 1;
+
+    /**
+     * 符号表版本
+     */
+    private long version;
+
+    /**
+     * 编码后的令牌列表
+     */
+    private int[] data;
+}
@@ -0,0 +1,44 @@
+package com.furongsoft.ide.debugger.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 文本修改
+ * <p>
+ * 用新文本替换源代码中从位置开始指定长度的文本, 位置和长度以修改前的源代码为准.
+ *
+ * @author Alex
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TextEdit {
+    /**
+     * 位置
+     */
+    private int position;
+
+    /**
+     * 长度
+     */
+    private int length;
+
+    /**
+     * 行号
+     */
+    private int lineNumber;
+
+    /**
+     * 列号
+     */
+    private int columnNumber;
+
+    /**
+     * 新文本
+     */
+    private String text;
+}
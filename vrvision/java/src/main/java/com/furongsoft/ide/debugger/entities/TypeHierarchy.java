@@ -0,0 +1,29 @@
+package com.furongsoft.ide.debugger.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * 类型层次节点
+ *
+ * @author Alex
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TypeHierarchy {
+    /**
+     * 类型声明符号
+     */
+    private Symbol symbol;
+
+    /**
+     * 下层节点: 子类型层次为直接子类型, 超类型层次为直接超类和接口. 超过查询深度时为空
+     */
+    private List<TypeHierarchy> types;
+}
@@ -0,0 +1,277 @@
+package com.furongsoft.ide.debugger.java;
+
+import com.furongsoft.ide.debugger.entities.AnalysisMetrics;
+import com.furongsoft.ide.debugger.entities.FileMetrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分析性能统计收集器
+ * <p>
+ * 每次分析或增量分析使用一个收集器, 各阶段耗时以纳秒累加, 可被并行解析的多个线程同时调用.
+ *
+ * @author Alex
+ */
+public class AnalysisProfiler {
+    /**
+     * 保留的耗时最长的文件数
+     */
+    private static final int MAX_SLOWEST_FILES = 20;
+
+    /**
+     * 分析类型
+     */
+    private final String kind;
+
+    /**
+     * 源代码根目录
+     */
+    private final String rootPath;
+
+    /**
+     * 开始时间
+     */
+    private final long startTime = System.currentTimeMillis();
+
+    /**
+     * 开始时间(纳秒)
+     */
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * 各阶段耗时(纳秒)
+     */
+    private final LongAdder[] times = new LongAdder[Phase.values().length];
+
+    /**
+     * 源代码文件数
+     */
+    private final AtomicInteger files = new AtomicInteger();
+
+    /**
+     * 解析的文件数
+     */
+    private final AtomicInteger parsedFiles = new AtomicInteger();
+
+    /**
+     * 从缓存恢复的文件数
+     */
+    private final AtomicInteger restoredFiles = new AtomicInteger();
+
+    /**
+     * 收集的符号数
+     */
+    private final LongAdder symbols = new LongAdder();
+
+    /**
+     * 无法解析的绑定数
+     */
+    private final LongAdder unresolvedBindings = new LongAdder();
+
+    /**
+     * 恢复的绑定数
+     */
+    private final LongAdder recoveredBindings = new LongAdder();
+
+    /**
+     * 耗时最长的文件列表, 堆顶为其中耗时最短的文件
+     */
+    private final PriorityQueue<FileMetrics> slowestFiles = new PriorityQueue<>(Comparator.comparingLong(f -> f.getResolveTime() + f.getVisitTime()));
+
+    public AnalysisProfiler(String kind, String rootPath) {
+        this.kind = kind;
+        this.rootPath = rootPath;
+        for (int i = 0; i < times.length; ++i) {
+            times[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录阶段耗时
+     *
+     * @param phase 阶段
+     * @param begin 开始时间(纳秒)
+     */
+    public void record(Phase phase, long begin) {
+        times[phase.ordinal()].add(System.nanoTime() - begin);
+    }
+
+    /**
+     * 累加阶段耗时
+     *
+     * @param phase 阶段
+     * @param nanos 耗时(纳秒)
+     */
+    public void add(Phase phase, long nanos) {
+        times[phase.ordinal()].add(nanos);
+    }
+
+    /**
+     * 设置源代码文件数
+     *
+     * @param count 文件数
+     */
+    public void setFiles(int count) {
+        files.set(count);
+    }
+
+    /**
+     * 设置从缓存恢复的文件数
+     *
+     * @param count 文件数
+     */
+    public void setRestoredFiles(int count) {
+        restoredFiles.set(count);
+    }
+
+    /**
+     * 记录解析完成的文件
+     *
+     * @param sourcePath  源代码路径
+     * @param resolveTime 绑定解析耗时(纳秒)
+     * @param visitTime   符号收集耗时(纳秒)
+     * @param count       符号数量
+     */
+    public void addFile(String sourcePath, long resolveTime, long visitTime, int count) {
+        parsedFiles.incrementAndGet();
+        symbols.add(count);
+
+        FileMetrics metrics = new FileMetrics(sourcePath, resolveTime / 1000, visitTime / 1000, count);
+        synchronized (slowestFiles) {
+            if (slowestFiles.size() < MAX_SLOWEST_FILES) {
+                slowestFiles.add(metrics);
+            } else if (slowestFiles.comparator().compare(metrics, slowestFiles.peek()) > 0) {
+                slowestFiles.poll();
+                slowestFiles.add(metrics);
+            }
+        }
+    }
+
+    /**
+     * 增加无法解析的绑定数
+     */
+    public void addUnresolvedBinding() {
+        unresolvedBindings.increment();
+    }
+
+    /**
+     * 增加恢复的绑定数
+     */
+    public void addRecoveredBinding() {
+        recoveredBindings.increment();
+    }
+
+    /**
+     * 生成性能统计
+     *
+     * @return 性能统计
+     */
+    public AnalysisMetrics toMetrics() {
+        AnalysisMetrics metrics = new AnalysisMetrics();
+        metrics.setKind(kind);
+        metrics.setRootPath(rootPath);
+        metrics.setStartTime(startTime);
+        metrics.setTotalTime((System.nanoTime() - startNanos) / 1000);
+        metrics.setScanTime(getTime(Phase.SCAN));
+        metrics.setHashTime(getTime(Phase.HASH));
+        metrics.setLibraryTime(getTime(Phase.LIBRARY));
+        metrics.setRestoreTime(getTime(Phase.RESTORE));
+        metrics.setParseTime(getTime(Phase.PARSE));
+        metrics.setResolveTime(getTime(Phase.RESOLVE));
+        metrics.setVisitTime(getTime(Phase.VISIT));
+        metrics.setKeyTime(getTime(Phase.KEY));
+        metrics.setLinkTime(getTime(Phase.LINK));
+        metrics.setSaveTime(getTime(Phase.SAVE));
+        metrics.setSnapshotTime(getTime(Phase.SNAPSHOT));
+        metrics.setFiles(files.get());
+        metrics.setParsedFiles(parsedFiles.get());
+        metrics.setRestoredFiles(restoredFiles.get());
+        metrics.setSymbols(symbols.sum());
+        metrics.setUnresolvedBindings(unresolvedBindings.sum());
+        metrics.setRecoveredBindings(recoveredBindings.sum());
+
+        List<FileMetrics> list;
+        synchronized (slowestFiles) {
+            list = new ArrayList<>(slowestFiles);
+        }
+        list.sort(slowestFiles.comparator().reversed());
+        metrics.setSlowestFiles(list);
+
+        return metrics;
+    }
+
+    /**
+     * 获取阶段耗时
+     *
+     * @param phase 阶段
+     * @return 耗时(微秒)
+     */
+    private long getTime(Phase phase) {
+        return times[phase.ordinal()].sum() / 1000;
+    }
+
+    /**
+     * 分析阶段
+     */
+    public enum Phase {
+        /**
+         * 扫描目录
+         */
+        SCAN,
+
+        /**
+         * 计算文件内容摘要
+         */
+        HASH,
+
+        /**
+         * 加载类库索引
+         */
+        LIBRARY,
+
+        /**
+         * 从缓存恢复符号
+         */
+        RESTORE,
+
+        /**
+         * 语法解析
+         */
+        PARSE,
+
+        /**
+         * 绑定解析
+         */
+        RESOLVE,
+
+        /**
+         * 符号收集
+         */
+        VISIT,
+
+        /**
+         * 类型缩写转换
+         */
+        KEY,
+
+        /**
+         * 链接符号
+         */
+        LINK,
+
+        /**
+         * 保存缓存
+         */
+        SAVE,
+
+        /**
+         * 生成快照
+         */
+        SNAPSHOT
+    }
+}
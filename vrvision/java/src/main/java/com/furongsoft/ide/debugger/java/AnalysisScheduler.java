@@ -0,0 +1,273 @@
+package com.furongsoft.ide.debugger.java;
+
+import com.furongsoft.core.misc.Tracker;
+import com.furongsoft.ide.debugger.entities.SchedulerMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分析调度器
+ * <p>
+ * 所有修改符号表的工作在同一分析线程中按优先级执行: 交互查询需要的绑定解析最先, 文件变化的增量分析其次, 分析和后台解析最后,
+ * 同一优先级按提交顺序执行. 正在执行的后台工作在两个文件之间调用 {@link #runInteractive()}, 在分析线程中直接执行等待中的交互任务,
+ * 因此交互查询最多等待一个文件的解析时间. 只读查询直接读取快照, 不经过调度器.
+ *
+ * @author Alex
+ */
+public class AnalysisScheduler {
+    /**
+     * 任务序号
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * 任务队列
+     */
+    private final PriorityBlockingQueue<Task<?>> queue = new PriorityBlockingQueue<>();
+
+    /**
+     * 各优先级的统计: 任务数、等待总时间、最长等待时间、执行总时间(纳秒)
+     */
+    private final long[][] statistics = new long[Priority.values().length][4];
+
+    /**
+     * 分析线程
+     */
+    private final Thread worker;
+
+    /**
+     * 运行标志
+     */
+    private volatile boolean runFlag = true;
+
+    public AnalysisScheduler() {
+        worker = new Thread(this::run, "analyzer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 提交任务
+     * <p>
+     * 不返回任务结果, 任务抛出的异常由调度器记录.
+     *
+     * @param priority 优先级
+     * @param runnable 任务
+     */
+    public void execute(Priority priority, Runnable runnable) {
+        submit(priority, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * 提交任务
+     *
+     * @param priority 优先级
+     * @param callable 任务
+     * @param <T>      结果类型
+     * @return 任务结果
+     */
+    public <T> Future<T> submit(Priority priority, Callable<T> callable) {
+        Task<T> task = new Task<>(priority, sequence.incrementAndGet(), callable);
+        if (!runFlag) {
+            task.run();
+        } else {
+            queue.add(task);
+        }
+
+        return task;
+    }
+
+    /**
+     * 执行任务并等待结果
+     * <p>
+     * 在分析线程中调用时直接执行, 避免等待自身.
+     *
+     * @param priority 优先级
+     * @param callable 任务
+     * @param <T>      结果类型
+     * @return 任务结果, 失败时返回null
+     */
+    public <T> T call(Priority priority, Callable<T> callable) {
+        try {
+            if (Thread.currentThread() == worker) {
+                return callable.call();
+            }
+
+            return submit(priority, callable).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // 任务异常已在任务结束时记录
+        } catch (Exception e) {
+            Tracker.error(e);
+        }
+
+        return null;
+    }
+
+    /**
+     * 执行等待中的交互任务
+     * <p>
+     * 由后台工作在可以安全修改符号表的位置调用, 只在分析线程中生效.
+     */
+    public void runInteractive() {
+        if (Thread.currentThread() != worker) {
+            return;
+        }
+
+        Task<?> task = queue.peek();
+        while ((task != null) && (task.priority == Priority.INTERACTIVE)) {
+            task = queue.poll();
+            if (task != null) {
+                task.run();
+            }
+            task = queue.peek();
+        }
+    }
+
+    /**
+     * 停止调度器, 丢弃等待中的任务
+     */
+    public void shutdown() {
+        runFlag = false;
+        worker.interrupt();
+        for (Task<?> task : new ArrayList<>(queue)) {
+            task.cancel(false);
+        }
+        queue.clear();
+    }
+
+    /**
+     * 获取各优先级的统计
+     *
+     * @return 统计列表, 按优先级从高到低排列
+     */
+    public List<SchedulerMetrics> getMetrics() {
+        List<SchedulerMetrics> result = new ArrayList<>();
+        int[] pending = new int[Priority.values().length];
+        for (Task<?> task : queue) {
+            pending[task.priority.ordinal()]++;
+        }
+
+        synchronized (statistics) {
+            for (Priority priority : Priority.values()) {
+                long[] values = statistics[priority.ordinal()];
+                SchedulerMetrics metrics = new SchedulerMetrics();
+                metrics.setPriority(priority.name());
+                metrics.setTasks(values[0]);
+                metrics.setPendingTasks(pending[priority.ordinal()]);
+                metrics.setWaitTime(values[1] / 1000);
+                metrics.setMaxWaitTime(values[2] / 1000);
+                metrics.setRunTime(values[3] / 1000);
+                result.add(metrics);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 分析线程
+     */
+    private void run() {
+        while (runFlag) {
+            try {
+                queue.take().run();
+            } catch (InterruptedException e) {
+                Tracker.info("scheduler: stopped");
+            }
+        }
+    }
+
+    /**
+     * 优先级
+     */
+    public enum Priority {
+        /**
+         * 交互查询, 如悬停、定义和补全需要的绑定解析
+         */
+        INTERACTIVE,
+
+        /**
+         * 文件变化的增量分析
+         */
+        UPDATE,
+
+        /**
+         * 分析和后台解析
+         */
+        BACKGROUND
+    }
+
+    /**
+     * 任务
+     *
+     * @param <T> 结果类型
+     */
+    private class Task<T> extends FutureTask<T> implements Comparable<Task<?>> {
+        /**
+         * 优先级
+         */
+        private final Priority priority;
+
+        /**
+         * 提交序号
+         */
+        private final long sequence;
+
+        /**
+         * 提交时间(纳秒)
+         */
+        private final long submitTime = System.nanoTime();
+
+        Task(Priority priority, long sequence, Callable<T> callable) {
+            super(callable);
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            long begin = System.nanoTime();
+            super.run();
+            long end = System.nanoTime();
+
+            synchronized (statistics) {
+                long[] values = statistics[priority.ordinal()];
+                values[0]++;
+                values[1] += begin - submitTime;
+                values[2] = Math.max(values[2], begin - submitTime);
+                values[3] += end - begin;
+            }
+        }
+
+        /**
+         * 记录任务异常
+         * <p>
+         * 异常保存在任务结果中, 通过 {@link #execute} 提交的任务没有调用方读取结果, 因此在此处记录.
+         *
+         * @param t 异常
+         */
+        @Override
+        protected void setException(Throwable t) {
+            Tracker.error(t);
+            super.setException(t);
+        }
+
+        @Override
+        public int compareTo(Task<?> other) {
+            int result = Integer.compare(priority.ordinal(), other.priority.ordinal());
+            return (result != 0) ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
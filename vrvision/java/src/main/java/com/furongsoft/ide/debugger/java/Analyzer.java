@@ -1,40 +1,163 @@
 package com.furongsoft.ide.debugger.java;
 
+import com.furongsoft.core.misc.FileUtils;
 import com.furongsoft.core.misc.Tracker;
+import com.furongsoft.ide.debugger.entities.AnalysisJob;
+import com.furongsoft.ide.debugger.entities.AnalysisMetrics;
+import com.furongsoft.ide.debugger.entities.BindingCacheMetrics;
+import com.furongsoft.ide.debugger.entities.CallHierarchy;
+import com.furongsoft.ide.debugger.entities.Diagnostic;
+import com.furongsoft.ide.debugger.entities.FileEdits;
+import com.furongsoft.ide.debugger.entities.References;
+import com.furongsoft.ide.debugger.entities.SemanticTokens;
 import com.furongsoft.ide.debugger.entities.Symbol;
+import com.furongsoft.ide.debugger.entities.TypeHierarchy;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.FileASTRequestor;
 
+import javax.lang.model.SourceVersion;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class Analyzer {
+    /**
+     * 并行解析时每个线程最少处理的文件数
+     */
+    private static final int MIN_FILES_PER_WORKER = 32;
+
+    /**
+     * 保留的性能统计数量
+     */
+    private static final int MAX_METRICS = 100;
+
+    /**
+     * 已解析绑定的文件数量上限
+     */
+    private static final int MAX_RESOLVED_FILES = 8192;
+
+    /**
+     * 查找引用时每批最多解析的文件数, 首批只解析一个文件以便尽快返回结果, 此后逐批加倍
+     */
+    private static final int MAX_REFERENCE_BATCH_FILES = 32;
+
+    /**
+     * 并行解析时检查交互任务的间隔(毫秒)
+     */
+    private static final long YIELD_INTERVAL = 10;
+
+    /**
+     * 并行解析线程数
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 是否延迟解析绑定: 分析时只收集大纲, 文件首次被查询时再解析绑定
+     */
+    private boolean lazyBindings = true;
+
+    /**
+     * 绑定缓存, 限制按需解析后保留的已解析文件数量
+     */
+    private final BindingCache bindingCache = new BindingCache(MAX_RESOLVED_FILES);
+
+    /**
+     * 分析调度器, 为空时查询直接在调用线程中解析绑定
+     */
+    private volatile AnalysisScheduler scheduler;
+
     /**
      * 根目录
      */
-    private String rootPath;
+    private volatile String rootPath;
+
+    /**
+     * 类路径列表
+     */
+    private String[] classPath = new String[0];
+
+    /**
+     * 类库索引列表
+     */
+    private List<LibraryIndex> libraries = Collections.emptyList();
+
+    /**
+     * 字符串表
+     */
+    private final StringTable strings;
+
+    /**
+     * 上下文, 只在分析时修改
+     */
+    private Context context;
+
+    /**
+     * 快照版本
+     */
+    private long version;
+
+    /**
+     * 当前快照, 查询时不加锁读取, 分析或增量分析完成后整体替换
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * 当前分析的性能统计收集器
+     */
+    private AnalysisProfiler profiler;
 
     /**
-     * 上下文
+     * 性能统计历史, 按时间先后排列
      */
-    private Context context = new Context();
+    private final LinkedList<AnalysisMetrics> metrics = new LinkedList<>();
 
     /**
-     * 编译单元列表
+     * 分析和增量分析时的文件内容摘要: 源代码相对路径 -> 摘要, 文件监视器随后报告内容未变的文件时跳过
      */
-    private ConcurrentHashMap<String, CompilationUnit> compilationUnits = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> updatedHashes = new HashMap<>();
+
+    public Analyzer() {
+        this(new StringTable());
+    }
+
+    /**
+     * 构造分析器
+     *
+     * @param strings 字符串表, 工作区内的多个分析器共享同一字符串表
+     */
+    public Analyzer(StringTable strings) {
+        this.strings = strings;
+        this.context = new Context(strings);
+        this.snapshot = context.snapshot(version);
+    }
+
+    /**
+     * 获取根目录
+     *
+     * @return 根目录, 未分析时为null
+     */
+    public String getRootPath() {
+        return rootPath;
+    }
 
     /**
      * 分析源代码
@@ -43,66 +166,546 @@ public class Analyzer {
      * @return 是否成功
      */
     public boolean analyze(String path) {
-        final File rootFolder = new File(path);
-        final List<String> files = new ArrayList<>();
-        final List<String> encodings = new ArrayList<>();
+        return analyze(path, null, null);
+    }
+
+    /**
+     * 分析源代码
+     * <p>
+     * 类路径中的JAR文件按内容摘要建立类库索引, 已建立过索引的JAR文件不再重新读取.
+     * 符号表在新的上下文中建立, 完成后才生成新的快照, 分析期间查询仍使用原有快照; 失败或取消时保留原有符号表.
+     * 延迟解析绑定时, 需要解析的文件只收集大纲, 引用了其中类型声明的文件保留缓存中的符号, 两者都在首次查询时解析绑定;
+     * 符号缓存只保存已解析绑定的文件.
+     *
+     * @param path      源代码根目录
+     * @param classPath 类路径, 以分号或系统路径分隔符分隔, 可为空
+     * @param job       分析任务, 用于报告进度和检查是否取消, 可为空
+     * @return 是否成功
+     */
+    public synchronized boolean analyze(String path, String classPath, AnalysisJob job) {
+        String previousRootPath = rootPath;
+        String[] previousClassPath = this.classPath;
+        List<LibraryIndex> previousLibraries = libraries;
+        boolean success = false;
 
         try {
+            final File rootFolder = new File(path);
+            final List<String> files = new ArrayList<>();
             rootPath = rootFolder.getAbsolutePath().replace('\\', '/');
+            profiler = new AnalysisProfiler("analyze", rootPath);
+            long begin = System.nanoTime();
             Files.walkFileTree(rootFolder.toPath(), new SimpleFileVisitor<Path>() {
                 @Override
                 public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
                     if (file.toFile().getAbsolutePath().endsWith(".java")) {
                         files.add(file.toFile().getAbsolutePath());
-                        encodings.add("UTF-8");
                     }
                     return super.visitFile(file, attrs);
                 }
             });
-        } catch (IOException e) {
+            profiler.record(AnalysisProfiler.Phase.SCAN, begin);
+            profiler.setFiles(files.size());
+
+            begin = System.nanoTime();
+            this.classPath = getClassPath(classPath);
+            libraries = loadLibraries();
+            profiler.record(AnalysisProfiler.Phase.LIBRARY, begin);
+            checkCancelled(job);
+
+            Context next = createContext();
+            begin = System.nanoTime();
+            Map<String, byte[]> hashes = getFileHashes(files);
+            profiler.record(AnalysisProfiler.Phase.HASH, begin);
+
+            begin = System.nanoTime();
+            SymbolCache cache = new SymbolCache(rootPath, getEnvironment());
+            List<String> changedFiles = cache.load() ? restore(cache, hashes, next) : null;
+            profiler.record(AnalysisProfiler.Phase.RESTORE, begin);
+            if ((changedFiles == null) || (changedFiles.size() > files.size() / 2)) {
+                profiler.setRestoredFiles(0);
+                next = createContext();
+                if (job != null) {
+                    job.addTotalFiles(files.size());
+                }
+                parseParallel(files, next, job, !lazyBindings);
+                if (lazyBindings) {
+                    next.addUnresolvedFiles(hashes.keySet());
+                }
+                begin = System.nanoTime();
+                next.linkSymbols();
+                profiler.record(AnalysisProfiler.Phase.LINK, begin);
+            } else if (lazyBindings) {
+                outline(changedFiles, next, job, true);
+            } else {
+                update(changedFiles, next, job, true);
+            }
+
+            checkCancelled(job);
+            begin = System.nanoTime();
+            cache.save(next, getResolvedHashes(hashes, next));
+            profiler.record(AnalysisProfiler.Phase.SAVE, begin);
+
+            begin = System.nanoTime();
+            context = next;
+            updatedHashes.clear();
+            updatedHashes.putAll(hashes);
+            snapshot = context.snapshot(++version);
+            profiler.record(AnalysisProfiler.Phase.SNAPSHOT, begin);
+            addMetrics(profiler.toMetrics());
+            success = true;
+        } catch (Exception e) {
+            if ((job != null) && job.isCancelled()) {
+                Tracker.info(String.format("analyze: job %d cancelled", job.getId()));
+            } else {
+                Tracker.error(e);
+            }
+        } finally {
+            profiler = null;
+            if (!success) {
+                rootPath = previousRootPath;
+                this.classPath = previousClassPath;
+                libraries = previousLibraries;
+            }
+        }
+
+        return success;
+    }
+
+    /**
+     * 增量分析源代码
+     *
+     * @param path 源代码路径
+     * @return 是否成功
+     */
+    public boolean update(String path) {
+        return update(Collections.singletonList(path));
+    }
+
+    /**
+     * 增量分析源代码
+     * <p>
+     * 重新解析发生变化的源代码文件, 以及引用了其中类型声明的源代码文件, 完成后生成新的快照. 延迟解析绑定时变化的文件只收集大纲,
+     * 引用了其中类型声明的文件标记为未解析, 查询时再解析绑定; 否则先在独立的上下文中解析, 期间可以执行交互任务, 最后替换符号.
+     * 目录路径展开为其中现有的源代码文件和已分析过的源代码文件, 以处理整个目录的创建、删除和移动.
+     * 内容与上次增量分析时相同的源代码文件不再解析, 其他类型的文件忽略.
+     *
+     * @param paths 源代码路径列表
+     * @return 是否成功, 没有源代码文件变化时返回false且不生成新的快照
+     */
+    public boolean update(Collection<String> paths) {
+        return update(paths, true);
+    }
+
+    /**
+     * 只重新解析指定的源代码文件
+     * <p>
+     * 用于重命名等已知其他文件的符号不受影响的修改, 不再解析引用了其中类型声明的源代码文件.
+     * 延迟解析绑定时只收集大纲, 文件再次被查询时解析绑定.
+     *
+     * @param paths 源代码路径列表
+     * @return 是否成功, 没有源代码文件变化时返回false且不生成新的快照
+     */
+    public boolean reindex(Collection<String> paths) {
+        return update(paths, false);
+    }
+
+    /**
+     * 增量分析源代码
+     *
+     * @param paths      源代码路径列表
+     * @param dependents 是否同时解析引用了其中类型声明的源代码文件
+     * @return 是否成功, 没有源代码文件变化时返回false
+     */
+    private synchronized boolean update(Collection<String> paths, boolean dependents) {
+        if (rootPath == null) {
+            return false;
+        }
+
+        try {
+            profiler = new AnalysisProfiler("update", rootPath);
+            context.setProfiler(profiler);
+            if (!update(paths, context, null, dependents)) {
+                return false;
+            }
+            profiler.setFiles(context.getFiles().size());
+
+            long begin = System.nanoTime();
+            snapshot = context.snapshot(++version);
+            profiler.record(AnalysisProfiler.Phase.SNAPSHOT, begin);
+            addMetrics(profiler.toMetrics());
+        } catch (Exception e) {
             Tracker.error(e);
             return false;
+        } finally {
+            profiler = null;
         }
 
-        Map<String, String> options = JavaCore.getOptions();
-        options.put(JavaCore.COMPILER_COMPLIANCE, JavaCore.VERSION_11);
-        options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, JavaCore.VERSION_11);
-        options.put(JavaCore.COMPILER_SOURCE, JavaCore.VERSION_11);
+        return true;
+    }
 
-        final ASTParser parser = ASTParser.newParser(AST.JLS11);
-        parser.setResolveBindings(true);
-        parser.setBindingsRecovery(true);
-        parser.setStatementsRecovery(true);
-        parser.setKind(ASTParser.K_COMPILATION_UNIT);
-        parser.setCompilerOptions(options);
-        parser.setEnvironment(new String[]{rootFolder.getAbsolutePath()}, new String[]{rootFolder.getAbsolutePath()}, new String[]{"UTF-8"}, true);
+    /**
+     * 增量分析源代码
+     *
+     * @param paths      源代码路径列表
+     * @param context    上下文
+     * @param job        分析任务, 可为空
+     * @param dependents 是否同时解析引用了其中类型声明的源代码文件
+     * @return 是否有源代码文件变化
+     * @throws Exception 异常
+     */
+    private boolean update(Collection<String> paths, Context context, AnalysisJob job, boolean dependents) throws Exception {
+        long begin = System.nanoTime();
+        Set<String> sourcePaths = new HashSet<>();
+        for (String path : paths) {
+            String sourcePath = new File(path).getAbsolutePath().replace('\\', '/');
+            if (!sourcePath.startsWith(rootPath + '/')) {
+                continue;
+            }
+
+            if (sourcePath.endsWith(".java")) {
+                sourcePaths.add(sourcePath.substring(rootPath.length() + 1));
+            } else if (!new File(sourcePath).isFile()) {
+                sourcePaths.addAll(getSourcePaths(sourcePath, context));
+            }
+        }
+
+        // 分析时解析到新的上下文, 摘要只对当前上下文有效
+        if (context == this.context) {
+            removeUnchangedFiles(sourcePaths);
+        }
+        if (sourcePaths.isEmpty()) {
+            return false;
+        } else if (lazyBindings) {
+            // 只收集大纲并标记依赖文件未解析, 绑定在查询时以交互优先级解析
+            List<String> files = new ArrayList<>();
+            for (String sourcePath : sourcePaths) {
+                files.add(rootPath + '/' + sourcePath);
+            }
+            profiler.record(AnalysisProfiler.Phase.SCAN, begin);
+            outline(files, context, job, dependents);
+            return true;
+        }
+
+        Set<String> parsed = new HashSet<>();
+        Set<String> pending = new HashSet<>(sourcePaths);
+        if (dependents) {
+            pending.addAll(context.getDependentFiles(sourcePaths));
+        }
+        profiler.record(AnalysisProfiler.Phase.SCAN, begin);
+        while (!pending.isEmpty()) {
+            List<String> files = new ArrayList<>();
+            for (String sourcePath : pending) {
+                String file = rootPath + '/' + sourcePath;
+                if (new File(file).isFile()) {
+                    files.add(file);
+                }
+            }
+
+            if (job != null) {
+                job.addTotalFiles(files.size());
+            }
+
+            // 先在独立的上下文中解析, 期间可以执行交互任务, 完成后再替换符号
+            Context updated = createContext();
+            parse(files, updated, job, true);
+            for (String sourcePath : pending) {
+                context.removeSymbols(sourcePath);
+            }
+            context.merge(updated);
+            begin = System.nanoTime();
+            context.linkSymbols();
+            profiler.record(AnalysisProfiler.Phase.LINK, begin);
+            parsed.addAll(pending);
+
+            pending = dependents ? context.getDependentFiles(sourcePaths) : new HashSet<>();
+            pending.removeAll(parsed);
+        }
+
+        Tracker.info(String.format("update: %d changed, %d parsed", sourcePaths.size(), parsed.size()));
+        return true;
+    }
+
+    /**
+     * 移除内容与上次增量分析时相同的源代码文件, 并记录其余文件的内容摘要
+     *
+     * @param sourcePaths 源代码相对路径集合
+     */
+    private void removeUnchangedFiles(Set<String> sourcePaths) {
+        Iterator<String> iterator = sourcePaths.iterator();
+        while (iterator.hasNext()) {
+            String sourcePath = iterator.next();
+            byte[] content = sourcePath.endsWith(".java") ? FileUtils.readFile(Paths.get(rootPath + '/' + sourcePath)) : null;
+            if (content == null) {
+                updatedHashes.remove(sourcePath);
+                continue;
+            }
+
+            byte[] hash = SymbolCache.digest(content);
+            if (Arrays.equals(updatedHashes.put(sourcePath, hash), hash)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 以大纲模式重新解析发生变化的源代码文件
+     * <p>
+     * 变化的文件只收集大纲, 引用了其中类型声明的文件保留原有符号, 两者都标记为未解析绑定.
+     *
+     * @param changedFiles 源代码文件路径列表
+     * @param context      上下文
+     * @param job          分析任务, 可为空
+     * @param dependents   是否将引用了其中类型声明的文件标记为未解析绑定
+     * @throws Exception 异常
+     */
+    private void outline(List<String> changedFiles, Context context, AnalysisJob job, boolean dependents) throws Exception {
+        List<String> files = new ArrayList<>();
+        Set<String> sourcePaths = new HashSet<>();
+        for (String file : changedFiles) {
+            String sourcePath = file.substring(rootPath.length() + 1);
+            sourcePaths.add(sourcePath);
+            if (new File(file).isFile()) {
+                files.add(file);
+            }
+        }
+
+        Set<String> dependentFiles = dependents ? context.getDependentFiles(sourcePaths) : new HashSet<>();
+        for (String sourcePath : sourcePaths) {
+            context.removeSymbols(sourcePath);
+        }
+
+        if (job != null) {
+            job.addTotalFiles(files.size());
+        }
+        parseParallel(files, context, job, false);
+        for (String file : files) {
+            dependentFiles.add(file.substring(rootPath.length() + 1));
+        }
+        context.addUnresolvedFiles(dependentFiles);
+
+        long begin = System.nanoTime();
+        context.linkSymbols();
+        profiler.record(AnalysisProfiler.Phase.LINK, begin);
+    }
+
+    /**
+     * 解析文件的绑定
+     * <p>
+     * 文件已解析时直接返回当前快照, 不加分析器锁. 解析后已解析文件超过上限时淘汰最久未查询的文件.
+     *
+     * @param sourcePath 源代码相对路径
+     * @return 解析后的快照
+     */
+    private Snapshot resolve(String sourcePath) {
+        Snapshot current = snapshot;
+        boolean resolved = current.isResolved(sourcePath);
+        bindingCache.access(sourcePath, resolved);
+        if (resolved) {
+            return current;
+        }
+
+        schedule(() -> resolve(Collections.singletonList(sourcePath), true));
+        return snapshot;
+    }
 
+    /**
+     * 解析指定文件的绑定
+     * <p>
+     * 返回包含这些文件绑定的快照供本次查询使用, 随即淘汰超出上限的文件并生成新的快照.
+     *
+     * @param sourcePaths 源代码相对路径列表
+     * @param save        解析完成后是否保存符号缓存
+     * @return 指定文件均已解析的快照
+     */
+    private Snapshot resolveFiles(List<String> sourcePaths, boolean save) {
+        Snapshot[] result = new Snapshot[1];
+        schedule(() -> {
+            boolean success = resolve(sourcePaths, false) && (!save || saveCache());
+            result[0] = snapshot;
+            evict();
+            return success;
+        });
+
+        return (result[0] != null) ? result[0] : snapshot;
+    }
+
+    /**
+     * 解析其余文件的绑定
+     * <p>
+     * 用于分析完成后在后台逐步解析, 每次最多解析指定数量的文件, 以便增量分析在两次之间执行;
+     * 已解析文件达到上限时不再解析, 全部解析后保存符号缓存.
+     *
+     * @param count 本次最多解析的文件数量
+     * @return 是否还需要继续解析
+     */
+    public boolean resolveRemaining(int count) {
+        Snapshot current = snapshot;
+        Set<String> unresolvedFiles = current.getUnresolvedFiles();
+        int budget = bindingCache.getCapacity() - (current.getFiles().size() - unresolvedFiles.size());
+        if (unresolvedFiles.isEmpty() || (budget <= 0)) {
+            return false;
+        }
+
+        List<String> sourcePaths = new ArrayList<>(unresolvedFiles);
+        Collections.sort(sourcePaths);
+        if (sourcePaths.size() <= Math.min(budget, count)) {
+            resolve(sourcePaths, false);
+            saveCache();
+            return false;
+        }
+
+        return resolve(sourcePaths.subList(0, Math.min(budget, count)), false) && (budget > count);
+    }
+
+    /**
+     * 以交互优先级执行绑定解析, 未设置调度器时在调用线程中执行
+     *
+     * @param task 解析任务
+     */
+    private void schedule(Callable<Boolean> task) {
+        AnalysisScheduler current = scheduler;
         try {
-            context = new Context();
-            FileASTRequestor requestor = new FileASTRequestor() {
-                @Override
-                public void acceptAST(String sourceFilePath, CompilationUnit cu) {
-                    sourceFilePath = sourceFilePath.replace('\\', '/');
-                    compilationUnits.put(sourceFilePath, cu);
-                    context.setRootPath(rootPath);
-                    context.setSourcePath(sourceFilePath);
-                    context.setCompilationUnit(cu);
-                    cu.accept(new Visitor(context));
+            if (current != null) {
+                current.call(AnalysisScheduler.Priority.INTERACTIVE, task);
+            } else {
+                task.call();
+            }
+        } catch (Exception e) {
+            Tracker.error(e);
+        }
+    }
+
+    /**
+     * 安全点
+     * <p>
+     * 后台工作在独立的上下文中解析时, 在两个文件之间调用, 让等待中的交互任务先执行.
+     * 只在持有分析器锁的线程中生效, 根目录改变时当前上下文已过期, 不再执行.
+     */
+    private void checkpoint() {
+        AnalysisScheduler current = scheduler;
+        if ((current != null) && Thread.holdsLock(this) && Objects.equals(rootPath, context.getRootPath())) {
+            current.runInteractive();
+        }
+    }
+
+    /**
+     * 解析文件的绑定并替换其符号, 完成后生成新的快照
+     * <p>
+     * 先在独立的上下文中解析, 期间可以执行交互任务, 完成后再替换当前上下文中的符号.
+     *
+     * @param sourcePaths 源代码相对路径列表
+     * @param evict       是否淘汰超出上限的已解析文件
+     * @return 是否成功
+     */
+    private synchronized boolean resolve(Collection<String> sourcePaths, boolean evict) {
+        List<String> sourcePathList = new ArrayList<>();
+        List<String> files = new ArrayList<>();
+        AnalysisProfiler previousProfiler = profiler;
+        try {
+            profiler = new AnalysisProfiler("resolve", rootPath);
+            for (String sourcePath : sourcePaths) {
+                if (context.getUnresolvedFiles().contains(sourcePath)) {
+                    sourcePathList.add(sourcePath);
+                    String file = rootPath + '/' + sourcePath;
+                    if (new File(file).isFile()) {
+                        files.add(file);
+                    }
                 }
-            };
-            String[] bindingKeys = new String[]{};
+            }
+
+            if (sourcePathList.isEmpty()) {
+                return true;
+            }
 
-            compilationUnits.clear();
-            parser.createASTs(files.toArray(new String[files.size()]), encodings.toArray(new String[encodings.size()]), bindingKeys, requestor, null);
+            long start = System.nanoTime();
+            Context resolved = createContext();
+            parseParallel(files, resolved, null, true);
+
+            context.setProfiler(profiler);
+            for (String sourcePath : sourcePathList) {
+                context.removeSymbols(sourcePath);
+            }
+            context.merge(resolved);
+            long begin = System.nanoTime();
             context.linkSymbols();
+            profiler.record(AnalysisProfiler.Phase.LINK, begin);
+            profiler.setFiles(context.getFiles().size());
+            bindingCache.addRebuild(System.nanoTime() - start);
+            if (evict) {
+                evictFiles();
+            }
+
+            begin = System.nanoTime();
+            snapshot = context.snapshot(++version);
+            profiler.record(AnalysisProfiler.Phase.SNAPSHOT, begin);
+            addMetrics(profiler.toMetrics());
         } catch (Exception e) {
             Tracker.error(e);
             return false;
+        } finally {
+            profiler = previousProfiler;
+            context.setProfiler(previousProfiler);
+        }
+
+        return true;
+    }
+
+    /**
+     * 淘汰超出上限的已解析文件, 有文件淘汰时生成新的快照
+     */
+    private synchronized void evict() {
+        if (evictFiles()) {
+            snapshot = context.snapshot(++version);
+        }
+    }
+
+    /**
+     * 淘汰超出上限的已解析文件
+     *
+     * @return 是否有文件淘汰
+     */
+    private boolean evictFiles() {
+        List<String> evicted = bindingCache.evict(context);
+        if (evicted.isEmpty()) {
+            return false;
         }
 
+        Tracker.info(String.format("resolve: %d files evicted", evicted.size()));
         return true;
     }
 
+    /**
+     * 保存已解析绑定的文件到符号缓存
+     *
+     * @return 是否成功
+     */
+    private synchronized boolean saveCache() {
+        List<String> files = new ArrayList<>();
+        for (String sourcePath : context.getFiles().keySet()) {
+            files.add(rootPath + '/' + sourcePath);
+        }
+
+        return new SymbolCache(rootPath, getEnvironment()).save(context, getResolvedHashes(getFileHashes(files), context));
+    }
+
+    /**
+     * 获取已解析绑定的文件的内容摘要
+     *
+     * @param hashes  源代码文件内容摘要列表
+     * @param context 上下文
+     * @return 源代码相对路径与内容摘要对照表, 不含未解析绑定的文件
+     */
+    private static Map<String, byte[]> getResolvedHashes(Map<String, byte[]> hashes, Context context) {
+        if (context.getUnresolvedFiles().isEmpty()) {
+            return hashes;
+        }
+
+        Map<String, byte[]> result = new HashMap<>(hashes);
+        result.keySet().removeAll(context.getUnresolvedFiles());
+
+        return result;
+    }
+
     /**
      * 获取符号
      *
@@ -112,12 +715,13 @@ public class Analyzer {
      * @return 符号
      */
     public Symbol getSymbol(String sourcePath, int lineNumber, int columnNumber) {
-        String path = rootPath + '/' + sourcePath;
-        if (!compilationUnits.containsKey(path)) {
+        Snapshot current = resolve(sourcePath);
+        int position = current.getPosition(sourcePath, lineNumber, columnNumber);
+        if (position < 0) {
             return null;
         }
 
-        return context.getSymbol(path, compilationUnits.get(path).getPosition(lineNumber, columnNumber));
+        return current.getSymbol(sourcePath, position);
     }
 
     /**
@@ -129,11 +733,883 @@ public class Analyzer {
      * @return 符号定义
      */
     public Symbol getDeclarationSymbol(String sourcePath, int lineNumber, int columnNumber) {
-        String path = rootPath + '/' + sourcePath;
-        if (!compilationUnits.containsKey(path)) {
+        Snapshot current = resolve(sourcePath);
+        int position = current.getPosition(sourcePath, lineNumber, columnNumber);
+        if (position < 0) {
             return null;
         }
 
-        return context.getDeclarationSymbol(sourcePath, compilationUnits.get(path).getPosition(lineNumber, columnNumber));
+        String declarationFile = current.getUnresolvedDeclarationFile(sourcePath, position);
+        if (declarationFile != null) {
+            current = resolve(declarationFile);
+        }
+
+        return current.getDeclarationSymbol(sourcePath, position);
+    }
+
+    /**
+     * 获取符号类型缩写序号
+     * <p>
+     * 调试器中的变量与源代码符号使用同一字符串表, 序号在分析器生命周期内不变.
+     * 只查找不登记, 源代码中没有的符号类型缩写不会进入字符串表.
+     *
+     * @param key 符号类型缩写, 见 {@link SymbolKeys}
+     * @return 符号类型缩写序号, 不存在时返回-1
+     */
+    public int getSymbolId(String key) {
+        return strings.find(key);
+    }
+
+    /**
+     * 获取变量符号序号
+     *
+     * @param sourcePath   源代码路径
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @return 变量符号类型缩写序号, 不存在时返回-1
+     */
+    public int getVariableId(String sourcePath, int lineNumber, int columnNumber) {
+        Snapshot current = resolve(sourcePath);
+        int position = current.getPosition(sourcePath, lineNumber, columnNumber);
+
+        return (position < 0) ? -1 : current.getVariableId(sourcePath, position);
+    }
+
+    /**
+     * 按名称查找声明符号
+     *
+     * @param query 查询字符串, 支持前缀、驼峰缩写和模糊匹配
+     * @param limit 最多返回的符号数量
+     * @return 声明符号列表
+     */
+    public List<Symbol> searchSymbols(String query, int limit) {
+        return snapshot.searchSymbols(query, limit);
+    }
+
+    /**
+     * 查找符号引用
+     * <p>
+     * 按源代码路径顺序逐个文件收集引用, 每收集完一个文件即回调一次. 不预先解析全部文件: 已解析的文件按符号表筛选,
+     * 未解析的文件只有大纲, 大纲无法得知通过表达式间接引用的类型, 因此按源代码中是否出现符号名称筛选,
+     * 轮到时才分批解析, 页满后不再解析其余文件. 页满时还有其余候选文件即认为有下一页, 未解析的候选文件不一定引用该符号, 因此下一页可能为空.
+     *
+     * @param sourcePath   源代码路径
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @param pageIndex    页码
+     * @param pageSize     每页引用数量
+     * @param consumer     引用处理函数
+     * @return 是否还有下一页
+     */
+    public boolean findReferences(String sourcePath, int lineNumber, int columnNumber, int pageIndex, int pageSize, Consumer<References> consumer) {
+        if ((pageIndex < 0) || (pageSize <= 0)) {
+            return false;
+        }
+
+        Snapshot current = resolve(sourcePath);
+        int position = current.getPosition(sourcePath, lineNumber, columnNumber);
+        Symbol symbol = (position < 0) ? null : current.getSymbol(sourcePath, position);
+        int key = (symbol == null) ? -1 : current.getKey(sourcePath, position);
+        if (key < 0) {
+            return false;
+        }
+
+        String name = getIdentifier(symbol);
+        String root = rootPath;
+        List<String> candidates = current.getReferenceFiles(sourcePath, key, path -> containsIdentifier(root + '/' + path, name));
+
+        int offset = pageIndex * pageSize;
+        int count = 0;
+        int batch = 1;
+        for (int i = 0; i < candidates.size(); ++i) {
+            if (count >= offset + pageSize) {
+                return true;
+            }
+
+            String candidate = candidates.get(i);
+            if (!current.isResolved(candidate)) {
+                List<String> sourcePaths = new ArrayList<>();
+                for (int j = i; (j < candidates.size()) && (sourcePaths.size() < batch); ++j) {
+                    if (!current.isResolved(candidates.get(j))) {
+                        sourcePaths.add(candidates.get(j));
+                    }
+                }
+
+                current = resolveFiles(sourcePaths, false);
+                batch = Math.min(batch * 2, MAX_REFERENCE_BATCH_FILES);
+            }
+
+            List<Symbol> symbols = current.getReferences(candidate, key);
+            int begin = Math.min(Math.max(offset - count, 0), symbols.size());
+            int end = Math.min(Math.max(offset + pageSize - count, 0), symbols.size());
+            if (begin < end) {
+                consumer.accept(new References(candidate, new ArrayList<>(symbols.subList(begin, end))));
+            }
+
+            count += symbols.size();
+            if (count > offset + pageSize) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 源代码中是否出现指定标识符
+     *
+     * @param file 源代码文件
+     * @param name 标识符
+     * @return 是否出现, 文件无法读取时返回false
+     */
+    private static boolean containsIdentifier(String file, String name) {
+        return containsIdentifier(file, Collections.singletonList(name));
+    }
+
+    /**
+     * 源代码中是否出现任一标识符
+     *
+     * @param file  源代码文件
+     * @param names 标识符列表
+     * @return 是否出现, 文件无法读取时返回false
+     */
+    private static boolean containsIdentifier(String file, Collection<String> names) {
+        String code = SourceFiles.read(new File(file));
+        if (code == null) {
+            return false;
+        }
+
+        for (String name : names) {
+            if (name.isEmpty()) {
+                continue;
+            }
+
+            for (int i = code.indexOf(name); i >= 0; i = code.indexOf(name, i + 1)) {
+                int end = i + name.length();
+                if (((i == 0) || !Character.isJavaIdentifierPart(code.charAt(i - 1))) && ((end == code.length()) || !Character.isJavaIdentifierPart(code.charAt(end)))) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 获取符号名称中的标识符
+     *
+     * @param symbol 符号
+     * @return 标识符, 如Box&lt;T&gt; -> Box
+     */
+    private static String getIdentifier(Symbol symbol) {
+        String name = symbol.getName();
+        return name.contains("<") ? name.substring(0, name.indexOf('<')) : name;
+    }
+
+    /**
+     * 获取出现任一名称的未解析文件
+     *
+     * @param current 快照
+     * @param names   标识符列表
+     * @param skipped 不再检查的源代码路径集合
+     * @return 按路径排序的源代码路径列表
+     */
+    private List<String> getCandidateFiles(Snapshot current, Collection<String> names, Set<String> skipped) {
+        List<String> result = new ArrayList<>();
+        if (names.isEmpty()) {
+            return result;
+        }
+
+        String root = rootPath;
+        for (String sourcePath : current.getUnresolvedFiles()) {
+            if (!skipped.contains(sourcePath) && containsIdentifier(root + '/' + sourcePath, names)) {
+                result.add(sourcePath);
+            }
+        }
+        Collections.sort(result);
+
+        return result;
+    }
+
+    /**
+     * 分批解析候选文件的绑定
+     * <p>
+     * 与查找引用相同, 批次从1个文件开始逐次加倍, 两批之间等待中的其他交互任务可以先执行.
+     *
+     * @param current    快照
+     * @param candidates 源代码路径列表
+     * @return 候选文件均已解析的快照
+     */
+    private Snapshot resolveCandidates(Snapshot current, List<String> candidates) {
+        int batch = 1;
+        for (int i = 0; i < candidates.size(); i += batch, batch = Math.min(batch * 2, MAX_REFERENCE_BATCH_FILES)) {
+            current = resolveFiles(candidates.subList(i, Math.min(i + batch, candidates.size())), false);
+        }
+
+        return current;
+    }
+
+    /**
+     * 在部分解析的快照上执行查询
+     * <p>
+     * 未解析的文件只有大纲, 先以当前快照查询, 再解析结果涉及的未解析文件后重新查询, 直到不再涉及新的文件.
+     * 结果中的符号按名称查找出现该名称的文件, 或只取其声明所在的文件.
+     *
+     * @param current    快照
+     * @param query      查询函数
+     * @param symbols    取结果中符号的函数
+     * @param references 是否解析出现符号名称的文件, 否则只解析符号声明所在的文件
+     * @param <T>        结果类型
+     * @return 查询结果
+     */
+    private <T> T resolveQuery(Snapshot current, Function<Snapshot, T> query, Function<T, List<Symbol>> symbols, boolean references) {
+        Set<String> names = new HashSet<>();
+        Set<String> resolved = new HashSet<>();
+        while (true) {
+            T result = query.apply(current);
+            if (result == null) {
+                return null;
+            }
+
+            List<String> sourcePaths = new ArrayList<>();
+            List<String> pending = new ArrayList<>();
+            for (Symbol symbol : symbols.apply(result)) {
+                if (references) {
+                    if (names.add(getIdentifier(symbol))) {
+                        pending.add(getIdentifier(symbol));
+                    }
+                } else if ((symbol.getSourcePath() != null) && !current.isResolved(symbol.getSourcePath()) && resolved.add(symbol.getSourcePath())) {
+                    sourcePaths.add(symbol.getSourcePath());
+                }
+            }
+
+            if (references) {
+                sourcePaths = getCandidateFiles(current, pending, resolved);
+                resolved.addAll(sourcePaths);
+            }
+
+            if (sourcePaths.isEmpty()) {
+                return result;
+            }
+
+            Collections.sort(sourcePaths);
+            current = resolveCandidates(current, sourcePaths);
+        }
+    }
+
+    /**
+     * 获取调用层次中的全部方法符号
+     *
+     * @param hierarchy 调用层次根节点
+     * @return 符号列表
+     */
+    private static List<Symbol> getCallSymbols(CallHierarchy hierarchy) {
+        List<Symbol> result = new ArrayList<>();
+        Deque<CallHierarchy> stack = new ArrayDeque<>(Collections.singletonList(hierarchy));
+        while (!stack.isEmpty()) {
+            CallHierarchy node = stack.pop();
+            result.add(node.getSymbol());
+            if (node.getCalls() != null) {
+                node.getCalls().forEach(stack::push);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 获取类型层次中的全部类型符号
+     *
+     * @param hierarchy 类型层次根节点
+     * @return 符号列表
+     */
+    private static List<Symbol> getTypeSymbols(TypeHierarchy hierarchy) {
+        List<Symbol> result = new ArrayList<>();
+        Deque<TypeHierarchy> stack = new ArrayDeque<>(Collections.singletonList(hierarchy));
+        while (!stack.isEmpty()) {
+            TypeHierarchy node = stack.pop();
+            result.add(node.getSymbol());
+            if (node.getTypes() != null) {
+                node.getTypes().forEach(stack::push);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 获取重命名修改
+     * <p>
+     * 修改位置由符号表中的引用直接得到, 调用方按修改写入文件后只需重新解析修改过的文件.
+     * 覆盖方法和构造方法与符号同名, 因此与查找引用相同, 只解析源代码中出现符号名称的未解析文件.
+     *
+     * @param sourcePath   源代码路径
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @param newName      新名称
+     * @return 文件修改列表; 新名称不是合法标识符或位置不在可重命名的符号名称上时返回null
+     */
+    public List<FileEdits> getRenameEdits(String sourcePath, int lineNumber, int columnNumber, String newName) {
+        if ((newName == null) || !SourceVersion.isIdentifier(newName) || SourceVersion.isKeyword(newName)) {
+            return null;
+        }
+
+        Snapshot current = resolve(sourcePath);
+        int position = current.getPosition(sourcePath, lineNumber, columnNumber);
+        Symbol symbol = (position < 0) ? null : current.getSymbol(sourcePath, position);
+        int key = (symbol == null) ? -1 : current.getKey(sourcePath, position);
+        if (key < 0) {
+            return null;
+        }
+
+        String name = getIdentifier(symbol);
+        String root = rootPath;
+        List<String> candidates = new ArrayList<>();
+        for (String candidate : current.getReferenceFiles(sourcePath, key, path -> containsIdentifier(root + '/' + path, name))) {
+            if (!current.isResolved(candidate)) {
+                candidates.add(candidate);
+            }
+        }
+
+        current = resolveCandidates(current, candidates);
+
+        return current.getRenameEdits(sourcePath, position, newName);
+    }
+
+    /**
+     * 获取补全候选项
+     *
+     * @param sourcePath   源代码路径
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @param lineText     光标所在行的当前文本, 可为空
+     * @param limit        最多返回的候选项数量
+     * @return 按匹配程度排序的候选符号列表
+     */
+    public List<Symbol> complete(String sourcePath, int lineNumber, int columnNumber, String lineText, int limit) {
+        return new CompletionEngine(resolve(sourcePath)).complete(sourcePath, lineNumber, columnNumber, lineText, limit);
+    }
+
+    /**
+     * 获取调用层次
+     * <p>
+     * 调用关系只记录在已解析的文件中, 不预先解析全部文件: 呼入层次只解析出现层次中方法名称的文件, 呼出层次只解析被调用方法声明所在的文件.
+     *
+     * @param sourcePath   源代码路径
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @param depth        展开深度
+     * @param incoming     是否为呼入层次, 否则为呼出层次
+     * @return 调用层次根节点, 位置不在方法中时返回null
+     */
+    public CallHierarchy getCallHierarchy(String sourcePath, int lineNumber, int columnNumber, int depth, boolean incoming) {
+        Snapshot current = resolve(sourcePath);
+        int position = current.getPosition(sourcePath, lineNumber, columnNumber);
+        if (position < 0) {
+            return null;
+        }
+
+        return resolveQuery(current, s -> s.getCallHierarchy(sourcePath, position, depth, incoming), Analyzer::getCallSymbols, incoming);
+    }
+
+    /**
+     * 获取类型层次
+     * <p>
+     * 继承关系先取自大纲中的超类和接口, 只解析层次中类型所涉及的文件: 子类型层次解析出现类型名称的文件, 超类型层次解析类型声明所在的文件.
+     *
+     * @param sourcePath   源代码路径
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @param depth        展开深度
+     * @param subtypes     是否为子类型层次, 否则为超类型层次
+     * @return 类型层次根节点, 位置不在类型中时返回null
+     */
+    public TypeHierarchy getTypeHierarchy(String sourcePath, int lineNumber, int columnNumber, int depth, boolean subtypes) {
+        Snapshot current = resolve(sourcePath);
+        int position = current.getPosition(sourcePath, lineNumber, columnNumber);
+        if (position < 0) {
+            return null;
+        }
+
+        return resolveQuery(current, s -> s.getTypeHierarchy(sourcePath, position, depth, subtypes), Analyzer::getTypeSymbols, subtypes);
+    }
+
+    /**
+     * 查找实现
+     * <p>
+     * 与子类型层次相同, 继承关系先取自大纲, 只解析出现查找结果名称的文件.
+     *
+     * @param sourcePath   源代码路径
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @return 实现类型或覆盖方法的声明符号列表, 位置不在类型中时返回null
+     */
+    public List<Symbol> findImplementations(String sourcePath, int lineNumber, int columnNumber) {
+        Snapshot current = resolve(sourcePath);
+        int position = current.getPosition(sourcePath, lineNumber, columnNumber);
+        if (position < 0) {
+            return null;
+        }
+
+        Symbol symbol = current.getSymbol(sourcePath, position);
+        return resolveQuery(current, s -> s.findImplementations(sourcePath, position), result -> {
+            List<Symbol> symbols = new ArrayList<>(result);
+            if (symbol != null) {
+                symbols.add(symbol);
+            }
+
+            return symbols;
+        }, true);
+    }
+
+    /**
+     * 获取诊断信息
+     * <p>
+     * 返回所有文件的诊断信息时, 淘汰绑定的文件沿用上次解析绑定时的问题, 只解析从未解析或变化后未解析的文件.
+     *
+     * @param sourcePath 源代码路径, 为空时返回所有文件的诊断信息
+     * @return 诊断信息列表, 文件未分析时返回null
+     */
+    public List<Diagnostic> getDiagnostics(String sourcePath) {
+        if (sourcePath != null) {
+            return resolve(sourcePath).getDiagnostics(sourcePath);
+        }
+
+        Snapshot current = snapshot;
+        List<String> sourcePaths = current.getUncheckedFiles();
+
+        return (sourcePaths.isEmpty() ? current : resolveFiles(sourcePaths, true)).getDiagnostics(null);
+    }
+
+    /**
+     * 获取语义令牌
+     *
+     * @param sourcePath      源代码路径
+     * @param startLineNumber 起始行号
+     * @param endLineNumber   结束行号(含)
+     * @return 语义令牌, 文件未分析时返回null
+     */
+    public SemanticTokens getSemanticTokens(String sourcePath, int startLineNumber, int endLineNumber) {
+        return resolve(sourcePath).getSemanticTokens(sourcePath, startLineNumber, endLineNumber);
+    }
+
+    /**
+     * 获取性能统计历史
+     *
+     * @return 最近的性能统计列表, 按时间先后排列
+     */
+    public List<AnalysisMetrics> getMetrics() {
+        synchronized (metrics) {
+            return new ArrayList<>(metrics);
+        }
+    }
+
+    /**
+     * 获取绑定缓存统计
+     *
+     * @return 绑定缓存统计
+     */
+    public BindingCacheMetrics getBindingCacheMetrics() {
+        return bindingCache.toMetrics(snapshot);
+    }
+
+    /**
+     * 添加性能统计
+     *
+     * @param item 性能统计
+     */
+    private void addMetrics(AnalysisMetrics item) {
+        Tracker.info(String.format("%s: %d files, %d parsed, %d restored, %d symbols, %d unresolved, %d ms (parse %d ms, resolve %d ms, visit %d ms, link %d ms)",
+                item.getKind(), item.getFiles(), item.getParsedFiles(), item.getRestoredFiles(), item.getSymbols(), item.getUnresolvedBindings(),
+                item.getTotalTime() / 1000, item.getParseTime() / 1000, item.getResolveTime() / 1000, item.getVisitTime() / 1000, item.getLinkTime() / 1000));
+
+        synchronized (metrics) {
+            metrics.add(item);
+            while (metrics.size() > MAX_METRICS) {
+                metrics.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * 获取目录中的源代码文件
+     *
+     * @param folder  目录绝对路径
+     * @param context 上下文
+     * @return 源代码相对路径列表, 包括目录中现有的和已分析过的源代码文件
+     */
+    private Set<String> getSourcePaths(String folder, Context context) {
+        String prefix = folder.substring(rootPath.length() + 1) + '/';
+        Set<String> result = new HashSet<>();
+        for (String sourcePath : context.getFiles().keySet()) {
+            if (sourcePath.startsWith(prefix)) {
+                result.add(sourcePath);
+            }
+        }
+
+        if (new File(folder).isDirectory()) {
+            try {
+                Files.walkFileTree(Paths.get(folder), new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                        String path = file.toFile().getAbsolutePath().replace('\\', '/');
+                        if (path.endsWith(".java")) {
+                            result.add(path.substring(rootPath.length() + 1));
+                        }
+                        return super.visitFile(file, attrs);
+                    }
+                });
+            } catch (IOException e) {
+                Tracker.error(e);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 检查分析任务是否已取消
+     *
+     * @param job 分析任务, 可为空
+     * @throws OperationCanceledException 已取消
+     */
+    private static void checkCancelled(AnalysisJob job) {
+        if ((job != null) && job.isCancelled()) {
+            throw new OperationCanceledException();
+        }
+    }
+
+    /**
+     * 创建上下文
+     *
+     * @return 上下文
+     */
+    private Context createContext() {
+        Context result = new Context(strings);
+        result.setRootPath(rootPath);
+        result.setLibraries(libraries);
+        result.setProfiler(profiler);
+
+        return result;
+    }
+
+    /**
+     * 解析类路径
+     *
+     * @param classPath 类路径
+     * @return 存在的类路径绝对路径列表
+     */
+    private String[] getClassPath(String classPath) {
+        if ((classPath == null) || classPath.trim().isEmpty()) {
+            return new String[0];
+        }
+
+        List<String> result = new ArrayList<>();
+        for (String entry : classPath.split("[;" + File.pathSeparator + "]")) {
+            File file = new File(entry.trim());
+            if (!file.isAbsolute() && !file.exists()) {
+                file = new File(rootPath, entry.trim());
+            }
+
+            if (!entry.trim().isEmpty() && file.exists()) {
+                result.add(file.getAbsolutePath().replace('\\', '/'));
+            }
+        }
+
+        return result.toArray(new String[0]);
+    }
+
+    /**
+     * 加载运行时类库和类路径中JAR文件的类库索引
+     *
+     * @return 类库索引列表
+     */
+    private List<LibraryIndex> loadLibraries() {
+        List<LibraryIndex> result = new ArrayList<>();
+        LibraryIndex runtime = LibraryIndex.loadRuntime();
+        if (runtime != null) {
+            result.add(runtime);
+        }
+
+        for (String entry : classPath) {
+            if (new File(entry).isFile()) {
+                LibraryIndex library = LibraryIndex.load(entry);
+                if (library != null) {
+                    result.add(library);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 获取解析环境标识
+     * <p>
+     * 由类路径和JAR文件内容摘要组成, 环境变化时符号缓存失效.
+     *
+     * @return 解析环境标识
+     */
+    private String getEnvironment() {
+        StringBuilder sb = new StringBuilder();
+        for (String entry : classPath) {
+            sb.append(entry).append('\n');
+        }
+
+        for (LibraryIndex library : libraries) {
+            sb.append(library.getHash()).append('\n');
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * 从缓存恢复符号
+     *
+     * @param cache   符号缓存
+     * @param hashes  源代码文件内容摘要列表
+     * @param context 上下文
+     * @return 需要重新分析的源代码文件路径列表
+     */
+    private List<String> restore(SymbolCache cache, Map<String, byte[]> hashes, Context context) {
+        List<String> changedFiles = new ArrayList<>();
+        int restored = 0;
+        for (String sourcePath : cache.getSourcePaths()) {
+            cache.restore(sourcePath, context);
+            if (!cache.isValid(sourcePath, hashes.get(sourcePath))) {
+                changedFiles.add(rootPath + '/' + sourcePath);
+            } else {
+                restored++;
+            }
+        }
+        profiler.setRestoredFiles(restored);
+
+        for (String sourcePath : hashes.keySet()) {
+            if (!cache.getSourcePaths().contains(sourcePath)) {
+                changedFiles.add(rootPath + '/' + sourcePath);
+            }
+        }
+
+        Tracker.info(String.format("restore: %d cached, %d changed", cache.getSourcePaths().size(), changedFiles.size()));
+
+        return changedFiles;
+    }
+
+    /**
+     * 计算源代码文件内容摘要
+     *
+     * @param files 源代码文件路径列表
+     * @return 源代码相对路径与内容摘要对照表
+     */
+    private Map<String, byte[]> getFileHashes(List<String> files) {
+        Map<String, byte[]> hashes = new HashMap<>();
+        for (String file : files) {
+            byte[] content = FileUtils.readFile(Paths.get(file));
+            if (content != null) {
+                hashes.put(file.replace('\\', '/').substring(rootPath.length() + 1), SymbolCache.digest(content));
+            }
+        }
+
+        return hashes;
+    }
+
+    /**
+     * 设置并行解析线程数
+     *
+     * @param parallelism 并行解析线程数, 为1时不启用并行解析
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * 设置分析调度器
+     * <p>
+     * 设置后查询需要的绑定解析以交互优先级在分析线程中执行, 后台分析在两个文件之间让其先执行.
+     *
+     * @param scheduler 分析调度器
+     */
+    public void setScheduler(AnalysisScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 设置已解析绑定的文件数量上限
+     * <p>
+     * 按需解析后超出上限时, 最久未查询的文件只保留大纲, 再次查询时重新解析绑定.
+     *
+     * @param maxResolvedFiles 文件数量上限
+     */
+    public void setMaxResolvedFiles(int maxResolvedFiles) {
+        bindingCache.setCapacity(maxResolvedFiles);
+    }
+
+    /**
+     * 设置是否延迟解析绑定
+     *
+     * @param lazyBindings 为true时分析只收集大纲, 文件首次被查询时再解析绑定; 为false时分析即解析全部绑定
+     */
+    public void setLazyBindings(boolean lazyBindings) {
+        this.lazyBindings = lazyBindings;
+    }
+
+    /**
+     * 并行解析源代码文件并将符号添加到上下文
+     * <p>
+     * 文件列表按顺序切分给各个线程, 每个线程使用独立的语法解析器和上下文, 全部完成后合并到当前上下文.
+     * 解析到独立的上下文时, 等待期间执行交互任务.
+     *
+     * @param files           源代码文件路径列表
+     * @param context         上下文
+     * @param job             分析任务, 可为空
+     * @param resolveBindings 是否解析绑定, 否则只收集大纲
+     * @throws Exception 异常
+     */
+    private void parseParallel(List<String> files, Context context, AnalysisJob job, boolean resolveBindings) throws Exception {
+        int workers = Math.min(parallelism, files.size() / MIN_FILES_PER_WORKER);
+        if ((workers <= 1) && ((context == this.context) || (scheduler == null))) {
+            parse(files, context, job, resolveBindings);
+            return;
+        } else if (workers <= 1) {
+            // 语法解析阶段没有回调, 后台解析分批进行, 让交互任务在两批之间也能执行
+            for (int i = 0; i < files.size(); i += MIN_FILES_PER_WORKER) {
+                parse(files.subList(i, Math.min(files.size(), i + MIN_FILES_PER_WORKER)), context, job, resolveBindings);
+                checkpoint();
+            }
+            return;
+        }
+
+        int size = (files.size() + workers - 1) / workers;
+        List<Callable<Context>> tasks = new ArrayList<>();
+        for (int i = 0; i < files.size(); i += size) {
+            List<String> slice = files.subList(i, Math.min(files.size(), i + size));
+            tasks.add(() -> {
+                Context partial = createContext();
+                parse(slice, partial, job, resolveBindings);
+                return partial;
+            });
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            List<Future<Context>> futures = new ArrayList<>();
+            for (Callable<Context> task : tasks) {
+                futures.add(pool.submit(task));
+            }
+
+            for (Future<Context> future : futures) {
+                while (true) {
+                    try {
+                        context.merge(future.get(YIELD_INTERVAL, TimeUnit.MILLISECONDS));
+                        break;
+                    } catch (TimeoutException e) {
+                        if (context != this.context) {
+                            checkpoint();
+                        }
+                    }
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 解析源代码文件并将符号添加到上下文
+     * <p>
+     * 语法解析器先解析全部文件, 再逐个文件解析绑定并回调, 因此第一次回调前的时间计为语法解析,
+     * 此后两次回调之间的时间计为该文件的绑定解析, 回调中的时间计为符号收集. 不解析绑定时逐个文件解析并回调,
+     * 回调之间的时间都计为语法解析.
+     *
+     * @param files           源代码文件路径列表
+     * @param context         上下文
+     * @param job             分析任务, 每解析一个文件报告一次进度, 已取消时中止解析; 可为空
+     * @param resolveBindings 是否解析绑定, 否则只收集大纲
+     */
+    private void parse(List<String> files, Context context, AnalysisJob job, boolean resolveBindings) {
+        if (files.isEmpty()) {
+            return;
+        }
+
+        String[] encodings = new String[files.size()];
+        Arrays.fill(encodings, "UTF-8");
+
+        AnalysisProfiler profiler = this.profiler;
+        long startTime = System.nanoTime();
+        FileASTRequestor requestor = new FileASTRequestor() {
+            /**
+             * 上一次回调结束时间, 为0时尚未回调
+             */
+            private long lastTime;
+
+            @Override
+            public void acceptAST(String sourceFilePath, CompilationUnit cu) {
+                checkCancelled(job);
+                long begin = System.nanoTime();
+                long resolveTime = (lastTime == 0) ? 0 : begin - lastTime;
+                if ((lastTime == 0) || !resolveBindings) {
+                    profiler.add(AnalysisProfiler.Phase.PARSE, begin - ((lastTime == 0) ? startTime : lastTime));
+                } else {
+                    profiler.add(AnalysisProfiler.Phase.RESOLVE, resolveTime);
+                }
+
+                context.setRootPath(rootPath);
+                context.beginFile(sourceFilePath.replace('\\', '/'), cu);
+                cu.accept(resolveBindings ? new Visitor(context) : new OutlineVisitor(context));
+                String sourcePath = context.getBuilder().getSourcePath();
+                int count = context.getBuilder().size();
+                context.endFile();
+                if (job != null) {
+                    job.addParsedFile();
+                }
+
+                long end = System.nanoTime();
+                profiler.add(AnalysisProfiler.Phase.VISIT, end - begin);
+                profiler.addFile(sourcePath, resolveTime, end - begin, count);
+
+                // 交互任务的执行时间不计入下一个文件
+                if (context != Analyzer.this.context) {
+                    checkpoint();
+                }
+                lastTime = System.nanoTime();
+            }
+        };
+        String[] bindingKeys = new String[]{};
+
+        IProgressMonitor monitor = (job == null) ? null : new NullProgressMonitor() {
+            @Override
+            public boolean isCanceled() {
+                return job.isCancelled();
+            }
+        };
+
+        createParser(resolveBindings).createASTs(files.toArray(new String[files.size()]), encodings, bindingKeys, requestor, monitor);
+    }
+
+    /**
+     * 创建语法解析器
+     *
+     * @param resolveBindings 是否解析绑定, 否则跳过方法体只解析声明
+     * @return 语法解析器
+     */
+    private ASTParser createParser(boolean resolveBindings) {
+        Map<String, String> options = JavaCore.getOptions();
+        options.put(JavaCore.COMPILER_COMPLIANCE, JavaCore.VERSION_11);
+        options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, JavaCore.VERSION_11);
+        options.put(JavaCore.COMPILER_SOURCE, JavaCore.VERSION_11);
+
+        final ASTParser parser = ASTParser.newParser(AST.JLS11);
+        parser.setResolveBindings(resolveBindings);
+        parser.setBindingsRecovery(resolveBindings);
+        parser.setIgnoreMethodBodies(!resolveBindings);
+        parser.setStatementsRecovery(true);
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        parser.setCompilerOptions(options);
+        String[] classPathEntries = new String[classPath.length + 1];
+        classPathEntries[0] = rootPath;
+        System.arraycopy(classPath, 0, classPathEntries, 1, classPath.length);
+        parser.setEnvironment(classPathEntries, new String[]{rootPath}, new String[]{"UTF-8"}, true);
+
+        return parser;
     }
 }
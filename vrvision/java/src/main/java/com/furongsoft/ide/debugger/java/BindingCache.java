@@ -0,0 +1,163 @@
+package com.furongsoft.ide.debugger.java;
+
+import com.furongsoft.ide.debugger.entities.BindingCacheMetrics;
+
+import java.util.*;
+
+/**
+ * 绑定缓存
+ * <p>
+ * 按查询顺序记录已解析绑定的文件, 已解析文件超过上限时淘汰最久未查询的文件, 分析后从未查询过的文件最先淘汰.
+ * 淘汰的文件只保留大纲, 再次查询时重新解析绑定. 查询线程不加分析器锁访问, 自身以对象锁保护.
+ *
+ * @author Alex
+ */
+public class BindingCache {
+    /**
+     * 已解析绑定的文件数量上限
+     */
+    private int capacity;
+
+    /**
+     * 最近查询的文件: 源代码相对路径, 按访问顺序排列
+     */
+    private final LinkedHashMap<String, Boolean> recentFiles = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 命中次数
+     */
+    private long hits;
+
+    /**
+     * 未命中次数
+     */
+    private long misses;
+
+    /**
+     * 淘汰的文件数量
+     */
+    private long evictions;
+
+    /**
+     * 重新解析次数
+     */
+    private long rebuilds;
+
+    /**
+     * 重新解析总耗时(纳秒)
+     */
+    private long rebuildTime;
+
+    /**
+     * 重新解析最长耗时(纳秒)
+     */
+    private long maxRebuildTime;
+
+    public BindingCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * 设置已解析绑定的文件数量上限
+     *
+     * @param capacity 文件数量上限
+     */
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * 获取已解析文件数量上限
+     *
+     * @return 文件数量上限
+     */
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 记录查询
+     *
+     * @param sourcePath 源代码相对路径
+     * @param resolved   文件是否已解析绑定
+     */
+    public synchronized void access(String sourcePath, boolean resolved) {
+        if (resolved) {
+            hits++;
+        } else {
+            misses++;
+        }
+
+        recentFiles.put(sourcePath, Boolean.TRUE);
+    }
+
+    /**
+     * 记录重新解析
+     *
+     * @param nanos 耗时(纳秒)
+     */
+    public synchronized void addRebuild(long nanos) {
+        rebuilds++;
+        rebuildTime += nanos;
+        maxRebuildTime = Math.max(maxRebuildTime, nanos);
+    }
+
+    /**
+     * 淘汰超出上限的文件
+     *
+     * @param context 上下文
+     * @return 淘汰的源代码相对路径列表
+     */
+    public synchronized List<String> evict(Context context) {
+        Set<String> unresolvedFiles = context.getUnresolvedFiles();
+        int excess = context.getFiles().size() - unresolvedFiles.size() - capacity;
+        if (excess <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<String> result = new ArrayList<>();
+        recentFiles.keySet().retainAll(context.getFiles().keySet());
+        for (String sourcePath : context.getFiles().keySet()) {
+            if ((result.size() < excess) && !recentFiles.containsKey(sourcePath) && !unresolvedFiles.contains(sourcePath)) {
+                result.add(sourcePath);
+            }
+        }
+
+        Iterator<String> iterator = recentFiles.keySet().iterator();
+        while ((result.size() < excess) && iterator.hasNext()) {
+            String sourcePath = iterator.next();
+            if (!unresolvedFiles.contains(sourcePath)) {
+                result.add(sourcePath);
+            }
+        }
+
+        for (String sourcePath : result) {
+            context.evictFile(sourcePath);
+            recentFiles.remove(sourcePath);
+        }
+        evictions += result.size();
+
+        return result;
+    }
+
+    /**
+     * 生成统计信息
+     *
+     * @param snapshot 当前快照
+     * @return 统计信息
+     */
+    public synchronized BindingCacheMetrics toMetrics(Snapshot snapshot) {
+        BindingCacheMetrics metrics = new BindingCacheMetrics();
+        metrics.setCapacity(capacity);
+        metrics.setUnresolvedFiles(snapshot.getUnresolvedFiles().size());
+        metrics.setResolvedFiles(snapshot.getFiles().size() - metrics.getUnresolvedFiles());
+        metrics.setHits(hits);
+        metrics.setMisses(misses);
+        metrics.setEvictions(evictions);
+        metrics.setRebuilds(rebuilds);
+        metrics.setRebuildTime(rebuildTime / 1000);
+        metrics.setMaxRebuildTime(maxRebuildTime / 1000);
+
+        return metrics;
+    }
+}
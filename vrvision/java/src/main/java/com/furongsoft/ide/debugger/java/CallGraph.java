@@ -0,0 +1,123 @@
+package com.furongsoft.ide.debugger.java;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 方法调用图
+ * <p>
+ * 节点为方法符号类型缩写序号, 调用方和被调用方分别以邻接数组存储: 节点i的邻接节点为 targets[offsets[i] .. offsets[i + 1]).
+ * 调用边来自各文件符号表, 建立后不再修改, 查询无需重新解析源代码.
+ *
+ * @author Alex
+ */
+public class CallGraph {
+    /**
+     * 被调用方起始偏移列表
+     */
+    private final int[] calleeOffsets;
+
+    /**
+     * 被调用方列表
+     */
+    private final int[] callees;
+
+    /**
+     * 调用方起始偏移列表
+     */
+    private final int[] callerOffsets;
+
+    /**
+     * 调用方列表
+     */
+    private final int[] callers;
+
+    public CallGraph(Collection<FileSymbols> files) {
+        int count = 0;
+        for (FileSymbols fileSymbols : files) {
+            count += fileSymbols.getCalls().length;
+        }
+
+        long[] edges = new long[count];
+        long[] reversed = new long[count];
+        int size = 0;
+        int nodes = 0;
+        for (FileSymbols fileSymbols : files) {
+            for (long edge : fileSymbols.getCalls()) {
+                int caller = (int) (edge >>> 32);
+                int callee = (int) edge;
+                edges[size] = edge;
+                reversed[size++] = ((long) callee << 32) | caller;
+                nodes = Math.max(nodes, Math.max(caller, callee) + 1);
+            }
+        }
+
+        calleeOffsets = new int[nodes + 1];
+        callees = createAdjacency(edges, calleeOffsets);
+        callerOffsets = new int[nodes + 1];
+        callers = createAdjacency(reversed, callerOffsets);
+    }
+
+    /**
+     * 获取方法调用的方法
+     *
+     * @param method 方法符号类型缩写序号
+     * @return 被调用方法符号类型缩写序号列表
+     */
+    public int[] getCallees(int method) {
+        return getAdjacency(method, calleeOffsets, callees);
+    }
+
+    /**
+     * 获取调用方法的方法或类型
+     *
+     * @param method 方法符号类型缩写序号
+     * @return 调用方符号类型缩写序号列表
+     */
+    public int[] getCallers(int method) {
+        return getAdjacency(method, callerOffsets, callers);
+    }
+
+    /**
+     * 建立邻接数组
+     *
+     * @param edges   边列表: 起点 &lt;&lt; 32 | 终点
+     * @param offsets 起始偏移列表, 长度为节点数 + 1
+     * @return 终点列表
+     */
+    static int[] createAdjacency(long[] edges, int[] offsets) {
+        Arrays.sort(edges);
+        int[] result = new int[edges.length];
+        int size = 0;
+        for (int i = 0; i < edges.length; ++i) {
+            if ((i > 0) && (edges[i] == edges[i - 1])) {
+                continue;
+            }
+
+            offsets[(int) (edges[i] >>> 32) + 1]++;
+            result[size++] = (int) edges[i];
+        }
+
+        for (int i = 1; i < offsets.length; ++i) {
+            offsets[i] += offsets[i - 1];
+        }
+
+        return (size == result.length) ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * 获取邻接节点
+     *
+     * @param node    节点
+     * @param offsets 起始偏移列表
+     * @param targets 终点列表
+     * @return 邻接节点列表
+     */
+    private static int[] getAdjacency(int node, int[] offsets, int[] targets) {
+        if ((node < 0) || (node + 1 >= offsets.length)) {
+            return new int[0];
+        }
+
+        return Arrays.copyOfRange(targets, offsets[node], offsets[node + 1]);
+    }
+}
@@ -0,0 +1,748 @@
+package com.furongsoft.ide.debugger.java;
+
+import com.furongsoft.ide.debugger.entities.Symbol;
+
+import java.util.*;
+
+/**
+ * 代码补全
+ * <p>
+ * 根据光标所在行的文本确定已输入的名称前缀和接收者表达式. 有接收者时, 按局部变量、成员变量和方法返回值的类型逐段推导接收者类型,
+ * 返回该类型及其超类型的成员; 否则返回光标所在方法中已声明的局部变量、所在类型的成员和名称匹配的类型.
+ * 成员取自文件符号表的成员表和类库索引, 不重新解析绑定. 超过时间预算时停止收集, 返回已得到的结果.
+ *
+ * @author Alex
+ */
+public class CompletionEngine {
+    /**
+     * 时间预算(纳秒)
+     */
+    private static final long TIME_BUDGET = 20_000_000L;
+
+    /**
+     * 局部变量得分
+     */
+    private static final int SCORE_LOCAL = 3;
+
+    /**
+     * 成员得分
+     */
+    private static final int SCORE_MEMBER = 2;
+
+    /**
+     * 类型得分
+     */
+    private static final int SCORE_TYPE = 1;
+
+    /**
+     * 所有类型的根类型
+     */
+    private static final String OBJECT_TYPE = "Ljava/lang/Object;";
+
+    /**
+     * 符号表快照
+     */
+    private final Snapshot snapshot;
+
+    /**
+     * 字符串表
+     */
+    private final StringTable strings;
+
+    /**
+     * 截止时间(纳秒)
+     */
+    private final long deadline;
+
+    /**
+     * 候选项: 符号类型缩写 -> 候选项
+     */
+    private final Map<String, Candidate> candidates = new HashMap<>();
+
+    /**
+     * 名称前缀
+     */
+    private String prefix = "";
+
+    public CompletionEngine(Snapshot snapshot) {
+        this.snapshot = snapshot;
+        this.strings = snapshot.getStrings();
+        this.deadline = System.nanoTime() + TIME_BUDGET;
+    }
+
+    /**
+     * 获取补全候选项
+     *
+     * @param sourcePath   源代码路径
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @param lineText     光标所在行的当前文本, 可为空
+     * @param limit        最多返回的候选项数量
+     * @return 按匹配程度排序的候选符号列表
+     */
+    public List<Symbol> complete(String sourcePath, int lineNumber, int columnNumber, String lineText, int limit) {
+        FileSymbols fileSymbols = snapshot.getFiles().get(sourcePath);
+        if ((fileSymbols == null) || (limit <= 0)) {
+            return new ArrayList<>();
+        }
+
+        // 正在编辑的行可能比分析时更长, 列号超出时取行尾
+        int[] lineStarts = fileSymbols.getLineTable().getLineStarts();
+        if ((lineNumber < 1) || (lineNumber > lineStarts.length)) {
+            return new ArrayList<>();
+        }
+        int lineEnd = (lineNumber < lineStarts.length) ? lineStarts[lineNumber] - 1 : Integer.MAX_VALUE;
+        int position = Math.min(lineStarts[lineNumber - 1] + Math.max(0, columnNumber), lineEnd);
+
+        String text = (lineText == null) ? "" : lineText.substring(0, Math.min(Math.max(0, columnNumber), lineText.length()));
+        int begin = text.length();
+        while ((begin > 0) && Character.isJavaIdentifierPart(text.charAt(begin - 1))) {
+            begin--;
+        }
+        prefix = text.substring(begin);
+
+        Scope scope = new Scope(fileSymbols, position);
+        int dot = begin;
+        while ((dot > 0) && Character.isWhitespace(text.charAt(dot - 1))) {
+            dot--;
+        }
+
+        if ((dot > 0) && (text.charAt(dot - 1) == '.')) {
+            String type = resolveReceiver(getReceiver(text, dot - 1), scope);
+            if (type != null) {
+                addMembers(type, SCORE_MEMBER);
+            }
+        } else {
+            addLocals(scope);
+            for (int i = scope.types.size() - 1; i >= 0; --i) {
+                addMembers(scope.types.get(i), SCORE_MEMBER);
+            }
+            addTypes(limit);
+        }
+
+        List<Candidate> list = new ArrayList<>(candidates.values());
+        Collections.sort(list);
+
+        List<Symbol> result = new ArrayList<>();
+        for (int i = 0; (i < list.size()) && (i < limit); ++i) {
+            result.add(list.get(i).symbol);
+        }
+
+        return result;
+    }
+
+    /**
+     * 添加作用域中已声明的局部变量
+     *
+     * @param scope 作用域
+     */
+    private void addLocals(Scope scope) {
+        Map<String, Integer> locals = scope.getLocals();
+        for (Map.Entry<String, Integer> entry : locals.entrySet()) {
+            int score = getMatchScore(entry.getKey());
+            if (score > 0) {
+                add(scope.fileSymbols.getSymbol(entry.getValue(), strings), score, SCORE_LOCAL);
+            }
+        }
+    }
+
+    /**
+     * 添加类型的成员
+     *
+     * @param type 类型缩写
+     * @param kind 种类得分
+     */
+    private void addMembers(String type, int kind) {
+        for (Member member : getMembers(type)) {
+            if (isTimeout()) {
+                return;
+            }
+
+            int score = getMatchScore(member.name);
+            if (score > 0) {
+                add(member.getSymbol(), score, kind);
+            }
+        }
+    }
+
+    /**
+     * 添加名称匹配的类型
+     *
+     * @param limit 最多返回的候选项数量
+     */
+    private void addTypes(int limit) {
+        if (prefix.isEmpty() || isTimeout()) {
+            return;
+        }
+
+        for (Symbol symbol : snapshot.searchSymbols(prefix, limit * 4)) {
+            if (symbol.getSubType() != Symbol.SYMBOL_SUB_TYPE_TYPE) {
+                continue;
+            }
+
+            int score = getMatchScore(symbol.getName());
+            if (score > 0) {
+                add(symbol, score, SCORE_TYPE);
+            }
+        }
+    }
+
+    /**
+     * 添加候选项
+     *
+     * @param symbol 符号
+     * @param score  匹配得分
+     * @param kind   种类得分
+     */
+    private void add(Symbol symbol, int score, int kind) {
+        candidates.putIfAbsent(symbol.getKey(), new Candidate(symbol, score * 10 + kind));
+    }
+
+    /**
+     * 推导接收者类型
+     *
+     * @param receiver 接收者表达式各段, 方法调用以"()"结尾
+     * @param scope    作用域
+     * @return 类型缩写(不含类型参数), 无法推导时返回null
+     */
+    private String resolveReceiver(List<String> receiver, Scope scope) {
+        if (receiver.isEmpty()) {
+            return null;
+        }
+
+        String first = receiver.get(0);
+        String type;
+        if (first.equals("this")) {
+            type = scope.types.isEmpty() ? null : scope.types.get(scope.types.size() - 1);
+        } else if (first.startsWith("new ")) {
+            type = resolveType(first.substring(4));
+        } else {
+            type = resolveName(first, scope);
+        }
+
+        for (int i = 1; (i < receiver.size()) && (type != null); ++i) {
+            type = getMemberType(type, receiver.get(i));
+        }
+
+        return type;
+    }
+
+    /**
+     * 推导名称的类型, 依次查找局部变量、所在类型及外部类型的成员和类型名称
+     *
+     * @param name  名称, 方法调用以"()"结尾
+     * @param scope 作用域
+     * @return 类型缩写(不含类型参数), 无法推导时返回null
+     */
+    private String resolveName(String name, Scope scope) {
+        if (!name.endsWith("()")) {
+            Integer local = scope.getLocals().get(name);
+            if (local != null) {
+                int valueType = scope.fileSymbols.getValueTypes()[local];
+                return (valueType < 0) ? null : getTypeKey(strings.get(valueType));
+            }
+        }
+
+        for (int i = scope.types.size() - 1; i >= 0; --i) {
+            String type = getMemberType(scope.types.get(i), name);
+            if (type != null) {
+                return type;
+            }
+        }
+
+        if (name.endsWith("()")) {
+            return null;
+        }
+
+        // 静态成员: Test1.foo
+        return resolveType(name);
+    }
+
+    /**
+     * 按名称查找类型, 先查找源代码中声明的类型, 再查找类库中隐式导入的java.lang包
+     *
+     * @param name 类型名称
+     * @return 类型缩写(不含类型参数), 不存在时返回null
+     */
+    private String resolveType(String name) {
+        for (Symbol symbol : snapshot.searchSymbols(name, 16)) {
+            if ((symbol.getSubType() == Symbol.SYMBOL_SUB_TYPE_TYPE) && symbol.getName().equals(name)) {
+                return getTypeKey(symbol.getKey());
+            }
+        }
+
+        String type = "Ljava/lang/" + name + ";";
+        for (LibraryIndex library : snapshot.getLibraries()) {
+            if (library.getSubType(type) == Symbol.SYMBOL_SUB_TYPE_TYPE) {
+                return type;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * 获取成员的类型
+     *
+     * @param type 类型缩写
+     * @param name 成员名称, 方法调用以"()"结尾
+     * @return 成员变量类型或方法返回值类型, 不存在时返回null
+     */
+    private String getMemberType(String type, String name) {
+        boolean call = name.endsWith("()");
+        String memberName = call ? name.substring(0, name.length() - 2) : name;
+        int subType = call ? Symbol.SYMBOL_SUB_TYPE_METHOD : Symbol.SYMBOL_SUB_TYPE_MEMBER_VARIABLE;
+        for (Member member : getMembers(type)) {
+            if ((member.subType == subType) && member.name.equals(memberName)) {
+                String valueType = member.getValueType();
+                return (valueType == null) ? null : getTypeKey(valueType);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * 获取类型的成员, 包括从超类和接口继承的成员
+     * <p>
+     * 按广度优先依次遍历类型及其超类型, 最后遍历java.lang.Object. 每个类型先查找源代码中的声明, 再查找类库;
+     * 源代码类型的超类型取自声明文件的超类型表, 类库类型的超类型取自类库索引. 被子类型覆盖的成员不重复返回.
+     *
+     * @param type 类型缩写(不含类型参数)
+     * @return 成员列表
+     */
+    private List<Member> getMembers(String type) {
+        List<Member> result = new ArrayList<>();
+        Set<String> signatures = new HashSet<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        visited.add(type);
+        queue.add(type);
+        while (!queue.isEmpty() && !isTimeout()) {
+            String current = queue.poll();
+            List<Member> members = new ArrayList<>();
+            List<String> supertypes = new ArrayList<>();
+            FileSymbols fileSymbols = getDeclarationFile(current);
+            if (fileSymbols != null) {
+                for (int i : fileSymbols.getMembers(current, strings)) {
+                    members.add(new Member(fileSymbols, i));
+                }
+
+                // Lsub/Box<TT;>; -> Lsub/Base<TT;>; 按不含类型参数的类型缩写匹配
+                int[] pairs = fileSymbols.getSupertypes();
+                for (int i = 0; i < pairs.length; i += 2) {
+                    if (LibraryIndex.eraseType(strings.get(pairs[i])).equals(current)) {
+                        supertypes.add(LibraryIndex.eraseType(strings.get(pairs[i + 1])));
+                    }
+                }
+            } else {
+                for (LibraryIndex library : snapshot.getLibraries()) {
+                    if (library.getSubType(current) == Symbol.SYMBOL_SUB_TYPE_TYPE) {
+                        for (Symbol symbol : library.getMembers(current)) {
+                            members.add(new Member(symbol));
+                        }
+                        supertypes.addAll(library.getSupertypes(current));
+                        break;
+                    }
+                }
+            }
+
+            // 同一类型中的重载方法都保留, 只忽略与子类型成员签名相同的成员
+            List<String> added = new ArrayList<>();
+            for (Member member : members) {
+                String signature = member.getSignature();
+                if (!signatures.contains(signature)) {
+                    result.add(member);
+                    added.add(signature);
+                }
+            }
+            signatures.addAll(added);
+
+            for (String supertype : supertypes) {
+                if (visited.add(supertype)) {
+                    queue.add(supertype);
+                }
+            }
+
+            // 未声明超类的类型继承java.lang.Object
+            if (queue.isEmpty() && visited.add(OBJECT_TYPE)) {
+                queue.add(OBJECT_TYPE);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 获取声明类型的文件符号表
+     *
+     * @param type 类型缩写(不含类型参数)
+     * @return 文件符号表, 不存在时返回null
+     */
+    private FileSymbols getDeclarationFile(String type) {
+        int key = strings.find(type);
+        int[] declarationFiles = snapshot.getDeclarationFiles();
+        if ((key >= 0) && (key < declarationFiles.length) && (declarationFiles[key] != 0)) {
+            return snapshot.getFiles().get(strings.get(declarationFiles[key] - 1));
+        }
+
+        // 泛型类型的声明缩写包含类型参数, 按顶层类型查找声明文件: Lsub/Box$Item; -> Lsub/Box
+        int end = 0;
+        while ((end < type.length()) && (type.charAt(end) != ';') && (type.charAt(end) != '$')) {
+            end++;
+        }
+
+        int stem = strings.find(type.substring(0, end));
+        if (stem < 0) {
+            return null;
+        }
+
+        for (FileSymbols fileSymbols : snapshot.getFiles().values()) {
+            if (isTimeout()) {
+                return null;
+            }
+
+            if ((Arrays.binarySearch(fileSymbols.getDeclaredTypes(), stem) >= 0) && (fileSymbols.getMembers(type, strings).length > 0)) {
+                return fileSymbols;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * 是否超过时间预算
+     *
+     * @return 是否超过
+     */
+    private boolean isTimeout() {
+        return System.nanoTime() > deadline;
+    }
+
+    /**
+     * 计算名称与前缀的匹配得分
+     *
+     * @param name 名称
+     * @return 得分: 区分大小写的前缀为3, 不区分大小写的前缀为2, 驼峰缩写为1, 不匹配为0
+     */
+    private int getMatchScore(String name) {
+        if (name.startsWith(prefix)) {
+            return 3;
+        }
+
+        if (name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+            return 2;
+        }
+
+        return matchCamelCase(name, prefix) ? 1 : 0;
+    }
+
+    /**
+     * 驼峰缩写匹配, 例如 gFN 匹配 getFileName
+     *
+     * @param name   名称
+     * @param prefix 前缀
+     * @return 是否匹配
+     */
+    private static boolean matchCamelCase(String name, String prefix) {
+        if (name.isEmpty() || (Character.toLowerCase(name.charAt(0)) != Character.toLowerCase(prefix.charAt(0)))) {
+            return false;
+        }
+
+        int j = 1;
+        for (int i = 1; i < prefix.length(); ++i) {
+            char c = Character.toLowerCase(prefix.charAt(i));
+            if ((j < name.length()) && (Character.toLowerCase(name.charAt(j)) == c)) {
+                j++;
+                continue;
+            }
+
+            while ((j < name.length()) && !(Character.isUpperCase(name.charAt(j)) && (Character.toLowerCase(name.charAt(j)) == c))) {
+                j++;
+            }
+            if (j == name.length()) {
+                return false;
+            }
+            j++;
+        }
+
+        return true;
+    }
+
+    /**
+     * 解析接收者表达式
+     *
+     * @param text 行文本
+     * @param dot  接收者后的点号位置
+     * @return 接收者表达式各段, 如 a.b().c -> [a, b(), c], new A().b -> [new A, b]; 无法解析时返回空列表
+     */
+    private static List<String> getReceiver(String text, int dot) {
+        LinkedList<String> result = new LinkedList<>();
+        int end = dot;
+        while (true) {
+            while ((end > 0) && Character.isWhitespace(text.charAt(end - 1))) {
+                end--;
+            }
+
+            // 跳过方法调用的参数: foo(a, bar(b)) -> foo()
+            boolean call = false;
+            if ((end > 0) && (text.charAt(end - 1) == ')')) {
+                int depth = 0;
+                int i = end - 1;
+                for (; i >= 0; --i) {
+                    if (text.charAt(i) == ')') {
+                        depth++;
+                    } else if ((text.charAt(i) == '(') && (--depth == 0)) {
+                        break;
+                    }
+                }
+                if (i < 0) {
+                    return new LinkedList<>();
+                }
+                end = i;
+                call = true;
+            }
+
+            int begin = end;
+            while ((begin > 0) && Character.isJavaIdentifierPart(text.charAt(begin - 1))) {
+                begin--;
+            }
+            if (begin == end) {
+                return new LinkedList<>();
+            }
+
+            String name = text.substring(begin, end);
+            end = begin;
+            while ((end > 0) && Character.isWhitespace(text.charAt(end - 1))) {
+                end--;
+            }
+
+            if (call && (end >= 3) && text.startsWith("new", end - 3) && ((end == 3) || !Character.isJavaIdentifierPart(text.charAt(end - 4)))) {
+                result.addFirst("new " + name);
+                return result;
+            }
+
+            result.addFirst(name + (call ? "()" : ""));
+            if ((end == 0) || (text.charAt(end - 1) != '.')) {
+                return result;
+            }
+            end--;
+        }
+    }
+
+    /**
+     * 获取类型缩写并去除类型参数
+     *
+     * @param signature 类型签名
+     * @return 类型缩写, 基本类型、数组和类型变量返回null
+     */
+    private static String getTypeKey(String signature) {
+        if (signature.isEmpty() || (signature.charAt(0) != 'L')) {
+            return null;
+        }
+
+        return LibraryIndex.eraseType(signature.substring(0, LibraryIndex.skipType(signature, 0)));
+    }
+
+    /**
+     * 作用域
+     */
+    private class Scope {
+        /**
+         * 文件符号表
+         */
+        private final FileSymbols fileSymbols;
+
+        /**
+         * 光标位置
+         */
+        private final int position;
+
+        /**
+         * 包含光标的方法声明符号序号, 不存在时为-1
+         */
+        private int method = -1;
+
+        /**
+         * 包含光标的类型缩写列表, 由外到内
+         */
+        private final List<String> types = new ArrayList<>();
+
+        /**
+         * 已声明的局部变量: 名称 -> 符号序号
+         */
+        private Map<String, Integer> locals;
+
+        private Scope(FileSymbols fileSymbols, int position) {
+            this.fileSymbols = fileSymbols;
+            this.position = position;
+
+            int[] positions = fileSymbols.getPositions();
+            int[] lengths = fileSymbols.getLengths();
+            byte[] types = fileSymbols.getTypes();
+            byte[] subTypes = fileSymbols.getSubTypes();
+            for (int i = 0; (i < positions.length) && (positions[i] <= position); ++i) {
+                if ((types[i] != Symbol.SYMBOL_TYPE_DECLARATION) || (position >= positions[i] + lengths[i])) {
+                    continue;
+                }
+
+                if (subTypes[i] == Symbol.SYMBOL_SUB_TYPE_METHOD) {
+                    method = i;
+                } else if (subTypes[i] == Symbol.SYMBOL_SUB_TYPE_TYPE) {
+                    this.types.add(getTypeKey(strings.get(fileSymbols.getKeys()[i])));
+                }
+            }
+        }
+
+        /**
+         * 获取光标前已声明的局部变量, 同名时取最近的声明
+         *
+         * @return 局部变量: 名称 -> 符号序号
+         */
+        private Map<String, Integer> getLocals() {
+            if (locals != null) {
+                return locals;
+            }
+
+            locals = new HashMap<>();
+            if (method < 0) {
+                return locals;
+            }
+
+            String owner = strings.get(fileSymbols.getKeys()[method]) + '#';
+            int[] positions = fileSymbols.getPositions();
+            byte[] types = fileSymbols.getTypes();
+            byte[] subTypes = fileSymbols.getSubTypes();
+            for (int i = method + 1; (i < positions.length) && (positions[i] < position); ++i) {
+                if ((types[i] == Symbol.SYMBOL_TYPE_DECLARATION) && (subTypes[i] == Symbol.SYMBOL_SUB_TYPE_LOCAL_VARIABLE)
+                        && strings.get(fileSymbols.getKeys()[i]).startsWith(owner)) {
+                    locals.put(strings.get(fileSymbols.getNames()[i]), i);
+                }
+            }
+
+            return locals;
+        }
+    }
+
+    /**
+     * 成员
+     */
+    private class Member {
+        /**
+         * 名称
+         */
+        private final String name;
+
+        /**
+         * 子类型
+         */
+        private final int subType;
+
+        /**
+         * 文件符号表, 类库成员为空
+         */
+        private final FileSymbols fileSymbols;
+
+        /**
+         * 文件内符号序号
+         */
+        private final int index;
+
+        /**
+         * 类库成员符号
+         */
+        private final Symbol symbol;
+
+        private Member(FileSymbols fileSymbols, int index) {
+            this.name = strings.get(fileSymbols.getNames()[index]);
+            this.subType = fileSymbols.getSubTypes()[index];
+            this.fileSymbols = fileSymbols;
+            this.index = index;
+            this.symbol = null;
+        }
+
+        private Member(Symbol symbol) {
+            this.name = symbol.getName();
+            this.subType = symbol.getSubType();
+            this.fileSymbols = null;
+            this.index = -1;
+            this.symbol = symbol;
+        }
+
+        /**
+         * 获取符号
+         *
+         * @return 符号
+         */
+        private Symbol getSymbol() {
+            return (symbol != null) ? symbol : fileSymbols.getSymbol(index, strings);
+        }
+
+        /**
+         * 获取成员签名, 用于识别被子类型覆盖的成员
+         *
+         * @return 成员变量为"名称", 方法为"名称(参数)"
+         */
+        private String getSignature() {
+            if (subType != Symbol.SYMBOL_SUB_TYPE_METHOD) {
+                return name;
+            }
+
+            // Ljava/util/List;.get(I)Ljava/lang/Object; -> get(I)
+            String key = (symbol != null) ? symbol.getKey() : strings.get(fileSymbols.getKeys()[index]);
+            int begin = key.indexOf('(', LibraryIndex.skipType(key, 0));
+            int end = key.lastIndexOf(')');
+
+            return ((begin < 0) || (end < begin)) ? name : name + key.substring(begin, end + 1);
+        }
+
+        /**
+         * 获取成员变量类型或方法返回值类型
+         *
+         * @return 类型签名, 不存在时返回null
+         */
+        private String getValueType() {
+            if (symbol == null) {
+                int valueType = fileSymbols.getValueTypes()[index];
+                return (valueType < 0) ? null : strings.get(valueType);
+            }
+
+            // 类库成员: Ljava/util/List;.get(I)Ljava/lang/Object; -> Ljava/lang/Object;
+            int i = symbol.getKey().lastIndexOf(')');
+            return (i < 0) ? null : symbol.getKey().substring(i + 1);
+        }
+    }
+
+    /**
+     * 候选项
+     */
+    private static class Candidate implements Comparable<Candidate> {
+        /**
+         * 符号
+         */
+        private final Symbol symbol;
+
+        /**
+         * 得分
+         */
+        private final int score;
+
+        private Candidate(Symbol symbol, int score) {
+            this.symbol = symbol;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (score != other.score) {
+                return Integer.compare(other.score, score);
+            }
+
+            if (symbol.getName().length() != other.symbol.getName().length()) {
+                return Integer.compare(symbol.getName().length(), other.symbol.getName().length());
+            }
+
+            return symbol.getName().compareTo(other.symbol.getName());
+        }
+    }
+}
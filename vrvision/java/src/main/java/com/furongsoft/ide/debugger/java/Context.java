@@ -1,204 +1,521 @@
 package com.furongsoft.ide.debugger.java;
 
-import com.furongsoft.core.misc.Tracker;
 import com.furongsoft.ide.debugger.entities.Symbol;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.IBinding;
 import org.eclipse.jdt.core.dom.SimpleName;
-import org.eclipse.jdt.core.dom.VariableDeclaration;
 
-import java.util.Comparator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.*;
 
 /**
  * 上下文
+ * <p>
+ * 符号按源代码文件保存在列式文件符号表中, 字符串统一存入字符串表. 符号定义表以符号类型缩写序号为下标,
+ * 记录声明所在文件和文件内符号序号. 位置与行列号之间通过各文件的行首位置表转换, 解析完成后不保留任何编译单元或绑定对象.
+ * <p>
+ * 上下文只由分析线程修改, 查询通过 {@link #snapshot(long)} 生成的只读快照进行.
  *
  * @author Alex
  */
 @Getter
-@Setter
 public class Context {
+    /**
+     * 符号类型缩写序号缓存的最大数量
+     */
+    private static final int MAX_SYMBOL_IDS = 1 << 16;
+
     /**
      * 根目录
      */
     private String rootPath;
 
     /**
-     * 源代码路径
+     * 字符串表
+     */
+    private final StringTable strings;
+
+    /**
+     * 文件符号表
+     */
+    private Map<String, FileSymbols> files = new HashMap<>();
+
+    /**
+     * 类型引用索引: 顶层类型序号 -> 引用该类型的源代码相对路径集合
+     * <p>
+     * 只由分析线程查询依赖文件时使用, 快照不读取, 因此不与快照共享.
+     */
+    @Getter(AccessLevel.NONE)
+    private final Map<Integer, Set<String>> typeReferences = new HashMap<>();
+
+    /**
+     * 符号名称索引
+     */
+    private final NameIndex nameIndex = new NameIndex();
+
+    /**
+     * 尚未解析绑定的源代码相对路径集合, 其中的文件只有大纲或依赖的文件已变化
      */
-    private String sourcePath;
+    private Set<String> unresolvedFiles = new HashSet<>();
 
     /**
-     * 编译单元
+     * 已淘汰绑定的源代码相对路径集合, 其中的文件保留上次解析绑定时的问题, 文件或其依赖的文件变化后移除
      */
-    private CompilationUnit compilationUnit;
+    private Set<String> evictedFiles = new HashSet<>();
 
     /**
-     * 符号定义表
+     * 文件符号表、符号定义表、未解析文件集合和已淘汰文件集合是否与快照共享, 共享时修改前先复制
      */
-    private ConcurrentHashMap<String, Symbol> declarationSymbols = new ConcurrentHashMap<>();
+    private boolean shared;
 
     /**
-     * 符号引用表
+     * 类库索引列表
      */
-    private ConcurrentHashMap<String, List<Symbol>> symbols = new ConcurrentHashMap<>();
+    @Setter
+    private List<LibraryIndex> libraries = Collections.emptyList();
+
+    /**
+     * 性能统计收集器, 可为空
+     */
+    @Setter
+    private AnalysisProfiler profiler;
+
+    /**
+     * 符号定义表: 符号类型缩写序号 -> 源代码相对路径序号 + 1
+     */
+    private int[] declarationFiles = new int[0];
+
+    /**
+     * 符号定义表: 符号类型缩写序号 -> 文件内符号序号
+     */
+    private int[] declarationIndexes = new int[0];
+
+    /**
+     * 符号定义表: 符号类型缩写序号 -> 子类型 + 1
+     */
+    private int[] declarationSubTypes = new int[0];
+
+    /**
+     * 待链接的文件符号表列表
+     */
+    private final List<FileSymbols.Builder> builders = new ArrayList<>();
+
+    /**
+     * 当前文件符号表
+     */
+    private FileSymbols.Builder builder;
+
+    /**
+     * 符号类型缩写序号缓存: 绑定类型缩写 -> 符号类型缩写序号
+     */
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Integer> symbolIds = new HashMap<>();
+
+    public Context() {
+        this(new StringTable());
+    }
+
+    public Context(StringTable strings) {
+        this.strings = strings;
+    }
 
     /**
-     * 成员变量声明符号表
+     * 设置根目录, 根目录改变时符号类型缩写需要重新转换
+     *
+     * @param rootPath 根目录
      */
-    private ConcurrentHashMap<String, VariableDeclaration> memberVariables = new ConcurrentHashMap<>();
+    public void setRootPath(String rootPath) {
+        if (!Objects.equals(this.rootPath, rootPath)) {
+            symbolIds.clear();
+        }
+
+        this.rootPath = rootPath;
+    }
 
     /**
-     * 局部变量声明符号表
+     * 开始添加源代码文件的符号
+     *
+     * @param sourcePath      源代码路径
+     * @param compilationUnit 编译单元
      */
-    private ConcurrentHashMap<String, VariableDeclaration> localVariables = new ConcurrentHashMap<>();
+    public void beginFile(String sourcePath, CompilationUnit compilationUnit) {
+        String relativePath = getRelativePath(sourcePath);
+        this.builder = new FileSymbols.Builder(relativePath, strings.intern(relativePath), LineTable.create(compilationUnit),
+                ProblemTable.create(compilationUnit));
+        builders.add(builder);
+    }
 
     /**
-     * 名称符号表
+     * 结束添加源代码文件的符号
      */
-    private List<SimpleNameNode> simpleNames = new LinkedList<>();
+    public void endFile() {
+        builder = null;
+    }
 
     /**
      * 链接符号
+     * <p>
+     * 先登记待链接文件中的声明, 再将引用了成员变量或局部变量的名称符号链接为引用符号, 最后生成文件符号表.
+     * 源代码中没有声明的名称符号, 引用了类库中的成员变量时同样链接为引用符号.
      */
     public void linkSymbols() {
-        for (SimpleNameNode node : simpleNames) {
-            IBinding binding = node.getSimpleName().resolveBinding();
-            if (memberVariables.containsKey(binding.getKey())) {
-                VariableDeclaration v = memberVariables.get(binding.getKey());
-                addSymbol(new Symbol(Symbol.SYMBOL_TYPE_REFS, Symbol.SYMBOL_SUB_TYPE_MEMBER_VARIABLE, binding.getName(), binding.getKey(), node.getSimpleName().getStartPosition(), node.getSimpleName().getLength(), binding), node.getSourcePath(), node.getCompilationUnit());
-                Tracker.info(String.format("SimpleName(member): %s, (%d)", v.getName(), v.getStartPosition()));
-            } else if (localVariables.containsKey(binding.getKey())) {
-                VariableDeclaration v = localVariables.get(binding.getKey());
-                addSymbol(new Symbol(Symbol.SYMBOL_TYPE_REFS, Symbol.SYMBOL_SUB_TYPE_LOCAL_VARIABLE, binding.getName(), binding.getKey(), node.getSimpleName().getStartPosition(), node.getSimpleName().getLength(), binding), node.getSourcePath(), node.getCompilationUnit());
-                Tracker.info(String.format("SimpleName(local): %s, (%d)", v.getName(), v.getStartPosition()));
-            } else {
-                Tracker.info(String.format("SimpleName: %s, (%d)", binding.getName(), node.getSimpleName().getStartPosition()));
-            }
+        detach();
+        for (FileSymbols.Builder b : builders) {
+            b.forEachDeclaration((key, subType) -> {
+                ensureCapacity(key);
+                declarationSubTypes[key] = subType + 1;
+            });
+        }
+
+        Map<Integer, Integer> librarySubTypes = new HashMap<>();
+        for (FileSymbols.Builder b : builders) {
+            b.link(key -> {
+                int subType = (key < declarationSubTypes.length) ? declarationSubTypes[key] - 1 : -1;
+                if ((subType < 0) && !libraries.isEmpty()) {
+                    subType = librarySubTypes.computeIfAbsent(key, this::getLibrarySubType);
+                }
+                return ((subType == Symbol.SYMBOL_SUB_TYPE_MEMBER_VARIABLE) || (subType == Symbol.SYMBOL_SUB_TYPE_LOCAL_VARIABLE)) ? subType : FileSymbols.Builder.UNLINKED;
+            });
+            putFile(b.build());
         }
+
+        builders.clear();
     }
 
     /**
-     * 添加符号
+     * 合并其他上下文中待链接的文件
+     * <p>
+     * 用于并行解析, 各上下文共享字符串表且包含的源代码文件互不重叠.
      *
-     * @param symbol 符号
+     * @param other 上下文
      */
-    public void addSymbol(Symbol symbol) {
-        addSymbol(symbol, sourcePath, compilationUnit);
+    public void merge(Context other) {
+        builders.addAll(other.builders);
     }
 
     /**
-     * 添加符号
+     * 添加文件符号表并登记其中的声明
      *
-     * @param symbol          符号
-     * @param sourcePath      源代码路径
-     * @param compilationUnit 编译单元
+     * @param fileSymbols 文件符号表
      */
-    public void addSymbol(Symbol symbol, String sourcePath, CompilationUnit compilationUnit) {
-        symbol.setSourcePath(sourcePath.replace(rootPath + "/", ""));
-        symbol.setKey(getSymbolKey(symbol));
-        symbol.setLineNumber(compilationUnit.getLineNumber(symbol.getPosition()));
-        symbol.setColumnNumber(compilationUnit.getColumnNumber(symbol.getPosition()));
-
-        if (symbol.getType() == Symbol.SYMBOL_TYPE_DECLARATION) {
-            declarationSymbols.put(symbol.getKey(), symbol);
-        } else {
-            if (!symbols.containsKey(symbol.getKey())) {
-                symbols.put(symbol.getKey(), new LinkedList<>());
+    public void putFile(FileSymbols fileSymbols) {
+        removeFile(fileSymbols.getSourcePath());
+        detach();
+
+        byte[] types = fileSymbols.getTypes();
+        int[] keys = fileSymbols.getKeys();
+        for (int i = 0; i < types.length; ++i) {
+            if (types[i] == Symbol.SYMBOL_TYPE_DECLARATION) {
+                ensureCapacity(keys[i]);
+                declarationFiles[keys[i]] = fileSymbols.getPath() + 1;
+                declarationIndexes[keys[i]] = i;
+                declarationSubTypes[keys[i]] = fileSymbols.getSubTypes()[i] + 1;
             }
+        }
 
-            symbols.get(symbol.getKey()).add(symbol);
+        for (int stem : fileSymbols.getReferencedTypes()) {
+            typeReferences.computeIfAbsent(stem, k -> new HashSet<>()).add(fileSymbols.getSourcePath());
         }
+
+        files.put(fileSymbols.getSourcePath(), fileSymbols);
+        nameIndex.addFile(fileSymbols, strings);
     }
 
     /**
-     * 获取符号
+     * 删除源代码文件的所有符号
      *
-     * @param sourcePath 源代码路径
-     * @param position   位置
-     * @return 符号
+     * @param sourcePath 源代码相对路径
+     */
+    public void removeSymbols(String sourcePath) {
+        builders.removeIf(b -> b.getSourcePath().equals(sourcePath));
+        removeFile(sourcePath);
+        if (unresolvedFiles.contains(sourcePath)) {
+            detach();
+            unresolvedFiles.remove(sourcePath);
+            evictedFiles.remove(sourcePath);
+        }
+    }
+
+    /**
+     * 淘汰文件的绑定, 以大纲替换文件符号表并标记为未解析绑定
+     *
+     * @param sourcePath 源代码相对路径
+     */
+    public void evictFile(String sourcePath) {
+        FileSymbols fileSymbols = files.get(sourcePath);
+        if ((fileSymbols == null) || unresolvedFiles.contains(sourcePath)) {
+            return;
+        }
+
+        putFile(fileSymbols.toOutline());
+        unresolvedFiles.add(sourcePath);
+        evictedFiles.add(sourcePath);
+    }
+
+    /**
+     * 标记尚未解析绑定的文件
+     *
+     * @param sourcePaths 源代码相对路径列表
+     */
+    public void addUnresolvedFiles(Collection<String> sourcePaths) {
+        detach();
+        unresolvedFiles.addAll(sourcePaths);
+        evictedFiles.removeAll(sourcePaths);
+    }
+
+    /**
+     * 删除文件符号表并注销其中的声明
+     *
+     * @param sourcePath 源代码相对路径
      */
-    public Symbol getSymbol(String sourcePath, int position) {
-        List<Symbol> symbolList = new LinkedList<>();
+    private void removeFile(String sourcePath) {
+        if (!files.containsKey(sourcePath)) {
+            return;
+        }
+
+        detach();
+        FileSymbols fileSymbols = files.remove(sourcePath);
 
-        symbolList.addAll(declarationSymbols.values().stream().filter(symbol ->
-                symbol.getSourcePath().equals(sourcePath) && (position >= symbol.getPosition()) && (position <= symbol.getPosition() + symbol.getLength())
-        ).collect(Collectors.toList()));
+        nameIndex.removeFile(fileSymbols);
 
-        for (List<Symbol> list : symbols.values()) {
-            symbolList.addAll(list.stream().filter(symbol ->
-                    symbol.getSourcePath().equals(sourcePath) && (position >= symbol.getPosition()) && (position <= symbol.getPosition() + symbol.getLength())
-            ).collect(Collectors.toList()));
+        for (int stem : fileSymbols.getReferencedTypes()) {
+            Set<String> sourcePaths = typeReferences.get(stem);
+            if ((sourcePaths != null) && sourcePaths.remove(sourcePath) && sourcePaths.isEmpty()) {
+                typeReferences.remove(stem);
+            }
         }
 
-        return symbolList.stream().min(Comparator.comparing(Symbol::getLength)).orElse(null);
+        byte[] types = fileSymbols.getTypes();
+        int[] keys = fileSymbols.getKeys();
+        for (int i = 0; i < types.length; ++i) {
+            int key = keys[i];
+            if ((types[i] == Symbol.SYMBOL_TYPE_DECLARATION) && (declarationFiles[key] == fileSymbols.getPath() + 1) && (declarationIndexes[key] == i)) {
+                declarationFiles[key] = 0;
+                declarationIndexes[key] = 0;
+                declarationSubTypes[key] = 0;
+            }
+        }
     }
 
     /**
-     * 获取符号定义
+     * 获取依赖指定源代码文件中类型声明的文件列表
      *
-     * @param sourcePath 源代码路径
-     * @param position   位置
-     * @return 符号定义
+     * @param sourcePaths 源代码路径列表
+     * @return 源代码路径列表
      */
-    public Symbol getDeclarationSymbol(String sourcePath, int position) {
-        Symbol symbol = getSymbol(sourcePath, position);
-        if (symbol == null) {
-            return null;
+    public Set<String> getDependentFiles(Collection<String> sourcePaths) {
+        Set<String> result = new HashSet<>();
+        for (String sourcePath : sourcePaths) {
+            FileSymbols fileSymbols = files.get(sourcePath);
+            if (fileSymbols == null) {
+                continue;
+            }
+
+            for (int stem : fileSymbols.getDeclaredTypes()) {
+                Set<String> references = typeReferences.get(stem);
+                if (references != null) {
+                    result.addAll(references);
+                }
+            }
         }
 
-        return declarationSymbols.get(symbol.getKey());
+        result.removeAll(sourcePaths);
+
+        return result;
+    }
+
+    /**
+     * 添加符号
+     *
+     * @param type         类型
+     * @param subType      子类型
+     * @param name         名称
+     * @param key          绑定类型缩写
+     * @param position     位置
+     * @param length       长度
+     * @param namePosition 名称位置, 没有对应标识符时为-1
+     * @param valueType    值类型的绑定类型缩写, 可为空
+     */
+    public void addSymbol(int type, int subType, String name, String key, int position, int length, int namePosition, String valueType) {
+        if ((type == Symbol.SYMBOL_TYPE_DECLARATION) && (subType == Symbol.SYMBOL_SUB_TYPE_TYPE)) {
+            builder.addDeclaredType(strings.intern(getTypeStem(key)));
+        } else if (type == Symbol.SYMBOL_TYPE_REFS) {
+            builder.addReferencedType(strings.intern(getTypeStem(key)));
+        }
+
+        builder.add(type, subType, strings.intern(name), getSymbolId(key), position, length, namePosition,
+                (valueType == null) ? -1 : getSymbolId(valueType));
+    }
+
+    /**
+     * 添加直接超类或接口
+     * <p>
+     * 超类型所在文件修改后, 当前文件需要随之重新分析, 因此同时记录为引用的顶层类型.
+     *
+     * @param key          类型绑定类型缩写
+     * @param supertypeKey 超类型声明的绑定类型缩写
+     */
+    public void addSupertype(String key, String supertypeKey) {
+        builder.addReferencedType(strings.intern(getTypeStem(supertypeKey)));
+        builder.addSupertype(getSymbolId(key), getSymbolId(supertypeKey));
     }
 
     /**
      * 添加名称符号
+     * <p>
+     * 名称符号在链接时才能确定是否引用了变量, 此前以未链接状态记录.
      *
      * @param simpleName 名称符号
      */
     public void addSimpleNameNode(SimpleName simpleName) {
-        simpleNames.add(new SimpleNameNode(simpleName, sourcePath, compilationUnit));
+        IBinding binding = simpleName.resolveBinding();
+        if (binding.isRecovered()) {
+            addRecoveredBinding();
+        }
+
+        builder.addReferencedType(strings.intern(getTypeStem(binding.getKey())));
+        builder.add(Symbol.SYMBOL_TYPE_REFS, FileSymbols.Builder.UNLINKED, strings.intern(binding.getName()), getSymbolId(binding.getKey()),
+                simpleName.getStartPosition(), simpleName.getLength(), simpleName.getStartPosition(), -1);
+    }
+
+    /**
+     * 记录无法解析的绑定
+     */
+    public void addUnresolvedBinding() {
+        if (profiler != null) {
+            profiler.addUnresolvedBinding();
+        }
+    }
+
+    /**
+     * 记录恢复的绑定
+     */
+    public void addRecoveredBinding() {
+        if (profiler != null) {
+            profiler.addRecoveredBinding();
+        }
+    }
+
+    /**
+     * 生成快照
+     * <p>
+     * 快照与上下文共享当前的文件符号表、符号定义表、未解析文件集合和已淘汰文件集合, 上下文下次修改时再复制.
+     *
+     * @param version 版本
+     * @return 快照
+     */
+    public Snapshot snapshot(long version) {
+        shared = true;
+        return new Snapshot(version, strings, files, declarationFiles, declarationIndexes, libraries, nameIndex.snapshot(), unresolvedFiles, evictedFiles);
+    }
+
+    /**
+     * 与快照分离, 复制共享的文件符号表、符号定义表、未解析文件集合和已淘汰文件集合
+     */
+    private void detach() {
+        if (!shared) {
+            return;
+        }
+
+        files = new HashMap<>(files);
+        declarationFiles = declarationFiles.clone();
+        declarationIndexes = declarationIndexes.clone();
+        declarationSubTypes = declarationSubTypes.clone();
+        unresolvedFiles = new HashSet<>(unresolvedFiles);
+        evictedFiles = new HashSet<>(evictedFiles);
+        shared = false;
     }
 
     /**
-     * 获取符号类型缩写
+     * 获取类库中声明的子类型
      *
-     * @param symbol 符号
-     * @return 类型缩写
+     * @param key 符号类型缩写序号
+     * @return 子类型, 不存在时返回-1
      */
-    private String getSymbolKey(Symbol symbol) {
-        // member: L[file]~[class signature];.[name])[signature] -> [class signature].[name])[signature]
-        // local: L[file]~[class signature];.[method name][method signature]#[name] -> [class signature].[method name][method signature]#[name]
-        String key = symbol.getKey();
-        key = key.replace("\\", "/");
+    private int getLibrarySubType(int key) {
+        for (LibraryIndex library : libraries) {
+            int subType = library.getSubType(strings.get(key));
+            if (subType >= 0) {
+                return subType;
+            }
+        }
 
-        int pos1 = key.indexOf(rootPath);
-        int pos2 = key.indexOf('~');
-        if (pos2 >= 0) {
-            key = key.substring(0, pos1) + key.substring(pos2);
+        return -1;
+    }
+
+    /**
+     * 扩充符号定义表
+     *
+     * @param key 符号类型缩写序号
+     */
+    private void ensureCapacity(int key) {
+        if (key < declarationFiles.length) {
+            return;
         }
 
-        key = key.replace("/~", ".");
-        key = key.replace("~", "");
-        key = key.replaceAll("\\|[\\s\\S\\;]*;", "");
+        int capacity = Math.max(Math.max(key + 1, strings.size()), declarationFiles.length * 2);
+        declarationFiles = Arrays.copyOf(declarationFiles, capacity);
+        declarationIndexes = Arrays.copyOf(declarationIndexes, capacity);
+        declarationSubTypes = Arrays.copyOf(declarationSubTypes, capacity);
+    }
 
-        return key;
+    /**
+     * 获取源代码相对路径
+     *
+     * @param sourcePath 源代码路径
+     * @return 源代码相对路径
+     */
+    private String getRelativePath(String sourcePath) {
+        return sourcePath.replace(rootPath + "/", "");
     }
 
     /**
-     * 名称符号节点
+     * 获取符号所属的顶层类型
+     *
+     * @param key 符号类型缩写
+     * @return 顶层类型缩写
      */
-    @Getter
-    @Setter
-    @AllArgsConstructor
-    private class SimpleNameNode {
-        private SimpleName simpleName;
-        private String sourcePath;
-        private CompilationUnit compilationUnit;
+    private static String getTypeStem(String key) {
+        // Lsub/Test1;.bar(II)I#abc#0#0 -> Lsub/Test1, [Lsub/Box<TT;>; -> Lsub/Box
+        int begin = 0;
+        while ((begin < key.length()) && (key.charAt(begin) == '[')) {
+            begin++;
+        }
+
+        int end = begin;
+        while ((end < key.length()) && (key.charAt(end) != ';') && (key.charAt(end) != '<') && (key.charAt(end) != '$')) {
+            end++;
+        }
+
+        return key.substring(begin, end);
+    }
+
+    /**
+     * 获取符号类型缩写序号
+     * <p>
+     * 同一绑定在源代码中通常被引用多次, 转换结果按绑定类型缩写缓存, 缓存过大时清空.
+     *
+     * @param key 绑定类型缩写
+     * @return 符号类型缩写序号
+     */
+    private int getSymbolId(String key) {
+        long begin = System.nanoTime();
+        Integer id = symbolIds.get(key);
+        if (id == null) {
+            if (symbolIds.size() >= MAX_SYMBOL_IDS) {
+                symbolIds.clear();
+            }
+
+            id = strings.intern(SymbolKeys.ofBinding(key, rootPath));
+            symbolIds.put(key, id);
+        }
+
+        if (profiler != null) {
+            profiler.record(AnalysisProfiler.Phase.KEY, begin);
+        }
+
+        return id;
     }
 }
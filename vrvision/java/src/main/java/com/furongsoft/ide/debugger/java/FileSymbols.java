@@ -0,0 +1,665 @@
+package com.furongsoft.ide.debugger.java;
+
+import com.furongsoft.ide.debugger.entities.Diagnostic;
+import com.furongsoft.ide.debugger.entities.Symbol;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 文件符号表
+ * <p>
+ * 以列式数组保存同一源代码文件中的符号, 名称和符号类型缩写均以字符串表序号表示.
+ * 符号按起始位置升序、长度降序排列, 符号在数组中的下标即为文件内符号序号. 行号和列号由行首位置表计算, 符号对象只在查询时按需创建.
+ *
+ * @author Alex
+ */
+@Getter
+public class FileSymbols {
+    /**
+     * 源代码相对路径
+     */
+    private final String sourcePath;
+
+    /**
+     * 源代码相对路径序号
+     */
+    private final int path;
+
+    /**
+     * 类型列表
+     */
+    private final byte[] types;
+
+    /**
+     * 子类型列表
+     */
+    private final byte[] subTypes;
+
+    /**
+     * 名称序号列表
+     */
+    private final int[] names;
+
+    /**
+     * 符号类型缩写序号列表
+     */
+    private final int[] keys;
+
+    /**
+     * 位置列表
+     */
+    private final int[] positions;
+
+    /**
+     * 长度列表
+     */
+    private final int[] lengths;
+
+    /**
+     * 名称位置列表, 符号名称标识符的起始位置, 没有对应标识符时为-1
+     */
+    private final int[] namePositions;
+
+    /**
+     * 值类型列表, 变量类型或方法返回值类型的符号类型缩写序号, 其他符号为-1
+     */
+    private final int[] valueTypes;
+
+    /**
+     * 行首位置表
+     */
+    private final LineTable lineTable;
+
+    /**
+     * 问题表
+     */
+    private final ProblemTable problems;
+
+    /**
+     * 声明的顶层类型序号列表(已排序)
+     */
+    private final int[] declaredTypes;
+
+    /**
+     * 引用的顶层类型序号列表(已排序)
+     */
+    private final int[] referencedTypes;
+
+    /**
+     * 超类型列表, 每两项为一组: 类型符号类型缩写序号, 直接超类或接口声明的符号类型缩写序号
+     */
+    private final int[] supertypes;
+
+    /**
+     * 符号类型缩写序号集合(已排序)
+     */
+    private final int[] keySet;
+
+    /**
+     * 符号位置索引
+     */
+    private final SymbolIndex index;
+
+    /**
+     * 成员表: 类型缩写(不含类型参数) -> 成员变量和方法声明的符号序号列表, 首次查询时建立
+     */
+    @Getter(AccessLevel.NONE)
+    private volatile Map<String, int[]> members;
+
+    /**
+     * 调用边列表: 调用方符号类型缩写序号 &lt;&lt; 32 | 被调用方法符号类型缩写序号, 首次查询时建立
+     */
+    @Getter(AccessLevel.NONE)
+    private volatile long[] calls;
+
+    public FileSymbols(String sourcePath, int path, byte[] types, byte[] subTypes, int[] names, int[] keys, int[] positions, int[] lengths, int[] namePositions, int[] valueTypes, LineTable lineTable, ProblemTable problems, int[] declaredTypes,
+                       int[] referencedTypes, int[] supertypes) {
+        this.sourcePath = sourcePath;
+        this.path = path;
+        this.types = types;
+        this.subTypes = subTypes;
+        this.names = names;
+        this.keys = keys;
+        this.positions = positions;
+        this.lengths = lengths;
+        this.namePositions = namePositions;
+        this.valueTypes = valueTypes;
+        this.lineTable = lineTable;
+        this.problems = problems;
+        this.declaredTypes = declaredTypes;
+        this.referencedTypes = referencedTypes;
+        this.supertypes = supertypes;
+        this.keySet = distinct(keys.clone(), keys.length);
+        this.index = new SymbolIndex(positions, lengths);
+    }
+
+    /**
+     * 生成只含大纲的文件符号表
+     * <p>
+     * 保留类型、成员变量和方法的声明、声明的顶层类型和超类型, 丢弃引用和局部变量, 用于淘汰已解析绑定的文件.
+     *
+     * @return 文件符号表
+     */
+    public FileSymbols toOutline() {
+        int size = 0;
+        for (int i = 0; i < types.length; ++i) {
+            if (isOutline(i)) {
+                size++;
+            }
+        }
+
+        byte[] outlineTypes = new byte[size];
+        byte[] outlineSubTypes = new byte[size];
+        int[] outlineNames = new int[size];
+        int[] outlineKeys = new int[size];
+        int[] outlinePositions = new int[size];
+        int[] outlineLengths = new int[size];
+        int[] outlineNamePositions = new int[size];
+        int[] outlineValueTypes = new int[size];
+        for (int i = 0, j = 0; i < types.length; ++i) {
+            if (isOutline(i)) {
+                outlineTypes[j] = types[i];
+                outlineSubTypes[j] = subTypes[i];
+                outlineNames[j] = names[i];
+                outlineKeys[j] = keys[i];
+                outlinePositions[j] = positions[i];
+                outlineLengths[j] = lengths[i];
+                outlineNamePositions[j] = namePositions[i];
+                outlineValueTypes[j] = valueTypes[i];
+                j++;
+            }
+        }
+
+        return new FileSymbols(sourcePath, path, outlineTypes, outlineSubTypes, outlineNames, outlineKeys, outlinePositions, outlineLengths, outlineNamePositions, outlineValueTypes,
+                lineTable, problems, declaredTypes, new int[0], supertypes);
+    }
+
+    /**
+     * 获取符号数量
+     *
+     * @return 符号数量
+     */
+    public int size() {
+        return positions.length;
+    }
+
+    /**
+     * 获取包含指定位置的最内层符号
+     *
+     * @param position 位置
+     * @return 符号序号, 不存在时返回-1
+     */
+    public int find(int position) {
+        return index.find(position);
+    }
+
+    /**
+     * 是否包含指定符号类型缩写的符号
+     *
+     * @param key 符号类型缩写序号
+     * @return 是否包含
+     */
+    public boolean containsKey(int key) {
+        return Arrays.binarySearch(keySet, key) >= 0;
+    }
+
+    /**
+     * 获取类型中声明的成员变量和方法
+     * <p>
+     * 文件符号表不可修改, 成员表建立后在各快照间共享, 直到文件被重新分析.
+     *
+     * @param type    类型缩写(不含类型参数)
+     * @param strings 字符串表
+     * @return 符号序号列表, 按位置排序
+     */
+    public int[] getMembers(String type, StringTable strings) {
+        Map<String, int[]> table = members;
+        if (table == null) {
+            table = createMembers(strings);
+            members = table;
+        }
+
+        int[] result = table.get(type);
+
+        return (result == null) ? new int[0] : result;
+    }
+
+    /**
+     * 获取文件中的方法调用
+     * <p>
+     * 调用方为包含调用位置的最内层方法声明, 成员变量初始化等方法外的调用归属于最内层类型声明.
+     *
+     * @return 调用边列表, 已排序且无重复
+     */
+    public long[] getCalls() {
+        long[] result = calls;
+        if (result == null) {
+            result = createCalls();
+            calls = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * 获取调用方中调用指定方法的位置
+     * <p>
+     * 调用方中嵌套的方法和类型声明内的调用不属于调用方, 与 {@link #getCalls()} 一致.
+     *
+     * @param caller  调用方声明符号序号
+     * @param callee  被调用方法符号类型缩写序号
+     * @param strings 字符串表
+     * @return 方法调用符号列表
+     */
+    public List<Symbol> getCallSites(int caller, int callee, StringTable strings) {
+        List<Symbol> result = new ArrayList<>();
+        int end = positions[caller] + lengths[caller];
+        int i = caller + 1;
+        while ((i < positions.length) && (positions[i] < end)) {
+            if (isCaller(i)) {
+                int nestedEnd = positions[i] + lengths[i];
+                while ((i < positions.length) && (positions[i] < nestedEnd)) {
+                    i++;
+                }
+                continue;
+            }
+
+            if ((keys[i] == callee) && (types[i] == Symbol.SYMBOL_TYPE_REFS) && (subTypes[i] == Symbol.SYMBOL_SUB_TYPE_METHOD)) {
+                result.add(getSymbol(i, strings));
+            }
+            i++;
+        }
+
+        return result;
+    }
+
+    /**
+     * 创建符号
+     *
+     * @param i       符号序号
+     * @param strings 字符串表
+     * @return 符号
+     */
+    public Symbol getSymbol(int i, StringTable strings) {
+        return new Symbol(types[i], subTypes[i], strings.get(names[i]), strings.get(keys[i]), sourcePath, positions[i], lengths[i], lineTable.getLineNumber(positions[i]), lineTable.getColumnNumber(positions[i]));
+    }
+
+    /**
+     * 获取诊断信息
+     *
+     * @return 诊断信息列表, 按位置排序
+     */
+    public List<Diagnostic> getDiagnostics() {
+        List<Diagnostic> result = new ArrayList<>();
+        for (int i = 0; i < problems.size(); ++i) {
+            result.add(problems.getDiagnostic(i, sourcePath, lineTable));
+        }
+        result.sort(Comparator.comparingInt(Diagnostic::getPosition));
+
+        return result;
+    }
+
+    /**
+     * 建立调用边列表
+     *
+     * @return 调用边列表
+     */
+    private long[] createCalls() {
+        int[] stack = new int[16];
+        int top = -1;
+        long[] result = new long[16];
+        int count = 0;
+        for (int i = 0; i < positions.length; ++i) {
+            while ((top >= 0) && (positions[stack[top]] + lengths[stack[top]] <= positions[i])) {
+                top--;
+            }
+
+            if (isCaller(i)) {
+                if (top + 1 == stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[++top] = i;
+            } else if ((top >= 0) && (keys[i] >= 0) && (keys[stack[top]] >= 0) && (types[i] == Symbol.SYMBOL_TYPE_REFS) && (subTypes[i] == Symbol.SYMBOL_SUB_TYPE_METHOD)) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = ((long) keys[stack[top]] << 32) | keys[i];
+            }
+        }
+
+        Arrays.sort(result, 0, count);
+        int size = 0;
+        for (int i = 0; i < count; ++i) {
+            if ((size == 0) || (result[size - 1] != result[i])) {
+                result[size++] = result[i];
+            }
+        }
+
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * 是否可以作为调用方, 即方法或类型声明
+     *
+     * @param i 符号序号
+     * @return 是否可以作为调用方
+     */
+    private boolean isCaller(int i) {
+        return (types[i] == Symbol.SYMBOL_TYPE_DECLARATION) && ((subTypes[i] == Symbol.SYMBOL_SUB_TYPE_METHOD) || (subTypes[i] == Symbol.SYMBOL_SUB_TYPE_TYPE));
+    }
+
+    /**
+     * 建立成员表, 构造方法不作为成员
+     *
+     * @param strings 字符串表
+     * @return 成员表
+     */
+    private Map<String, int[]> createMembers(StringTable strings) {
+        Map<String, List<Integer>> lists = new HashMap<>();
+        for (int i = 0; i < keys.length; ++i) {
+            if ((types[i] != Symbol.SYMBOL_TYPE_DECLARATION) || ((subTypes[i] != Symbol.SYMBOL_SUB_TYPE_MEMBER_VARIABLE) && (subTypes[i] != Symbol.SYMBOL_SUB_TYPE_METHOD))) {
+                continue;
+            }
+
+            // LTest<TT;>;.foo()V -> LTest;
+            String key = strings.get(keys[i]);
+            int end = LibraryIndex.skipType(key, 0);
+            if ((end <= 0) || (end + 1 >= key.length()) || (key.charAt(end) != '.') || (key.charAt(end + 1) == '(')) {
+                continue;
+            }
+
+            lists.computeIfAbsent(LibraryIndex.eraseType(key.substring(0, end)), k -> new ArrayList<>()).add(i);
+        }
+
+        Map<String, int[]> result = new HashMap<>();
+        lists.forEach((type, list) -> result.put(type, list.stream().mapToInt(Integer::intValue).toArray()));
+
+        return result;
+    }
+
+    /**
+     * 排序并去除重复项
+     *
+     * @param values 列表
+     * @param size   有效长度
+     * @return 列表
+     */
+    private static int[] distinct(int[] values, int size) {
+        Arrays.sort(values, 0, size);
+        int count = 0;
+        for (int i = 0; i < size; ++i) {
+            if ((count == 0) || (values[count - 1] != values[i])) {
+                values[count++] = values[i];
+            }
+        }
+
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * 符号是否属于大纲
+     *
+     * @param i 文件内符号序号
+     * @return 是否为类型、成员变量或方法声明
+     */
+    private boolean isOutline(int i) {
+        return (types[i] == Symbol.SYMBOL_TYPE_DECLARATION) && (subTypes[i] != Symbol.SYMBOL_SUB_TYPE_LOCAL_VARIABLE);
+    }
+
+    /**
+     * 文件符号表构建器
+     * <p>
+     * 解析时按访问顺序追加符号, 名称符号先以未链接状态记录, 链接时确定子类型或丢弃.
+     */
+    public static class Builder {
+        /**
+         * 未链接的子类型
+         */
+        public static final int UNLINKED = -1;
+
+        /**
+         * 单个符号记录长度: 类型, 子类型, 名称, 符号类型缩写, 位置, 长度, 名称位置, 值类型
+         */
+        private static final int STRIDE = 8;
+
+        /**
+         * 源代码相对路径
+         */
+        @Getter
+        private final String sourcePath;
+
+        /**
+         * 源代码相对路径序号
+         */
+        private final int path;
+
+        /**
+         * 行首位置表
+         */
+        private final LineTable lineTable;
+
+        /**
+         * 问题表
+         */
+        private final ProblemTable problems;
+
+        /**
+         * 符号记录列表
+         */
+        private int[] records = new int[STRIDE * 64];
+
+        /**
+         * 符号数量
+         */
+        private int count;
+
+        /**
+         * 声明的顶层类型序号列表
+         */
+        private int[] declaredTypes = new int[4];
+
+        /**
+         * 声明的顶层类型数量
+         */
+        private int declaredTypeCount;
+
+        /**
+         * 引用的顶层类型序号列表
+         */
+        private int[] referencedTypes = new int[64];
+
+        /**
+         * 引用的顶层类型数量
+         */
+        private int referencedTypeCount;
+
+        /**
+         * 超类型列表
+         */
+        private int[] supertypes = new int[8];
+
+        /**
+         * 超类型列表有效长度
+         */
+        private int supertypeCount;
+
+        public Builder(String sourcePath, int path, LineTable lineTable, ProblemTable problems) {
+            this.sourcePath = sourcePath;
+            this.path = path;
+            this.lineTable = lineTable;
+            this.problems = problems;
+        }
+
+        /**
+         * 添加符号
+         *
+         * @param type         类型
+         * @param subType      子类型
+         * @param name         名称序号
+         * @param key          符号类型缩写序号
+         * @param position     位置
+         * @param length       长度
+         * @param namePosition 名称位置, 没有对应标识符时为-1
+         * @param valueType    值类型序号, 没有时为-1
+         */
+        public void add(int type, int subType, int name, int key, int position, int length, int namePosition, int valueType) {
+            if ((count + 1) * STRIDE > records.length) {
+                records = Arrays.copyOf(records, records.length * 2);
+            }
+
+            int offset = count++ * STRIDE;
+            records[offset] = type;
+            records[offset + 1] = subType;
+            records[offset + 2] = name;
+            records[offset + 3] = key;
+            records[offset + 4] = position;
+            records[offset + 5] = length;
+            records[offset + 6] = namePosition;
+            records[offset + 7] = valueType;
+        }
+
+        /**
+         * 获取符号数量
+         *
+         * @return 符号数量
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * 添加声明的顶层类型
+         *
+         * @param stem 顶层类型序号
+         */
+        public void addDeclaredType(int stem) {
+            if (declaredTypeCount == declaredTypes.length) {
+                declaredTypes = Arrays.copyOf(declaredTypes, declaredTypes.length * 2);
+            }
+
+            declaredTypes[declaredTypeCount++] = stem;
+        }
+
+        /**
+         * 添加引用的顶层类型
+         *
+         * @param stem 顶层类型序号
+         */
+        public void addReferencedType(int stem) {
+            if (referencedTypeCount == referencedTypes.length) {
+                referencedTypes = Arrays.copyOf(referencedTypes, referencedTypes.length * 2);
+            }
+
+            referencedTypes[referencedTypeCount++] = stem;
+        }
+
+        /**
+         * 添加直接超类或接口
+         *
+         * @param type      类型符号类型缩写序号
+         * @param supertype 超类型声明的符号类型缩写序号
+         */
+        public void addSupertype(int type, int supertype) {
+            if (supertypeCount + 2 > supertypes.length) {
+                supertypes = Arrays.copyOf(supertypes, supertypes.length * 2);
+            }
+
+            supertypes[supertypeCount++] = type;
+            supertypes[supertypeCount++] = supertype;
+        }
+
+        /**
+         * 遍历声明符号
+         *
+         * @param consumer 处理函数, 参数为符号类型缩写序号和子类型
+         */
+        public void forEachDeclaration(DeclarationConsumer consumer) {
+            for (int offset = 0; offset < count * STRIDE; offset += STRIDE) {
+                if (records[offset] == Symbol.SYMBOL_TYPE_DECLARATION) {
+                    consumer.accept(records[offset + 3], records[offset + 1]);
+                }
+            }
+        }
+
+        /**
+         * 链接名称符号
+         *
+         * @param resolver 子类型查询函数, 参数为符号类型缩写序号, 无需链接时返回UNLINKED
+         */
+        public void link(IntUnaryOperator resolver) {
+            for (int offset = 0; offset < count * STRIDE; offset += STRIDE) {
+                if (records[offset + 1] == UNLINKED) {
+                    records[offset + 1] = resolver.applyAsInt(records[offset + 3]);
+                }
+            }
+        }
+
+        /**
+         * 构建文件符号表, 未链接的名称符号将被丢弃
+         *
+         * @return 文件符号表
+         */
+        public FileSymbols build() {
+            // 按位置排序, 位置相同时长度大的在前
+            long[] order = new long[count];
+            int size = 0;
+            for (int i = 0; i < count; ++i) {
+                if (records[i * STRIDE + 1] != UNLINKED) {
+                    order[size++] = ((long) records[i * STRIDE + 4] << 32) | i;
+                }
+            }
+            Arrays.sort(order, 0, size);
+
+            int[] sorted = new int[size];
+            for (int i = 0; i < size; ++i) {
+                int current = (int) order[i];
+                int j = i - 1;
+                while ((j >= 0) && (records[sorted[j] * STRIDE + 4] == records[current * STRIDE + 4]) && (records[sorted[j] * STRIDE + 5] < records[current * STRIDE + 5])) {
+                    sorted[j + 1] = sorted[j];
+                    j--;
+                }
+                sorted[j + 1] = current;
+            }
+
+            byte[] types = new byte[size];
+            byte[] subTypes = new byte[size];
+            int[] names = new int[size];
+            int[] keys = new int[size];
+            int[] positions = new int[size];
+            int[] lengths = new int[size];
+            int[] namePositions = new int[size];
+            int[] valueTypes = new int[size];
+            for (int i = 0; i < size; ++i) {
+                int offset = sorted[i] * STRIDE;
+                types[i] = (byte) records[offset];
+                subTypes[i] = (byte) records[offset + 1];
+                names[i] = records[offset + 2];
+                keys[i] = records[offset + 3];
+                positions[i] = records[offset + 4];
+                lengths[i] = records[offset + 5];
+                namePositions[i] = records[offset + 6];
+                valueTypes[i] = records[offset + 7];
+            }
+
+            return new FileSymbols(sourcePath, path, types, subTypes, names, keys, positions, lengths, namePositions, valueTypes, lineTable, problems,
+                    distinct(declaredTypes, declaredTypeCount), distinct(referencedTypes, referencedTypeCount), Arrays.copyOf(supertypes, supertypeCount));
+        }
+    }
+
+    /**
+     * 声明符号处理函数
+     */
+    @FunctionalInterface
+    public interface DeclarationConsumer {
+        /**
+         * 处理声明符号
+         *
+         * @param key     符号类型缩写序号
+         * @param subType 子类型
+         */
+        void accept(int key, int subType);
+    }
+}
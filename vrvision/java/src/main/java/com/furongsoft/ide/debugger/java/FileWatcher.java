@@ -0,0 +1,361 @@
+package com.furongsoft.ide.debugger.java;
+
+import com.furongsoft.core.misc.Tracker;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * 文件监视器
+ * <p>
+ * 监视根目录及其所有子目录中文件的创建、修改和删除. 事件先累积在待处理集合中, 持续一段时间没有新事件,
+ * 或距第一个事件超过最长等待时间时, 才作为一批交给处理线程. 处理线程串行执行, 执行期间到达的批次合并为一批,
+ * 因此版本切换或格式化等产生的大量事件只触发少数几次增量分析.
+ *
+ * @author Alex
+ */
+public class FileWatcher implements Runnable {
+    /**
+     * 静默时间(毫秒)
+     */
+    private static final long QUIET_PERIOD = 300;
+
+    /**
+     * 最长等待时间(毫秒)
+     */
+    private static final long MAX_DELAY = 3000;
+
+    /**
+     * 变化处理函数
+     */
+    private final Listener listener;
+
+    /**
+     * 根目录
+     */
+    private Path rootPath;
+
+    /**
+     * 监视服务
+     */
+    private WatchService watchService;
+
+    /**
+     * 监视线程
+     */
+    private Thread thread;
+
+    /**
+     * 运行标志
+     */
+    private volatile boolean runFlag;
+
+    /**
+     * 处理线程
+     */
+    private ExecutorService executor;
+
+    /**
+     * 等待处理的文件路径集合
+     */
+    private Set<String> ready = new HashSet<>();
+
+    /**
+     * 是否丢失过事件
+     */
+    private boolean overflow;
+
+    /**
+     * 是否已提交处理任务
+     */
+    private boolean scheduled;
+
+    public FileWatcher(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 开始监视
+     *
+     * @param rootPath 根目录
+     * @return 是否成功
+     */
+    public boolean start(String rootPath) {
+        stop();
+
+        synchronized (this) {
+            try {
+                this.rootPath = Paths.get(rootPath).toAbsolutePath();
+                watchService = this.rootPath.getFileSystem().newWatchService();
+                registerAll(watchService, this.rootPath);
+            } catch (IOException e) {
+                Tracker.error(e);
+                closeWatchService();
+                return false;
+            }
+
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "file-watcher-worker");
+                t.setDaemon(true);
+                return t;
+            });
+
+            runFlag = true;
+            thread = new Thread(this, "file-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        return true;
+    }
+
+    /**
+     * 停止监视
+     *
+     * @return 是否成功
+     */
+    public boolean stop() {
+        Thread thread;
+        ExecutorService executor;
+        synchronized (this) {
+            runFlag = false;
+            closeWatchService();
+            thread = this.thread;
+            executor = this.executor;
+            this.thread = null;
+            this.executor = null;
+            ready = new HashSet<>();
+            overflow = false;
+            scheduled = false;
+        }
+
+        // 正在执行的处理任务可能在等待调用方持有的锁, 只关闭处理线程而不等待其结束
+        if (executor != null) {
+            executor.shutdown();
+        }
+
+        try {
+            if (thread != null) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Tracker.error(e);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * 获取根目录
+     *
+     * @return 根目录, 未监视时返回null
+     */
+    public synchronized String getRootPath() {
+        return (thread == null) ? null : rootPath.toString();
+    }
+
+    @Override
+    public void run() {
+        WatchService watchService;
+        synchronized (this) {
+            watchService = this.watchService;
+        }
+
+        if (watchService == null) {
+            return;
+        }
+
+        Set<String> pending = new HashSet<>();
+        boolean pendingOverflow = false;
+        long firstEventTime = 0;
+        long lastEventTime = 0;
+
+        while (runFlag) {
+            WatchKey key;
+            try {
+                if (pending.isEmpty() && !pendingOverflow) {
+                    key = watchService.take();
+                } else {
+                    long now = System.currentTimeMillis();
+                    long wait = Math.min(lastEventTime + QUIET_PERIOD, firstEventTime + MAX_DELAY) - now;
+                    key = (wait > 0) ? watchService.poll(wait, TimeUnit.MILLISECONDS) : null;
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            }
+
+            if (key != null) {
+                if (pending.isEmpty() && !pendingOverflow) {
+                    firstEventTime = System.currentTimeMillis();
+                }
+                lastEventTime = System.currentTimeMillis();
+                pendingOverflow |= collect(watchService, key, pending);
+                continue;
+            }
+
+            submit(pending, pendingOverflow);
+            pending = new HashSet<>();
+            pendingOverflow = false;
+        }
+    }
+
+    /**
+     * 收集监视事件
+     *
+     * @param watchService 监视服务
+     * @param key          监视键
+     * @param pending      等待处理的文件路径集合
+     * @return 是否丢失过事件
+     */
+    private boolean collect(WatchService watchService, WatchKey key, Set<String> pending) {
+        boolean lost = false;
+        Path folder = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                lost = true;
+                continue;
+            }
+
+            Path path = folder.resolve((Path) event.context());
+            if (isHidden(path)) {
+                continue;
+            }
+
+            pending.add(path.toString().replace('\\', '/'));
+
+            // 新建的目录需要加入监视, 其中在注册前已创建的文件由增量分析展开目录时处理
+            if ((event.kind() == ENTRY_CREATE) && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                try {
+                    registerAll(watchService, path);
+                } catch (IOException | ClosedWatchServiceException e) {
+                    Tracker.error(e);
+                    lost = true;
+                }
+            }
+        }
+
+        if (!key.reset() && folder.equals(rootPath)) {
+            Tracker.warn("file watcher: root folder is no longer accessible");
+        }
+
+        return lost;
+    }
+
+    /**
+     * 提交一批变化
+     *
+     * @param paths    文件路径集合
+     * @param overflow 是否丢失过事件
+     */
+    private synchronized void submit(Set<String> paths, boolean overflow) {
+        if (executor == null) {
+            return;
+        }
+
+        ready.addAll(paths);
+        this.overflow |= overflow;
+        if (!scheduled) {
+            scheduled = true;
+            executor.execute(this::process);
+        }
+    }
+
+    /**
+     * 处理等待中的变化
+     */
+    private void process() {
+        Set<String> paths;
+        boolean lost;
+        synchronized (this) {
+            paths = ready;
+            lost = overflow;
+            ready = new HashSet<>();
+            overflow = false;
+            scheduled = false;
+        }
+
+        try {
+            if (lost) {
+                listener.onOverflow();
+            } else if (!paths.isEmpty()) {
+                listener.onChanged(paths);
+            }
+        } catch (Exception e) {
+            Tracker.error(e);
+        }
+    }
+
+    /**
+     * 注册目录及其所有子目录, 跳过隐藏目录
+     *
+     * @param watchService 监视服务
+     * @param folder       目录
+     * @throws IOException 异常
+     */
+    private static void registerAll(WatchService watchService, Path folder) throws IOException {
+        Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (isHidden(dir) && !dir.equals(folder)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * 是否隐藏文件或目录, 如.git
+     *
+     * @param path 路径
+     * @return 是否隐藏
+     */
+    private static boolean isHidden(Path path) {
+        Path name = path.getFileName();
+        return (name != null) && name.toString().startsWith(".");
+    }
+
+    /**
+     * 关闭监视服务
+     */
+    private void closeWatchService() {
+        if (watchService == null) {
+            return;
+        }
+
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            Tracker.error(e);
+        }
+        watchService = null;
+    }
+
+    /**
+     * 文件变化处理函数
+     */
+    public interface Listener {
+        /**
+         * 文件发生变化
+         *
+         * @param paths 发生变化的文件或目录绝对路径集合
+         */
+        void onChanged(Set<String> paths);
+
+        /**
+         * 监视事件丢失, 需要重新检查全部文件
+         */
+        void onOverflow();
+    }
+}
@@ -24,6 +24,8 @@ import java.io.*;
 import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -85,12 +87,65 @@ public class JavaDebugger extends Debugger implements Runnable {
     private ConcurrentHashMap<ThreadReference, StepRequest> stepRequestMap = new ConcurrentHashMap<>();
 
     /**
-     * 源代码分析器
+     * 分析调度器, 交互查询需要的绑定解析优先于增量分析, 增量分析优先于分析任务, 不占用调试器锁
      */
-    private Analyzer analyzer = new Analyzer();
+    private final AnalysisScheduler scheduler = new AnalysisScheduler();
+
+    /**
+     * 工作区, 监视事件丢失时重新分析根目录, 增量分析后在后台解析标记为未解析的文件
+     */
+    private final Workspace workspace = new Workspace(scheduler, this::analyze,
+            target -> scheduler.execute(AnalysisScheduler.Priority.BACKGROUND, () -> resolveRemaining(target)));
+
+    /**
+     * 当前根目录的源代码分析器, 分析成功后切换
+     */
+    private volatile Analyzer analyzer = workspace.createAnalyzer();
+
+    /**
+     * 变量表: 符号类型缩写序号 -> 变量
+     */
+    private Map<Integer, Variable> variableIds;
+
+    /**
+     * 最多保留的分析任务数
+     */
+    private static final int MAX_ANALYSIS_JOBS = 16;
+
+    /**
+     * 后台解析绑定时每个任务最多解析的文件数量
+     */
+    private static final int BACKGROUND_RESOLVE_FILES = 64;
+
+    /**
+     * 源代码格式化器
+     */
+    private final SourceFormatter formatter = new SourceFormatter();
+
+    /**
+     * 分析任务列表
+     */
+    private final Map<Long, AnalysisJob> analysisJobs = new LinkedHashMap<Long, AnalysisJob>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, AnalysisJob> eldest) {
+            return size() > MAX_ANALYSIS_JOBS;
+        }
+    };
+
+    /**
+     * 分析任务标识
+     */
+    private final AtomicLong analysisJobId = new AtomicLong();
+
+    /**
+     * 最近提交的分析任务
+     */
+    private AnalysisJob analysisJob;
 
     @Override
     public void dispose() {
+        workspace.dispose();
+        scheduler.shutdown();
         stop();
     }
 
@@ -109,32 +164,181 @@ public class JavaDebugger extends Debugger implements Runnable {
     }
 
     @Override
-    public synchronized boolean analyze(String rootPath) {
-        return analyzer.analyze(rootPath);
+    public AnalysisJob analyze(String rootPath, String classPath) {
+        AnalysisJob job = new AnalysisJob(analysisJobId.incrementAndGet(), rootPath);
+        synchronized (analysisJobs) {
+            if (analysisJob != null) {
+                analysisJob.cancel();
+            }
+
+            analysisJob = job;
+            analysisJobs.put(job.getId(), job);
+        }
+
+        scheduler.execute(AnalysisScheduler.Priority.BACKGROUND, () -> {
+            if (job.isCancelled()) {
+                job.finish(AnalysisState.Cancelled);
+                return;
+            }
+
+            job.start();
+            Analyzer target = workspace.getAnalyzer(rootPath);
+            try {
+                if (!target.analyze(rootPath, classPath, job)) {
+                    job.finish(job.isCancelled() ? AnalysisState.Cancelled : AnalysisState.Failed);
+                    return;
+                }
+
+                // 分析期间根目录已被移除时不再切换
+                if (workspace.watch(rootPath, classPath, target)) {
+                    analyzer = target;
+                }
+            } catch (RuntimeException | Error e) {
+                // 异常由调度器记录
+                job.finish(AnalysisState.Failed);
+                throw e;
+            }
+            job.finish(AnalysisState.Succeeded);
+
+            // 空闲时在后台解析其余文件的绑定
+            scheduler.execute(AnalysisScheduler.Priority.BACKGROUND, () -> resolveRemaining(target));
+        });
+
+        return job;
     }
 
     @Override
-    public synchronized Symbol getDeclarationSymbol(String sourcePath, int lineNumber, int columnNumber) {
-        return analyzer.getDeclarationSymbol(sourcePath, lineNumber, columnNumber);
+    public List<String> getWorkspaceRoots() {
+        return workspace.getRootPaths();
     }
 
     @Override
-    public synchronized String getSymbolValue(String sourcePath, int lineNumber, int columnNumber) {
-        if (variables == null) {
-            return null;
+    public boolean removeWorkspaceRoot(String rootPath) {
+        Analyzer removed = workspace.removeRoot(rootPath);
+        if (removed == null) {
+            return false;
         }
 
-        Symbol symbol = analyzer.getDeclarationSymbol(sourcePath, lineNumber, columnNumber);
-        if (symbol == null) {
-            return null;
+        if (removed == analyzer) {
+            analyzer = workspace.createAnalyzer();
         }
 
-        Optional<Variable> result = variables.stream().filter(variable -> symbol.getKey().startsWith(variable.getKey())).findFirst();
-        if (!result.isPresent()) {
-            return null;
+        return true;
+    }
+
+    @Override
+    public AnalysisJob getAnalysisJob(long id) {
+        synchronized (analysisJobs) {
+            return analysisJobs.get(id);
+        }
+    }
+
+    @Override
+    public List<AnalysisMetrics> getAnalysisMetrics() {
+        return analyzer.getMetrics();
+    }
+
+    @Override
+    public BindingCacheMetrics getBindingCacheMetrics() {
+        return analyzer.getBindingCacheMetrics();
+    }
+
+    /**
+     * 在后台分批解析其余文件的绑定, 每批完成后重新排队, 以便增量分析在两批之间执行
+     *
+     * @param target 分析器
+     */
+    private void resolveRemaining(Analyzer target) {
+        if (workspace.getRootPaths().contains(target.getRootPath()) && target.resolveRemaining(BACKGROUND_RESOLVE_FILES)) {
+            scheduler.execute(AnalysisScheduler.Priority.BACKGROUND, () -> resolveRemaining(target));
         }
+    }
+
+    @Override
+    public List<SchedulerMetrics> getSchedulerMetrics() {
+        return scheduler.getMetrics();
+    }
+
+    @Override
+    public Symbol getDeclarationSymbol(String sourcePath, int lineNumber, int columnNumber) {
+        // 读取符号表快照, 不持有调试器锁
+        return analyzer.getDeclarationSymbol(sourcePath, lineNumber, columnNumber);
+    }
+
+    @Override
+    public List<Symbol> searchSymbols(String query, int limit) {
+        // 读取符号表快照, 不持有调试器锁
+        return analyzer.searchSymbols(query, limit);
+    }
+
+    @Override
+    public List<Symbol> complete(String sourcePath, int lineNumber, int columnNumber, String lineText, int limit) {
+        // 读取符号表快照, 不持有调试器锁
+        return analyzer.complete(sourcePath, lineNumber, columnNumber, lineText, limit);
+    }
 
-        return result.get().getValue();
+    @Override
+    public CallHierarchy getIncomingCalls(String sourcePath, int lineNumber, int columnNumber, int depth) {
+        // 读取符号表快照, 不持有调试器锁
+        return analyzer.getCallHierarchy(sourcePath, lineNumber, columnNumber, depth, true);
+    }
+
+    @Override
+    public CallHierarchy getOutgoingCalls(String sourcePath, int lineNumber, int columnNumber, int depth) {
+        // 读取符号表快照, 不持有调试器锁
+        return analyzer.getCallHierarchy(sourcePath, lineNumber, columnNumber, depth, false);
+    }
+
+    @Override
+    public TypeHierarchy getSubtypes(String sourcePath, int lineNumber, int columnNumber, int depth) {
+        // 读取符号表快照, 不持有调试器锁
+        return analyzer.getTypeHierarchy(sourcePath, lineNumber, columnNumber, depth, true);
+    }
+
+    @Override
+    public TypeHierarchy getSupertypes(String sourcePath, int lineNumber, int columnNumber, int depth) {
+        // 读取符号表快照, 不持有调试器锁
+        return analyzer.getTypeHierarchy(sourcePath, lineNumber, columnNumber, depth, false);
+    }
+
+    @Override
+    public List<Symbol> findImplementations(String sourcePath, int lineNumber, int columnNumber) {
+        // 读取符号表快照, 不持有调试器锁
+        return analyzer.findImplementations(sourcePath, lineNumber, columnNumber);
+    }
+
+    @Override
+    public List<Diagnostic> getDiagnostics(String sourcePath) {
+        // 读取符号表快照, 不持有调试器锁
+        return analyzer.getDiagnostics(sourcePath);
+    }
+
+    @Override
+    public SemanticTokens getSemanticTokens(String sourcePath, int startLineNumber, int endLineNumber) {
+        // 读取符号表快照, 不持有调试器锁
+        return analyzer.getSemanticTokens(sourcePath, startLineNumber, endLineNumber);
+    }
+
+    @Override
+    public boolean findReferences(String sourcePath, int lineNumber, int columnNumber, int pageIndex, int pageSize, Consumer<References> consumer) {
+        // 结果边生成边输出, 不持有调试器锁, 避免慢速客户端阻塞调试操作
+        return analyzer.findReferences(sourcePath, lineNumber, columnNumber, pageIndex, pageSize, consumer);
+    }
+
+    @Override
+    public String getSymbolValue(String sourcePath, int lineNumber, int columnNumber) {
+        // 解析绑定时不持有调试器锁
+        int variableId = analyzer.getVariableId(sourcePath, lineNumber, columnNumber);
+
+        synchronized (this) {
+            if (variableIds == null) {
+                return null;
+            }
+
+            Variable variable = variableIds.get(variableId);
+
+            return (variable == null) ? null : variable.getValue();
+        }
     }
 
     /**
@@ -245,25 +449,60 @@ public class JavaDebugger extends Debugger implements Runnable {
             return false;
         }
 
-        FileWriter writer = null;
+        if (!SourceFiles.write(Collections.singletonMap(file, code))) {
+            return false;
+        }
 
-        try {
-            writer = new FileWriter(file, Charset.forName("UTF-8"));
-            writer.write(code);
+        scheduler.execute(AnalysisScheduler.Priority.UPDATE, () -> workspace.update(file.getAbsolutePath()));
 
-            return true;
-        } catch (IOException e) {
-            Tracker.error(e);
-            return false;
-        } finally {
-            if (writer != null) {
-                try {
-                    writer.close();
-                } catch (IOException e) {
-                    Tracker.error(e);
-                }
+        return true;
+    }
+
+    @Override
+    public List<TextEdit> format(String sourcePath, String code, int startLineNumber, int endLineNumber) {
+        // 未提供源代码时格式化文件内容, 修改位置与获取源代码的结果一致
+        String source = (code != null) ? code : getCode(sourcePath);
+
+        return (source == null) ? null : formatter.format(source, startLineNumber, endLineNumber);
+    }
+
+    @Override
+    public List<FileEdits> rename(String sourcePath, int lineNumber, int columnNumber, String newName) {
+        // 重命名期间切换根目录时仍修改原根目录
+        Analyzer target = analyzer;
+        Symbol symbol = target.getSymbol(sourcePath, lineNumber, columnNumber);
+        List<FileEdits> result = (symbol == null) ? null : target.getRenameEdits(sourcePath, lineNumber, columnNumber, newName);
+        if (result == null) {
+            return null;
+        }
+
+        Map<File, String> contents = new LinkedHashMap<>();
+        for (FileEdits fileEdits : result) {
+            File file = new File(target.getRootPath() + '/' + fileEdits.getSourcePath());
+            String code = SourceFiles.read(file);
+            String edited = (code == null) ? null : SourceFiles.applyEdits(code, fileEdits.getEdits(), symbol.getName());
+            if (edited == null) {
+                Tracker.info(String.format("rename: %s has changed since analyzed", fileEdits.getSourcePath()));
+                return null;
+            }
+
+            contents.put(file, edited);
+        }
+
+        synchronized (this) {
+            if (!SourceFiles.write(contents)) {
+                return null;
             }
         }
+
+        // 只有修改过的文件需要重新解析, 完成后再返回, 此后的查询使用新名称
+        List<String> paths = new ArrayList<>();
+        for (File file : contents.keySet()) {
+            paths.add(file.getAbsolutePath());
+        }
+        scheduler.call(AnalysisScheduler.Priority.UPDATE, () -> target.reindex(paths));
+
+        return result;
     }
 
     @Override
@@ -294,7 +533,12 @@ public class JavaDebugger extends Debugger implements Runnable {
                 return false;
             }
 
-            if (!analyze(map.get("-sourcepath"))) {
+            // 断点和变量按分析结果查找符号, 分析结束后再启动目标程序
+            try {
+                if (analyze(map.get("-sourcepath"), map.get("-classpath")).await() != AnalysisState.Succeeded) {
+                    return false;
+                }
+            } catch (InterruptedException e) {
                 return false;
             }
 
@@ -394,6 +638,7 @@ public class JavaDebugger extends Debugger implements Runnable {
                 variables.clear();
                 variables = null;
             }
+            variableIds = null;
         }
 
         return true;
@@ -425,6 +670,7 @@ public class JavaDebugger extends Debugger implements Runnable {
             variables.clear();
             variables = null;
         }
+        variableIds = null;
 
         return true;
     }
@@ -551,6 +797,7 @@ public class JavaDebugger extends Debugger implements Runnable {
                 variables.clear();
                 variables = null;
             }
+            variableIds = null;
         }
     }
 
@@ -714,6 +961,7 @@ public class JavaDebugger extends Debugger implements Runnable {
         } else if ((event instanceof BreakpointEvent) || (event instanceof StepEvent)) {
             List<com.furongsoft.ide.debugger.entities.Location> locations = new ArrayList<>();
             List<Variable> variables = new ArrayList<>();
+            Map<Integer, Variable> variableIds = new HashMap<>();
 
             LocatableEvent locatableEvent = (LocatableEvent) event;
             ThreadReference threadReference = locatableEvent.thread();
@@ -733,13 +981,15 @@ public class JavaDebugger extends Debugger implements Runnable {
             for (LocalVariable localVariable : method.arguments()) {
                 Value value = stackFrame.getValue(localVariable);
                 Tracker.info(String.format("=========== arguments -> %s %s = %s", localVariable.typeName(), localVariable.name(), value));
-                variables.add(new Variable(VariableType.local, localVariable.typeName(), localVariable.name(), value == null ? "null" : value.toString(), getSymbolKey(classType, method, localVariable)));
+                addVariable(variables, variableIds, new Variable(VariableType.local, localVariable.typeName(), localVariable.name(), value == null ? "null" : value.toString(),
+                        getSymbolKey(classType, method, localVariable)));
             }
 
             for (LocalVariable localVariable : localVariables) {
                 Value value = stackFrame.getValue(localVariable);
                 Tracker.info(String.format("=========== local -> %s %s = %s", localVariable.typeName(), localVariable.name(), value));
-                variables.add(new Variable(VariableType.local, localVariable.typeName(), localVariable.name(), value == null ? "null" : value.toString(), getSymbolKey(classType, method, localVariable)));
+                addVariable(variables, variableIds, new Variable(VariableType.local, localVariable.typeName(), localVariable.name(), value == null ? "null" : value.toString(),
+                        getSymbolKey(classType, method, localVariable)));
             }
 
             if (stackFrame.thisObject() != null) {
@@ -751,7 +1001,7 @@ public class JavaDebugger extends Debugger implements Runnable {
                     Field field = entry.getKey();
                     Value value = entry.getValue();
                     Tracker.info(String.format("=========== member -> %s %s = %s", field.typeName(), field.name(), value));
-                    variables.add(new Variable(VariableType.member, field.typeName(), field.name(), value == null ? "null" : value.toString(), getSymbolKey(classType, field)));
+                    addVariable(variables, variableIds, new Variable(VariableType.member, field.typeName(), field.name(), value == null ? "null" : value.toString(), getSymbolKey(classType, field)));
                 }
             }
 
@@ -760,6 +1010,7 @@ public class JavaDebugger extends Debugger implements Runnable {
                 this.location = locations.get(0);
                 this.stack = new Stack(locations);
                 this.variables = variables;
+                this.variableIds = variableIds;
                 this.threadReference = threadReference;
             }
 
@@ -778,8 +1029,7 @@ public class JavaDebugger extends Debugger implements Runnable {
      * @return 符号类型缩写
      */
     private String getSymbolKey(ReferenceType classType, Method method, LocalVariable localVariable) {
-        // local: [class signature].[method name][method signature]#[name]
-        return String.format("%s.%s%s#%s", classType.signature(), method.name(), method.signature(), localVariable.name());
+        return SymbolKeys.ofLocalVariable(classType.signature(), method.name(), method.signature(), localVariable.name());
     }
 
     /**
@@ -790,8 +1040,25 @@ public class JavaDebugger extends Debugger implements Runnable {
      * @return 符号类型缩写
      */
     private String getSymbolKey(ReferenceType classType, Field field) {
-        // member: [class signature].[name])[signature]
-        return String.format("%s.%s)%s", classType.signature(), field.name(), field.signature());
+        return SymbolKeys.ofField(classType.signature(), field.name(), field.signature());
+    }
+
+    /**
+     * 添加变量
+     * <p>
+     * 参数同时出现在参数列表和可见变量列表中, 变量表只保留先添加的变量.
+     * 源代码中不存在对应符号的变量(如编译器生成的变量)只加入变量列表.
+     *
+     * @param variables   变量列表
+     * @param variableIds 变量表
+     * @param variable    变量
+     */
+    private void addVariable(List<Variable> variables, Map<Integer, Variable> variableIds, Variable variable) {
+        variables.add(variable);
+        int id = analyzer.getSymbolId(variable.getKey());
+        if (id >= 0) {
+            variableIds.putIfAbsent(id, variable);
+        }
     }
 
     /**
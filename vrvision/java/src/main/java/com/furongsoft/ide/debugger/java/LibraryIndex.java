@@ -0,0 +1,839 @@
+package com.furongsoft.ide.debugger.java;
+
+import com.furongsoft.core.misc.Tracker;
+import com.furongsoft.ide.debugger.entities.Symbol;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.eclipse.jdt.core.ToolFactory;
+import org.eclipse.jdt.core.util.IClassFileReader;
+import org.eclipse.jdt.core.util.IFieldInfo;
+import org.eclipse.jdt.core.util.IMethodInfo;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 类库索引
+ * <p>
+ * 记录JAR文件中的类型、方法和成员变量声明, 以JAR文件内容摘要为标识保存到磁盘, 不同项目引用同一JAR文件时共享同一索引.
+ * 声明按"类型缩写.名称"排序, 查询时先按完整类型缩写匹配, 参数化类型或泛型方法的类型缩写与类文件描述符不一致时, 再按参数数量匹配.
+ * <p>
+ * 文件格式: 标识, 版本, 类文件列表, 声明列表. 每条声明包含查询键、描述符、子类型、类文件序号和超类型, 超类型只有类型声明记录.
+ *
+ * @author Alex
+ */
+public class LibraryIndex {
+    /**
+     * 缓存目录
+     */
+    private static final String CACHE_PATH = "caches/libraries";
+
+    /**
+     * 文件标识
+     */
+    private static final int MAGIC = 0x574c4958;
+
+    /**
+     * 文件版本
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * 合成访问标志
+     */
+    private static final int ACC_SYNTHETIC = 0x1000;
+
+    /**
+     * 桥接方法访问标志
+     */
+    private static final int ACC_BRIDGE = 0x0040;
+
+    /**
+     * 公开访问标志
+     */
+    private static final int ACC_PUBLIC = 0x0001;
+
+    /**
+     * 受保护访问标志
+     */
+    private static final int ACC_PROTECTED = 0x0004;
+
+    /**
+     * 运行时类库的路径
+     */
+    private static final String RUNTIME_PATH = "jrt:";
+
+    /**
+     * 运行时类库中建立索引的包
+     */
+    private static final String[] RUNTIME_PACKAGES = {"java/", "javax/", "org/w3c/", "org/xml/", "org/ietf/"};
+
+    /**
+     * 已加载的类库索引: JAR文件内容摘要 -> 类库索引
+     */
+    private static final ConcurrentHashMap<String, LibraryIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * 已计算的JAR文件内容摘要: JAR文件路径 -> 文件长度, 修改时间和内容摘要
+     */
+    private static final ConcurrentHashMap<String, Object[]> hashes = new ConcurrentHashMap<>();
+
+    /**
+     * 运行时类库索引, 首次使用时加载
+     */
+    private static volatile LibraryIndex runtime;
+
+    /**
+     * JAR文件路径
+     */
+    @Getter
+    private final String jarPath;
+
+    /**
+     * JAR文件内容摘要
+     */
+    @Getter
+    private final String hash;
+
+    /**
+     * 类文件列表
+     */
+    private final String[] classFiles;
+
+    /**
+     * 查询键列表(已排序): 类型为"类型缩写", 成员为"类型缩写.名称"
+     */
+    private final String[] keys;
+
+    /**
+     * 描述符列表: 类型为空, 方法为"(参数)返回值", 成员变量为")类型"
+     */
+    private final String[] descriptors;
+
+    /**
+     * 子类型列表
+     */
+    private final byte[] subTypes;
+
+    /**
+     * 类文件序号列表
+     */
+    private final int[] classIndexes;
+
+    /**
+     * 超类型列表: 类型为直接超类和接口的类型缩写依次连接, 如Ljava/util/AbstractList;Ljava/util/List;, 成员为空
+     */
+    private final String[] supertypes;
+
+    private LibraryIndex(String jarPath, String hash, String[] classFiles, String[] keys, String[] descriptors, byte[] subTypes, int[] classIndexes, String[] supertypes) {
+        this.jarPath = jarPath;
+        this.hash = hash;
+        this.classFiles = classFiles;
+        this.keys = keys;
+        this.descriptors = descriptors;
+        this.subTypes = subTypes;
+        this.classIndexes = classIndexes;
+        this.supertypes = supertypes;
+    }
+
+    /**
+     * 加载类库索引
+     * <p>
+     * 依次查找已加载的索引和磁盘缓存, 都不存在时才读取JAR文件建立索引并保存.
+     *
+     * @param jarPath JAR文件路径
+     * @return 类库索引, 失败时返回null
+     */
+    public static LibraryIndex load(String jarPath) {
+        File jar = new File(jarPath);
+        if (!jar.isFile()) {
+            return null;
+        }
+
+        try {
+            String hash = getHash(jar);
+            LibraryIndex index = indexes.get(hash);
+            if (index != null) {
+                return index.jarPath.equals(jar.getAbsolutePath()) ? index : index.withJarPath(jar.getAbsolutePath());
+            }
+
+            File file = new File(CACHE_PATH, hash + ".lib");
+            index = file.isFile() ? read(file, jar.getAbsolutePath(), hash) : null;
+            if (index == null) {
+                index = create(jar, hash);
+                index.write(file);
+                Tracker.info(String.format("library: %s indexed, %d declarations", jar.getName(), index.size()));
+            }
+
+            indexes.put(hash, index);
+
+            return index;
+        } catch (Exception e) {
+            Tracker.error(e);
+            return null;
+        }
+    }
+
+    /**
+     * 加载运行时类库索引
+     * <p>
+     * 索引运行当前虚拟机的JDK中Java SE模块的公开类型及其公开和受保护成员, 以JDK路径和版本为标识保存到磁盘,
+     * 进程内只加载一次, 由所有项目共享. 需要JDK 9以上的jrt文件系统, 不支持时返回null.
+     *
+     * @return 类库索引, 失败时返回null
+     */
+    public static LibraryIndex loadRuntime() {
+        LibraryIndex index = runtime;
+        if (index != null) {
+            return index;
+        }
+
+        synchronized (LibraryIndex.class) {
+            if (runtime != null) {
+                return runtime;
+            }
+
+            try {
+                String environment = System.getProperty("java.home") + '\n' + System.getProperty("java.runtime.version");
+                String hash = SymbolCache.toHex(SymbolCache.digest(environment.getBytes(StandardCharsets.UTF_8)));
+                File file = new File(CACHE_PATH, hash + ".lib");
+                index = file.isFile() ? read(file, RUNTIME_PATH, hash) : null;
+                if (index == null) {
+                    index = createRuntime(hash);
+                    index.write(file);
+                    Tracker.info(String.format("library: runtime indexed, %d declarations", index.size()));
+                }
+
+                runtime = index;
+            } catch (Exception e) {
+                Tracker.error(e);
+            }
+
+            return runtime;
+        }
+    }
+
+    /**
+     * 获取声明数量
+     *
+     * @return 声明数量
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * 获取声明的子类型
+     *
+     * @param key 符号类型缩写
+     * @return 子类型, 不存在时返回-1
+     */
+    public int getSubType(String key) {
+        int i = find(key);
+        return (i < 0) ? -1 : subTypes[i];
+    }
+
+    /**
+     * 获取类型的直接超类和接口
+     *
+     * @param type 类型缩写(不含类型参数)
+     * @return 超类型缩写列表, 类型不存在或没有超类型时为空
+     */
+    public List<String> getSupertypes(String type) {
+        int i = find(type);
+        List<String> result = new ArrayList<>();
+        if ((i < 0) || (subTypes[i] != Symbol.SYMBOL_SUB_TYPE_TYPE)) {
+            return result;
+        }
+
+        for (int begin = 0, end; begin < supertypes[i].length(); begin = end) {
+            end = supertypes[i].indexOf(';', begin) + 1;
+            result.add(supertypes[i].substring(begin, end));
+        }
+
+        return result;
+    }
+
+    /**
+     * 获取声明符号
+     * <p>
+     * 符号的源代码路径为"JAR文件路径!/类文件路径", 类库中没有源代码位置, 行号为0.
+     *
+     * @param key 符号类型缩写
+     * @return 声明符号, 不存在时返回null
+     */
+    public Symbol getSymbol(String key) {
+        int i = find(key);
+        if (i < 0) {
+            return null;
+        }
+
+        return new Symbol(Symbol.SYMBOL_TYPE_DECLARATION, subTypes[i], getName(i), key, jarPath + "!/" + classFiles[classIndexes[i]], 0, 0, 0, 0);
+    }
+
+    /**
+     * 获取类型中声明的成员变量和方法
+     * <p>
+     * 成员符号的类型缩写为"查询键描述符", 与源代码中的成员符号格式一致. 构造方法不作为成员.
+     *
+     * @param type 类型缩写(不含类型参数)
+     * @return 成员符号列表
+     */
+    public List<Symbol> getMembers(String type) {
+        String prefix = type + '.';
+        List<Symbol> result = new ArrayList<>();
+        for (int i = lowerBound(prefix); (i < keys.length) && keys[i].startsWith(prefix); ++i) {
+            if (keys[i].length() > prefix.length()) {
+                result.add(new Symbol(Symbol.SYMBOL_TYPE_DECLARATION, subTypes[i], getName(i), keys[i] + descriptors[i], jarPath + "!/" + classFiles[classIndexes[i]], 0, 0, 0, 0));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 查找声明
+     *
+     * @param key 符号类型缩写
+     * @return 声明序号, 不存在时返回-1
+     */
+    private int find(String key) {
+        // Ljava/util/List<Lorg/opencv/core/Mat;>;.add(Lorg/opencv/core/Mat;)Z -> Ljava/util/List;.add, (Lorg/opencv/core/Mat;)Z
+        int end = skipType(key, 0);
+        if ((end <= 0) || (key.charAt(end - 1) != ';')) {
+            return -1;
+        }
+
+        String type = eraseType(key.substring(0, end));
+        if (end == key.length()) {
+            int i = Arrays.binarySearch(keys, type);
+            return ((i >= 0) && descriptors[i].isEmpty()) ? i : -1;
+        }
+
+        if (key.charAt(end) != '.') {
+            return -1;
+        }
+
+        int nameEnd = end + 1;
+        while ((nameEnd < key.length()) && (key.charAt(nameEnd) != '(') && (key.charAt(nameEnd) != ')')) {
+            nameEnd++;
+        }
+
+        if ((nameEnd == key.length()) || (key.indexOf('#', nameEnd) >= 0)) {
+            return -1;
+        }
+
+        String member = type + key.substring(end, nameEnd);
+        String descriptor = key.substring(nameEnd);
+        int candidate = -1;
+        for (int i = lowerBound(member); (i < keys.length) && keys[i].equals(member); ++i) {
+            if (descriptors[i].equals(descriptor)) {
+                return i;
+            }
+
+            if ((candidate < 0) && (descriptor.charAt(0) == descriptors[i].charAt(0)) && (getParameterCount(descriptor) == getParameterCount(descriptors[i]))) {
+                candidate = i;
+            }
+        }
+
+        return candidate;
+    }
+
+    /**
+     * 获取声明名称
+     *
+     * @param i 声明序号
+     * @return 名称
+     */
+    private String getName(int i) {
+        String key = keys[i];
+        int dot = key.lastIndexOf(";.");
+        if ((dot >= 0) && (dot + 2 < key.length())) {
+            return key.substring(dot + 2);
+        }
+
+        // 类型或构造方法: Ljava/util/Base64$Decoder; -> Decoder
+        String type = (dot >= 0) ? key.substring(0, dot + 1) : key;
+        int begin = Math.max(type.lastIndexOf('/'), type.lastIndexOf('$')) + 1;
+
+        return type.substring(Math.max(begin, 1), type.length() - 1);
+    }
+
+    /**
+     * 查找第一个不小于指定查询键的声明
+     *
+     * @param key 查询键
+     * @return 声明序号
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * 创建使用其他JAR文件路径的类库索引
+     *
+     * @param jarPath JAR文件路径
+     * @return 类库索引
+     */
+    private LibraryIndex withJarPath(String jarPath) {
+        return new LibraryIndex(jarPath, hash, classFiles, keys, descriptors, subTypes, classIndexes, supertypes);
+    }
+
+    /**
+     * 读取JAR文件建立类库索引
+     *
+     * @param jar  JAR文件
+     * @param hash JAR文件内容摘要
+     * @return 类库索引
+     * @throws IOException 异常
+     */
+    private static LibraryIndex create(File jar, String hash) throws IOException {
+        List<String> classFiles = new ArrayList<>();
+        Map<String, Integer> classIndexes = new HashMap<>();
+        List<Declaration> declarations = new ArrayList<>();
+
+        try (ZipInputStream input = new ZipInputStream(new BufferedInputStream(new FileInputStream(jar)))) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                String name = entry.getName();
+                if (entry.isDirectory() || !name.endsWith(".class") || name.startsWith("META-INF/") || name.endsWith("module-info.class") || name.endsWith("package-info.class")) {
+                    continue;
+                }
+
+                addClass(readAll(input), false, classFiles, classIndexes, declarations);
+            }
+        }
+
+        return create(jar.getAbsolutePath(), hash, classFiles, declarations);
+    }
+
+    /**
+     * 读取jrt文件系统中的Java SE模块建立运行时类库索引
+     *
+     * @param hash 运行时标识
+     * @return 类库索引
+     * @throws IOException 异常
+     */
+    private static LibraryIndex createRuntime(String hash) throws IOException {
+        List<String> classFiles = new ArrayList<>();
+        Map<String, Integer> classIndexes = new HashMap<>();
+        List<Declaration> declarations = new ArrayList<>();
+
+        FileSystem fileSystem = FileSystems.getFileSystem(URI.create("jrt:/"));
+        try (DirectoryStream<Path> modules = Files.newDirectoryStream(fileSystem.getPath("/modules"))) {
+            for (Path module : modules) {
+                if (!module.getFileName().toString().startsWith("java.")) {
+                    continue;
+                }
+
+                List<Path> files = new ArrayList<>();
+                try (Stream<Path> stream = Files.walk(module)) {
+                    stream.filter(path -> isRuntimeClass(module.relativize(path).toString())).forEach(files::add);
+                }
+
+                for (Path file : files) {
+                    addClass(Files.readAllBytes(file), true, classFiles, classIndexes, declarations);
+                }
+            }
+        }
+
+        return create(RUNTIME_PATH, hash, classFiles, declarations);
+    }
+
+    /**
+     * 是否为运行时类库中需要建立索引的类文件
+     *
+     * @param name 模块内的类文件路径, 如java/lang/String.class
+     * @return 是否建立索引
+     */
+    private static boolean isRuntimeClass(String name) {
+        if (!name.endsWith(".class") || name.endsWith("module-info.class") || name.endsWith("package-info.class")) {
+            return false;
+        }
+
+        for (String prefix : RUNTIME_PACKAGES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 读取类文件中的声明
+     *
+     * @param content      类文件内容
+     * @param publicOnly   是否只记录公开类型及其公开和受保护成员
+     * @param classFiles   类文件列表
+     * @param classIndexes 类文件序号表
+     * @param declarations 声明列表
+     */
+    private static void addClass(byte[] content, boolean publicOnly, List<String> classFiles, Map<String, Integer> classIndexes, List<Declaration> declarations) {
+        IClassFileReader reader = ToolFactory.createDefaultClassFileReader(new ByteArrayInputStream(content), IClassFileReader.FIELD_INFOS | IClassFileReader.METHOD_INFOS);
+        if ((reader == null) || ((reader.getAccessFlags() & ACC_SYNTHETIC) != 0) || isAnonymous(reader.getClassName())) {
+            return;
+        }
+
+        if (publicOnly && ((reader.getAccessFlags() & ACC_PUBLIC) == 0)) {
+            return;
+        }
+
+        // 嵌套类型归入所在顶层类型的类文件
+        String className = new String(reader.getClassName());
+        int outer = className.indexOf('$');
+        String classFile = ((outer > 0) ? className.substring(0, outer) : className) + ".class";
+        int classIndex = classIndexes.computeIfAbsent(classFile, k -> {
+            classFiles.add(k);
+            return classFiles.size() - 1;
+        });
+
+        String type = "L" + className + ";";
+        // 超类型: java/util/ArrayList -> Ljava/util/AbstractList;Ljava/util/List;Ljava/util/RandomAccess;...
+        StringBuilder supertypes = new StringBuilder();
+        if (reader.getSuperclassName() != null) {
+            supertypes.append('L').append(reader.getSuperclassName()).append(';');
+        }
+        for (char[] interfaceName : reader.getInterfaceNames()) {
+            supertypes.append('L').append(interfaceName).append(';');
+        }
+        declarations.add(new Declaration(type, "", Symbol.SYMBOL_SUB_TYPE_TYPE, classIndex, supertypes.toString()));
+
+        for (IFieldInfo field : reader.getFieldInfos()) {
+            if (!field.isSynthetic() && (!publicOnly || ((field.getAccessFlags() & (ACC_PUBLIC | ACC_PROTECTED)) != 0))) {
+                declarations.add(new Declaration(type + "." + new String(field.getName()), ")" + new String(field.getDescriptor()), Symbol.SYMBOL_SUB_TYPE_MEMBER_VARIABLE, classIndex, ""));
+            }
+        }
+
+        for (IMethodInfo method : reader.getMethodInfos()) {
+            if (method.isClinit() || method.isSynthetic() || ((method.getAccessFlags() & ACC_BRIDGE) != 0)) {
+                continue;
+            }
+
+            if (publicOnly && ((method.getAccessFlags() & (ACC_PUBLIC | ACC_PROTECTED)) == 0)) {
+                continue;
+            }
+
+            // 构造方法的名称为空: LVisionServer;.(I)V
+            String methodName = method.isConstructor() ? "" : new String(method.getName());
+            declarations.add(new Declaration(type + "." + methodName, new String(method.getDescriptor()), Symbol.SYMBOL_SUB_TYPE_METHOD, classIndex, ""));
+        }
+    }
+
+    /**
+     * 由声明列表建立类库索引
+     *
+     * @param jarPath      JAR文件路径
+     * @param hash         内容摘要
+     * @param classFiles   类文件列表
+     * @param declarations 声明列表
+     * @return 类库索引
+     */
+    private static LibraryIndex create(String jarPath, String hash, List<String> classFiles, List<Declaration> declarations) {
+        declarations.sort(Comparator.comparing((Declaration d) -> d.key).thenComparing(d -> d.descriptor));
+
+        int size = declarations.size();
+        String[] keys = new String[size];
+        String[] descriptors = new String[size];
+        byte[] subTypes = new byte[size];
+        int[] classIndexes = new int[size];
+        String[] supertypes = new String[size];
+        for (int i = 0; i < size; ++i) {
+            Declaration declaration = declarations.get(i);
+            keys[i] = declaration.key;
+            descriptors[i] = declaration.descriptor;
+            subTypes[i] = (byte) declaration.subType;
+            classIndexes[i] = declaration.classIndex;
+            supertypes[i] = declaration.supertypes;
+        }
+
+        return new LibraryIndex(jarPath, hash, classFiles.toArray(new String[0]), keys, descriptors, subTypes, classIndexes, supertypes);
+    }
+
+    /**
+     * 从磁盘读取类库索引
+     *
+     * @param file    缓存文件
+     * @param jarPath JAR文件路径
+     * @param hash    JAR文件内容摘要
+     * @return 类库索引, 格式不符时返回null
+     * @throws IOException 异常
+     */
+    private static LibraryIndex read(File file, String jarPath, String hash) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if ((input.readInt() != MAGIC) || (input.readInt() != VERSION)) {
+                return null;
+            }
+
+            String[] classFiles = new String[input.readInt()];
+            for (int i = 0; i < classFiles.length; ++i) {
+                classFiles[i] = input.readUTF();
+            }
+
+            int size = input.readInt();
+            String[] keys = new String[size];
+            String[] descriptors = new String[size];
+            byte[] subTypes = new byte[size];
+            int[] classIndexes = new int[size];
+            String[] supertypes = new String[size];
+            for (int i = 0; i < size; ++i) {
+                keys[i] = input.readUTF();
+                descriptors[i] = input.readUTF();
+                subTypes[i] = input.readByte();
+                classIndexes[i] = input.readInt();
+                // 成员的超类型为空, 共享同一空字符串
+                String supertype = input.readUTF();
+                supertypes[i] = supertype.isEmpty() ? "" : supertype;
+            }
+
+            return new LibraryIndex(jarPath, hash, classFiles, keys, descriptors, subTypes, classIndexes, supertypes);
+        }
+    }
+
+    /**
+     * 保存类库索引到磁盘
+     *
+     * @param file 缓存文件
+     * @throws IOException 异常
+     */
+    private void write(File file) throws IOException {
+        File folder = file.getParentFile();
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IOException("cannot create folder: " + folder);
+        }
+
+        File temp = new File(folder, file.getName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(classFiles.length);
+            for (String classFile : classFiles) {
+                output.writeUTF(classFile);
+            }
+
+            output.writeInt(keys.length);
+            for (int i = 0; i < keys.length; ++i) {
+                output.writeUTF(keys[i]);
+                output.writeUTF(descriptors[i]);
+                output.writeByte(subTypes[i]);
+                output.writeInt(classIndexes[i]);
+                output.writeUTF(supertypes[i]);
+            }
+        }
+
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 获取JAR文件内容摘要
+     * <p>
+     * 文件长度和修改时间未变化时直接使用上次计算的摘要.
+     *
+     * @param jar JAR文件
+     * @return 内容摘要
+     * @throws IOException 异常
+     */
+    private static String getHash(File jar) throws IOException {
+        String path = jar.getAbsolutePath();
+        Object[] cached = hashes.get(path);
+        if ((cached != null) && ((long) cached[0] == jar.length()) && ((long) cached[1] == jar.lastModified())) {
+            return (String) cached[2];
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        try (InputStream input = new BufferedInputStream(new FileInputStream(jar))) {
+            byte[] buffer = new byte[65536];
+            int length;
+            while ((length = input.read(buffer)) > 0) {
+                digest.update(buffer, 0, length);
+            }
+        }
+
+        String hash = SymbolCache.toHex(digest.digest());
+        hashes.put(path, new Object[]{jar.length(), jar.lastModified(), hash});
+
+        return hash;
+    }
+
+    /**
+     * 读取ZIP条目的全部内容
+     *
+     * @param input 输入流
+     * @return 内容
+     * @throws IOException 异常
+     */
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int length;
+        while ((length = input.read(buffer)) > 0) {
+            output.write(buffer, 0, length);
+        }
+
+        return output.toByteArray();
+    }
+
+    /**
+     * 是否匿名类或局部类
+     *
+     * @param className 类名
+     * @return 是否匿名类或局部类
+     */
+    private static boolean isAnonymous(char[] className) {
+        for (int i = 0; i < className.length - 1; ++i) {
+            if ((className[i] == '$') && Character.isDigit(className[i + 1])) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 去除类型缩写中的类型参数
+     *
+     * @param type 类型缩写
+     * @return 类型缩写
+     */
+    static String eraseType(String type) {
+        // Ljava/util/List<Lorg/opencv/core/Mat;>; -> Ljava/util/List;
+        if (type.indexOf('<') < 0) {
+            return type;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        int depth = 0;
+        for (int i = 0; i < type.length(); ++i) {
+            char c = type.charAt(i);
+            if (c == '<') {
+                depth++;
+            } else if (c == '>') {
+                depth--;
+            } else if (depth == 0) {
+                sb.append(c);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * 跳过一个类型缩写
+     *
+     * @param signature 签名
+     * @param begin     起始位置
+     * @return 类型缩写结束位置
+     */
+    static int skipType(String signature, int begin) {
+        int i = begin;
+        while ((i < signature.length()) && (signature.charAt(i) == '[')) {
+            i++;
+        }
+
+        if (i >= signature.length()) {
+            return i;
+        }
+
+        char c = signature.charAt(i);
+        if ((c != 'L') && (c != 'T')) {
+            return i + 1;
+        }
+
+        int depth = 0;
+        for (; i < signature.length(); ++i) {
+            c = signature.charAt(i);
+            if (c == '<') {
+                depth++;
+            } else if (c == '>') {
+                depth--;
+            } else if ((c == ';') && (depth == 0)) {
+                return i + 1;
+            }
+        }
+
+        return i;
+    }
+
+    /**
+     * 获取方法参数数量
+     *
+     * @param descriptor 描述符
+     * @return 参数数量, 成员变量返回-1
+     */
+    private static int getParameterCount(String descriptor) {
+        if (descriptor.charAt(0) != '(') {
+            return -1;
+        }
+
+        int count = 0;
+        int i = 1;
+        while ((i < descriptor.length()) && (descriptor.charAt(i) != ')')) {
+            i = skipType(descriptor, i);
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * 建立索引时的声明
+     */
+    @AllArgsConstructor
+    private static class Declaration {
+        /**
+         * 查询键
+         */
+        private final String key;
+
+        /**
+         * 描述符
+         */
+        private final String descriptor;
+
+        /**
+         * 子类型
+         */
+        private final int subType;
+
+        /**
+         * 类文件序号
+         */
+        private final int classIndex;
+
+        /**
+         * 超类型
+         */
+        private final String supertypes;
+    }
+}
@@ -0,0 +1,135 @@
+package com.furongsoft.ide.debugger.java;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import java.util.Arrays;
+
+/**
+ * 行首位置表
+ * <p>
+ * 记录源代码文件每一行起始位置, 用于在不保留编译单元的情况下完成(行号, 列号)与位置之间的转换.
+ * 行号从1开始, 列号从0开始, 与编译单元的约定一致.
+ *
+ * @author Alex
+ */
+public class LineTable {
+    /**
+     * 行首位置列表
+     */
+    private final int[] lineStarts;
+
+    public LineTable(int[] lineStarts) {
+        this.lineStarts = lineStarts;
+    }
+
+    /**
+     * 从编译单元创建行首位置表
+     *
+     * @param compilationUnit 编译单元
+     * @return 行首位置表
+     */
+    public static LineTable create(CompilationUnit compilationUnit) {
+        int[] lineStarts = new int[64];
+        int count = 0;
+        for (int line = 1; ; ++line) {
+            int position = compilationUnit.getPosition(line, 0);
+            if (position < 0) {
+                break;
+            }
+
+            if (count == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, count * 2);
+            }
+            lineStarts[count++] = position;
+        }
+
+        return new LineTable((count == 0) ? new int[]{0} : Arrays.copyOf(lineStarts, count));
+    }
+
+    /**
+     * 从源代码创建行首位置表
+     * <p>
+     * 行分隔符可以是\n、\r\n或\r.
+     *
+     * @param code 源代码
+     * @return 行首位置表
+     */
+    public static LineTable create(String code) {
+        int[] lineStarts = new int[64];
+        int count = 1;
+        for (int i = 0; i < code.length(); ++i) {
+            char c = code.charAt(i);
+            if ((c == '\r') && (i + 1 < code.length()) && (code.charAt(i + 1) == '\n')) {
+                continue;
+            }
+
+            if ((c == '\n') || (c == '\r')) {
+                if (count == lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, count * 2);
+                }
+                lineStarts[count++] = i + 1;
+            }
+        }
+
+        return new LineTable(Arrays.copyOf(lineStarts, count));
+    }
+
+    /**
+     * 获取行数
+     *
+     * @return 行数
+     */
+    public int getLineCount() {
+        return lineStarts.length;
+    }
+
+    /**
+     * 获取行首位置列表
+     *
+     * @return 行首位置列表
+     */
+    public int[] getLineStarts() {
+        return lineStarts;
+    }
+
+    /**
+     * 获取位置
+     *
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @return 位置, 无效时返回-1
+     */
+    public int getPosition(int lineNumber, int columnNumber) {
+        if ((lineNumber < 1) || (lineNumber > lineStarts.length) || (columnNumber < 0)) {
+            return -1;
+        }
+
+        int position = lineStarts[lineNumber - 1] + columnNumber;
+        if ((lineNumber < lineStarts.length) && (position >= lineStarts[lineNumber])) {
+            return -1;
+        }
+
+        return position;
+    }
+
+    /**
+     * 获取行号
+     *
+     * @param position 位置
+     * @return 行号
+     */
+    public int getLineNumber(int position) {
+        int i = Arrays.binarySearch(lineStarts, position);
+        return (i >= 0) ? i + 1 : -i - 1;
+    }
+
+    /**
+     * 获取列号
+     *
+     * @param position 位置
+     * @return 列号
+     */
+    public int getColumnNumber(int position) {
+        return position - lineStarts[getLineNumber(position) - 1];
+    }
+}
@@ -0,0 +1,636 @@
+package com.furongsoft.ide.debugger.java;
+
+import com.furongsoft.ide.debugger.entities.Symbol;
+
+import java.util.*;
+
+/**
+ * 符号名称索引
+ * <p>
+ * 按名称保存类型、方法和成员变量的声明, 支持前缀、驼峰缩写、子串和模糊匹配.
+ * 每个名称预先计算字符集位图, 与首字母和小写名称一起保存在连续数组中. 查询时先扫描数组排除不可能匹配的名称, 再逐个计算匹配得分, 只保留得分最高的若干项.
+ * 首字母不同的名称只可能子串或模糊匹配, 直接在小写名称字符池上计算, 不访问名称对象.
+ * <p>
+ * 索引只由分析线程修改, 查询使用 {@link #snapshot()} 生成的只读副本. 副本复制各数组, 共享字符池和名称对象;
+ * 名称对象在生成副本后首次修改时才复制, 字符池只在已用长度之后追加或整理到新数组, 因此副本无需加锁.
+ *
+ * @author Alex
+ */
+public class NameIndex {
+    /**
+     * 完全匹配得分
+     */
+    private static final int SCORE_EXACT = 100;
+
+    /**
+     * 前缀匹配得分
+     */
+    private static final int SCORE_PREFIX = 80;
+
+    /**
+     * 驼峰缩写匹配得分
+     */
+    private static final int SCORE_CAMEL_CASE = 60;
+
+    /**
+     * 子串匹配得分
+     */
+    private static final int SCORE_SUBSTRING = 40;
+
+    /**
+     * 模糊匹配得分
+     */
+    private static final int SCORE_FUZZY = 20;
+
+    /**
+     * 名称列表
+     */
+    private Entry[] entries = new Entry[1024];
+
+    /**
+     * 字符集位图列表
+     */
+    private long[] masks = new long[1024];
+
+    /**
+     * 小写首字母列表
+     */
+    private char[] firsts = new char[1024];
+
+    /**
+     * 小写名称字符池
+     */
+    private char[] pool = new char[16384];
+
+    /**
+     * 字符池已用长度
+     */
+    private int poolSize;
+
+    /**
+     * 字符池中已删除的字符数
+     */
+    private int garbage;
+
+    /**
+     * 小写名称在字符池中的起始位置列表
+     */
+    private int[] starts = new int[1024];
+
+    /**
+     * 小写名称在字符池中的结束位置列表
+     */
+    private int[] ends = new int[1024];
+
+    /**
+     * 名称数量
+     */
+    private int size;
+
+    /**
+     * 名称序号与名称列表下标对照表
+     */
+    private final Map<Integer, Integer> positions;
+
+    /**
+     * 当前版本, 版本不同的名称对象与副本共享, 修改前需复制
+     */
+    private int generation;
+
+    public NameIndex() {
+        this.positions = new HashMap<>();
+    }
+
+    private NameIndex(Entry[] entries, long[] masks, char[] firsts, char[] pool, int[] starts, int[] ends, int size) {
+        this.entries = entries;
+        this.masks = masks;
+        this.firsts = firsts;
+        this.pool = pool;
+        this.poolSize = pool.length;
+        this.starts = starts;
+        this.ends = ends;
+        this.size = size;
+        this.positions = Collections.emptyMap();
+    }
+
+    /**
+     * 生成只读副本
+     *
+     * @return 只读副本
+     */
+    public NameIndex snapshot() {
+        generation++;
+        return new NameIndex(Arrays.copyOf(entries, size), Arrays.copyOf(masks, size), Arrays.copyOf(firsts, size), pool,
+                Arrays.copyOf(starts, size), Arrays.copyOf(ends, size), size);
+    }
+
+    /**
+     * 添加文件中的声明
+     *
+     * @param fileSymbols 文件符号表
+     * @param strings     字符串表
+     */
+    public void addFile(FileSymbols fileSymbols, StringTable strings) {
+        byte[] types = fileSymbols.getTypes();
+        for (int i = 0; i < types.length; ++i) {
+            if (isIndexed(types[i], fileSymbols.getSubTypes()[i])) {
+                int name = fileSymbols.getNames()[i];
+                Integer position = positions.get(name);
+                if (position == null) {
+                    position = size;
+                    positions.put(name, position);
+                    append(new Entry(name, strings.get(name), generation));
+                }
+                getMutableEntry(position).add(fileSymbols, i);
+            }
+        }
+    }
+
+    /**
+     * 删除文件中的声明
+     *
+     * @param fileSymbols 文件符号表
+     */
+    public void removeFile(FileSymbols fileSymbols) {
+        byte[] types = fileSymbols.getTypes();
+        for (int i = 0; i < types.length; ++i) {
+            if (!isIndexed(types[i], fileSymbols.getSubTypes()[i])) {
+                continue;
+            }
+
+            Integer position = positions.get(fileSymbols.getNames()[i]);
+            if ((position == null) || !getMutableEntry(position).remove(fileSymbols)) {
+                continue;
+            }
+
+            // 名称不再有声明时与末尾元素交换后删除
+            garbage += ends[position] - starts[position];
+            positions.remove(fileSymbols.getNames()[i]);
+            size--;
+            if (position < size) {
+                entries[position] = entries[size];
+                masks[position] = masks[size];
+                firsts[position] = firsts[size];
+                starts[position] = starts[size];
+                ends[position] = ends[size];
+                positions.put(entries[position].id, position);
+            }
+            entries[size] = null;
+        }
+
+        if (garbage > poolSize / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * 获取名称数量
+     *
+     * @return 名称数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 查找符号
+     *
+     * @param query   查询字符串
+     * @param limit   最多返回的符号数量
+     * @param strings 字符串表
+     * @return 按匹配程度排序的声明符号列表
+     */
+    public List<Symbol> search(String query, int limit, StringTable strings) {
+        if ((query == null) || query.isEmpty() || (limit <= 0)) {
+            return new ArrayList<>();
+        }
+
+        String lowerQuery = query.toLowerCase();
+        long mask = getMask(lowerQuery);
+        PriorityQueue<Match> queue = new PriorityQueue<>(limit + 1, Comparator.reverseOrder());
+
+        // 首字母相同的名称才可能完全、前缀或驼峰匹配, 先处理这部分名称以尽快提高最低得分
+        char first = lowerQuery.charAt(0);
+        for (int pass = 0; pass < 2; ++pass) {
+            if ((pass == 1) && (queue.size() == limit) && (queue.peek().score > SCORE_SUBSTRING)) {
+                break;
+            }
+
+            for (int i = 0; i < size; ++i) {
+                if (((masks[i] & mask) != mask) || ((firsts[i] == first) != (pass == 0))) {
+                    continue;
+                }
+
+                // 结果已满时, 得分低于当前最低得分的匹配方式无需再计算
+                boolean full = queue.size() == limit;
+                int minScore = full ? queue.peek().score : 1;
+                int score = (pass == 0) ? getScore(query, lowerQuery, entries[i], minScore) : getPartialScore(lowerQuery, starts[i], ends[i], minScore);
+                if (score <= 0) {
+                    continue;
+                }
+
+                Entry entry = entries[i];
+                if (!full) {
+                    queue.add(new Match(entry, score));
+                } else {
+                    Match match = new Match(entry, score);
+                    if (match.compareTo(queue.peek()) < 0) {
+                        queue.poll();
+                        queue.add(match);
+                    }
+                }
+            }
+        }
+
+        List<Match> matches = new ArrayList<>(queue);
+        Collections.sort(matches);
+
+        List<Symbol> result = new ArrayList<>();
+        for (Match match : matches) {
+            for (int i = 0; (i < match.entry.count) && (result.size() < limit); ++i) {
+                result.add(match.entry.files[i].getSymbol(match.entry.indexes[i], strings));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 获取可修改的名称对象, 与副本共享时先复制
+     *
+     * @param position 名称列表下标
+     * @return 名称对象
+     */
+    private Entry getMutableEntry(int position) {
+        if (entries[position].generation != generation) {
+            entries[position] = new Entry(entries[position], generation);
+        }
+
+        return entries[position];
+    }
+
+    /**
+     * 添加名称
+     *
+     * @param entry 名称
+     */
+    private void append(Entry entry) {
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+            masks = Arrays.copyOf(masks, size * 2);
+            firsts = Arrays.copyOf(firsts, size * 2);
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+
+        int length = entry.lowerName.length();
+        if (poolSize + length > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + length));
+        }
+        entry.lowerName.getChars(0, length, pool, poolSize);
+
+        entries[size] = entry;
+        masks[size] = entry.mask;
+        firsts[size] = entry.lowerName.charAt(0);
+        starts[size] = poolSize;
+        ends[size++] = poolSize + length;
+        poolSize += length;
+    }
+
+    /**
+     * 整理字符池, 去除已删除名称占用的空间
+     */
+    private void compact() {
+        char[] compacted = new char[Math.max(16384, poolSize - garbage)];
+        int offset = 0;
+        for (int i = 0; i < size; ++i) {
+            int length = ends[i] - starts[i];
+            System.arraycopy(pool, starts[i], compacted, offset, length);
+            starts[i] = offset;
+            ends[i] = offset + length;
+            offset += length;
+        }
+
+        pool = compacted;
+        poolSize = offset;
+        garbage = 0;
+    }
+
+    /**
+     * 计算首字母不同的名称的匹配得分, 只可能子串或模糊匹配
+     *
+     * @param lowerQuery 小写查询字符串
+     * @param start      小写名称在字符池中的起始位置
+     * @param end        小写名称在字符池中的结束位置
+     * @param minScore   最低得分
+     * @return 得分, 不匹配或低于最低得分时返回0
+     */
+    private int getPartialScore(String lowerQuery, int start, int end, int minScore) {
+        int length = lowerQuery.length();
+        if ((minScore > SCORE_SUBSTRING) || (end - start < length)) {
+            return 0;
+        }
+
+        char first = lowerQuery.charAt(0);
+        for (int i = start; i <= end - length; ++i) {
+            if (pool[i] != first) {
+                continue;
+            }
+
+            int j = 1;
+            while ((j < length) && (pool[i + j] == lowerQuery.charAt(j))) {
+                j++;
+            }
+            if (j == length) {
+                return SCORE_SUBSTRING;
+            }
+        }
+
+        if (minScore > SCORE_FUZZY) {
+            return 0;
+        }
+
+        // 模糊匹配: 查询字符按顺序出现在名称中, 间隔越小得分越高
+        int gaps = 0;
+        int j = start;
+        for (int i = 0; i < length; ++i) {
+            char c = lowerQuery.charAt(i);
+            int found = j;
+            while ((found < end) && (pool[found] != c)) {
+                found++;
+            }
+            if (found == end) {
+                return 0;
+            }
+            gaps += found - j;
+            if (SCORE_FUZZY - gaps < minScore) {
+                return 0;
+            }
+            j = found + 1;
+        }
+
+        return SCORE_FUZZY - gaps;
+    }
+
+    /**
+     * 是否建立索引
+     *
+     * @param type    类型
+     * @param subType 子类型
+     * @return 是否建立索引
+     */
+    private static boolean isIndexed(int type, int subType) {
+        return (type == Symbol.SYMBOL_TYPE_DECLARATION)
+                && ((subType == Symbol.SYMBOL_SUB_TYPE_TYPE) || (subType == Symbol.SYMBOL_SUB_TYPE_METHOD) || (subType == Symbol.SYMBOL_SUB_TYPE_MEMBER_VARIABLE));
+    }
+
+    /**
+     * 计算匹配得分
+     *
+     * @param query      查询字符串
+     * @param lowerQuery 小写查询字符串
+     * @param entry      名称
+     * @param minScore   最低得分
+     * @return 得分, 不匹配或低于最低得分时返回0
+     */
+    private static int getScore(String query, String lowerQuery, Entry entry, int minScore) {
+        if (entry.lowerName.equals(lowerQuery)) {
+            return SCORE_EXACT + (entry.name.equals(query) ? 1 : 0);
+        }
+
+        if (entry.lowerName.startsWith(lowerQuery)) {
+            return SCORE_PREFIX + (entry.name.startsWith(query) ? 1 : 0);
+        }
+
+        if ((minScore > SCORE_PREFIX + 1) || (entry.lowerName.length() < lowerQuery.length())) {
+            return 0;
+        }
+
+        if ((minScore <= SCORE_CAMEL_CASE) && matchCamelCase(lowerQuery, entry)) {
+            return SCORE_CAMEL_CASE;
+        }
+
+        if ((minScore <= SCORE_SUBSTRING) && entry.lowerName.contains(lowerQuery)) {
+            return SCORE_SUBSTRING;
+        }
+
+        if (minScore > SCORE_FUZZY) {
+            return 0;
+        }
+
+        // 模糊匹配: 查询字符按顺序出现在名称中, 间隔越小得分越高
+        int gaps = 0;
+        int j = 0;
+        for (int i = 0; i < lowerQuery.length(); ++i) {
+            int found = entry.lowerName.indexOf(lowerQuery.charAt(i), j);
+            if (found < 0) {
+                return 0;
+            }
+            gaps += found - j;
+            if (SCORE_FUZZY - gaps < minScore) {
+                return 0;
+            }
+            j = found + 1;
+        }
+
+        return SCORE_FUZZY - gaps;
+    }
+
+    /**
+     * 驼峰缩写匹配, 例如 npe 匹配 NullPointerException, nupoex 匹配 NullPointerException
+     *
+     * @param lowerQuery 小写查询字符串
+     * @param entry      名称
+     * @return 是否匹配
+     */
+    private static boolean matchCamelCase(String lowerQuery, Entry entry) {
+        String name = entry.lowerName;
+        if (name.charAt(0) != lowerQuery.charAt(0)) {
+            return false;
+        }
+
+        int j = 1;
+        for (int i = 1; i < lowerQuery.length(); ++i) {
+            char c = lowerQuery.charAt(i);
+            if ((j < name.length()) && (name.charAt(j) == c)) {
+                j++;
+                continue;
+            }
+
+            while ((j < name.length()) && !(entry.humps.get(j) && (name.charAt(j) == c))) {
+                j++;
+            }
+            if (j == name.length()) {
+                return false;
+            }
+            j++;
+        }
+
+        return true;
+    }
+
+    /**
+     * 计算字符集位图
+     *
+     * @param lowerName 小写名称
+     * @return 位图
+     */
+    private static long getMask(String lowerName) {
+        long mask = 0;
+        for (int i = 0; i < lowerName.length(); ++i) {
+            char c = lowerName.charAt(i);
+            if ((c >= 'a') && (c <= 'z')) {
+                mask |= 1L << (c - 'a');
+            } else if ((c >= '0') && (c <= '9')) {
+                mask |= 1L << (26 + c - '0');
+            } else if (c == '_') {
+                mask |= 1L << 36;
+            } else if (c == '$') {
+                mask |= 1L << 37;
+            } else {
+                mask |= 1L << 63;
+            }
+        }
+
+        return mask;
+    }
+
+    /**
+     * 名称
+     */
+    private static class Entry {
+        /**
+         * 名称序号
+         */
+        private final int id;
+
+        /**
+         * 名称
+         */
+        private final String name;
+
+        /**
+         * 小写名称
+         */
+        private final String lowerName;
+
+        /**
+         * 字符集位图
+         */
+        private final long mask;
+
+        /**
+         * 驼峰分段起始位置
+         */
+        private final BitSet humps;
+
+        /**
+         * 声明所在文件符号表列表
+         */
+        private FileSymbols[] files = new FileSymbols[1];
+
+        /**
+         * 声明的文件内符号序号列表
+         */
+        private int[] indexes = new int[1];
+
+        /**
+         * 声明数量
+         */
+        private int count;
+
+        /**
+         * 创建时的索引版本
+         */
+        private final int generation;
+
+        Entry(int id, String name, int generation) {
+            this.id = id;
+            this.generation = generation;
+            this.name = name;
+            this.lowerName = name.toLowerCase();
+            this.mask = getMask(lowerName);
+            this.humps = new BitSet();
+            for (int i = 0; i < name.length(); ++i) {
+                char c = name.charAt(i);
+                char prev = (i > 0) ? name.charAt(i - 1) : '_';
+                if (Character.isUpperCase(c) || Character.isDigit(c) != Character.isDigit(prev) || (prev == '_') || (prev == '$')) {
+                    humps.set(i);
+                }
+            }
+        }
+
+        Entry(Entry other, int generation) {
+            this.id = other.id;
+            this.name = other.name;
+            this.lowerName = other.lowerName;
+            this.mask = other.mask;
+            this.humps = other.humps;
+            this.files = other.files.clone();
+            this.indexes = other.indexes.clone();
+            this.count = other.count;
+            this.generation = generation;
+        }
+
+        /**
+         * 添加声明
+         *
+         * @param fileSymbols 文件符号表
+         * @param index       文件内符号序号
+         */
+        void add(FileSymbols fileSymbols, int index) {
+            if (count == files.length) {
+                files = Arrays.copyOf(files, count * 2);
+                indexes = Arrays.copyOf(indexes, count * 2);
+            }
+            files[count] = fileSymbols;
+            indexes[count++] = index;
+        }
+
+        /**
+         * 删除文件中的声明
+         *
+         * @param fileSymbols 文件符号表
+         * @return 是否已没有声明
+         */
+        boolean remove(FileSymbols fileSymbols) {
+            int j = 0;
+            for (int i = 0; i < count; ++i) {
+                if (files[i] != fileSymbols) {
+                    files[j] = files[i];
+                    indexes[j++] = indexes[i];
+                }
+            }
+            Arrays.fill(files, j, count, null);
+            count = j;
+
+            return count == 0;
+        }
+    }
+
+    /**
+     * 匹配结果, 按得分降序、名称长度升序、名称升序排列
+     */
+    private static class Match implements Comparable<Match> {
+        private final Entry entry;
+        private final int score;
+
+        Match(Entry entry, int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Match other) {
+            if (score != other.score) {
+                return Integer.compare(other.score, score);
+            }
+
+            if (entry.name.length() != other.entry.name.length()) {
+                return Integer.compare(entry.name.length(), other.entry.name.length());
+            }
+
+            return entry.name.compareTo(other.entry.name);
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.furongsoft.ide.debugger.java;
+
+import com.furongsoft.ide.debugger.entities.Symbol;
+import org.eclipse.jdt.core.dom.*;
+
+import java.util.*;
+
+/**
+ * 大纲访问器
+ * <p>
+ * 不解析绑定, 只按语法收集类型、成员变量和方法的声明及类型的超类型, 用于打开项目时快速建立大纲和名称索引.
+ * 枚举常量按成员变量、注解成员按方法收集.
+ * 类型缩写依次按本文件声明的类型、单类型导入、java.lang包和当前包推导, 类型参数等与绑定类型缩写可能不一致,
+ * 文件首次被查询时解析绑定并整体替换.
+ *
+ * @author Alex
+ */
+public class OutlineVisitor extends ASTVisitor {
+    private final Context context;
+
+    /**
+     * 包路径, 如com/furongsoft/
+     */
+    private String packagePath = "";
+
+    /**
+     * 单类型导入: 简单名称 -> 类型缩写
+     */
+    private final Map<String, String> imports = new HashMap<>();
+
+    /**
+     * 本文件声明的类型: 简单名称 -> 类型缩写
+     */
+    private final Map<String, String> types = new HashMap<>();
+
+    /**
+     * 所在类型缩写, 栈顶为最内层类型
+     */
+    private final Deque<String> typeKeys = new ArrayDeque<>();
+
+    /**
+     * 所在类型和方法的类型参数名称
+     */
+    private final Deque<Set<String>> typeParameters = new ArrayDeque<>();
+
+    public OutlineVisitor(Context context) {
+        this.context = context;
+    }
+
+    @Override
+    public boolean visit(CompilationUnit node) {
+        if (node.getPackage() != null) {
+            packagePath = node.getPackage().getName().getFullyQualifiedName().replace('.', '/') + '/';
+        }
+
+        for (Object obj : node.imports()) {
+            ImportDeclaration declaration = (ImportDeclaration) obj;
+            if (!declaration.isOnDemand() && !declaration.isStatic()) {
+                String name = declaration.getName().getFullyQualifiedName();
+                imports.put(name.substring(name.lastIndexOf('.') + 1), "L" + name.replace('.', '/') + ";");
+            }
+        }
+
+        addTypes(node.types(), "L" + packagePath);
+
+        return super.visit(node);
+    }
+
+    @Override
+    public boolean visit(TypeDeclaration node) {
+        String key = beginType(node, node.typeParameters());
+
+        // 未声明超类时不记录java.lang.Object
+        if (node.getSuperclassType() != null) {
+            context.addSupertype(key, getTypeKey(node.getSuperclassType()));
+        }
+        for (Object obj : node.superInterfaceTypes()) {
+            context.addSupertype(key, getTypeKey((Type) obj));
+        }
+        return super.visit(node);
+    }
+
+    @Override
+    public void endVisit(TypeDeclaration node) {
+        endType();
+    }
+
+    @Override
+    public boolean visit(EnumDeclaration node) {
+        String key = beginType(node, Collections.emptyList());
+
+        // 枚举类型的超类为java.lang.Enum
+        context.addSupertype(key, "Ljava/lang/Enum;");
+        for (Object obj : node.superInterfaceTypes()) {
+            context.addSupertype(key, getTypeKey((Type) obj));
+        }
+        return super.visit(node);
+    }
+
+    @Override
+    public void endVisit(EnumDeclaration node) {
+        endType();
+    }
+
+    @Override
+    public boolean visit(EnumConstantDeclaration node) {
+        // 枚举常量作为成员变量, 类型为所在枚举类型: Lsub/Color;.RED)Lsub/Color;
+        String typeKey = typeKeys.peek();
+        String name = node.getName().getIdentifier();
+        context.addSymbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_MEMBER_VARIABLE, name, typeKey + "." + name + ")" + typeKey, node.getStartPosition(), node.getLength(),
+                node.getName().getStartPosition(), typeKey);
+
+        return false;
+    }
+
+    @Override
+    public boolean visit(AnnotationTypeDeclaration node) {
+        beginType(node, Collections.emptyList());
+        return super.visit(node);
+    }
+
+    @Override
+    public void endVisit(AnnotationTypeDeclaration node) {
+        endType();
+    }
+
+    @Override
+    public boolean visit(AnnotationTypeMemberDeclaration node) {
+        // 注解成员作为无参数方法: Lsub/Tag;.value()Ljava/lang/String;
+        String returnType = getTypeKey(node.getType());
+        context.addSymbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_METHOD, node.getName().getIdentifier(), typeKeys.peek() + "." + node.getName().getIdentifier() + "()" + returnType,
+                node.getStartPosition(), node.getLength(), node.getName().getStartPosition(), returnType);
+
+        return false;
+    }
+
+    @Override
+    public boolean visit(FieldDeclaration node) {
+        String typeKey = typeKeys.peek();
+        for (Object obj : node.fragments()) {
+            VariableDeclarationFragment v = (VariableDeclarationFragment) obj;
+            String valueType = getArrayPrefix(v.getExtraDimensions()) + getTypeKey(node.getType());
+            context.addSymbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_MEMBER_VARIABLE, v.getName().getIdentifier(), typeKey + "." + v.getName().getIdentifier() + ")" + valueType,
+                    node.getStartPosition(), node.getLength(), v.getName().getStartPosition(), valueType);
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean visit(MethodDeclaration node) {
+        typeParameters.push(getTypeParameters(node.typeParameters()));
+
+        // 构造方法的名称为空: Lsub/Test1;.(I)V
+        StringBuilder sb = new StringBuilder(typeKeys.peek()).append('.').append(node.isConstructor() ? "" : node.getName().getIdentifier()).append('(');
+        for (Object obj : node.parameters()) {
+            SingleVariableDeclaration v = (SingleVariableDeclaration) obj;
+            sb.append(getArrayPrefix(v.getExtraDimensions() + (v.isVarargs() ? 1 : 0))).append(getTypeKey(v.getType()));
+        }
+        String returnType = node.isConstructor() ? "V" : getArrayPrefix(node.getExtraDimensions()) + getTypeKey(node.getReturnType2());
+        sb.append(')').append(returnType);
+
+        context.addSymbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_METHOD, node.getName().getIdentifier(), sb.toString(), node.getStartPosition(), node.getLength(),
+                node.getName().getStartPosition(), returnType);
+
+        typeParameters.pop();
+        return false;
+    }
+
+    @Override
+    public boolean visit(Initializer node) {
+        return false;
+    }
+
+    /**
+     * 添加类型声明并进入类型
+     *
+     * @param node           类型声明
+     * @param typeParameters 类型参数列表
+     * @return 类型缩写
+     */
+    private String beginType(AbstractTypeDeclaration node, List<?> typeParameters) {
+        String name = node.getName().getIdentifier();
+        String key = typeKeys.isEmpty() ? "L" + packagePath + name + ";" : getNestedKey(typeKeys.peek(), name);
+        context.addSymbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_TYPE, name, key, node.getStartPosition(), node.getLength(), node.getName().getStartPosition(), null);
+
+        typeKeys.push(key);
+        this.typeParameters.push(getTypeParameters(typeParameters));
+
+        return key;
+    }
+
+    /**
+     * 离开类型
+     */
+    private void endType() {
+        typeKeys.pop();
+        typeParameters.pop();
+    }
+
+    /**
+     * 登记本文件声明的类型及其嵌套类型
+     *
+     * @param declarations 类型声明列表
+     * @param prefix       类型缩写前缀, 如Lsub/或Lsub/Outer$
+     */
+    private void addTypes(List<?> declarations, String prefix) {
+        for (Object obj : declarations) {
+            if (obj instanceof AbstractTypeDeclaration) {
+                AbstractTypeDeclaration declaration = (AbstractTypeDeclaration) obj;
+                String name = declaration.getName().getIdentifier();
+                types.putIfAbsent(name, prefix + name + ";");
+                addTypes(declaration.bodyDeclarations(), prefix + name + "$");
+            }
+        }
+    }
+
+    /**
+     * 获取类型的类型缩写
+     *
+     * @param type 类型
+     * @return 类型缩写(不含类型参数)
+     */
+    private String getTypeKey(Type type) {
+        if (type == null) {
+            return "V";
+        } else if (type.isPrimitiveType()) {
+            return getPrimitiveKey(((PrimitiveType) type).getPrimitiveTypeCode());
+        } else if (type.isArrayType()) {
+            ArrayType arrayType = (ArrayType) type;
+            return getArrayPrefix(arrayType.getDimensions()) + getTypeKey(arrayType.getElementType());
+        } else if (type.isParameterizedType()) {
+            return getTypeKey(((ParameterizedType) type).getType());
+        } else if (type.isSimpleType()) {
+            return getTypeKey(((SimpleType) type).getName().getFullyQualifiedName());
+        } else if (type.isQualifiedType()) {
+            QualifiedType qualifiedType = (QualifiedType) type;
+            String qualifier = getTypeKey(qualifiedType.getQualifier());
+            return getNestedKey(qualifier, qualifiedType.getName().getIdentifier());
+        } else if (type.isNameQualifiedType()) {
+            NameQualifiedType qualifiedType = (NameQualifiedType) type;
+            return getTypeKey(qualifiedType.getQualifier().getFullyQualifiedName() + "." + qualifiedType.getName().getIdentifier());
+        }
+
+        return "Ljava/lang/Object;";
+    }
+
+    /**
+     * 按名称推导类型缩写
+     *
+     * @param name 类型名称, 如List、Map.Entry或java.util.List
+     * @return 类型缩写
+     */
+    private String getTypeKey(String name) {
+        int dot = name.indexOf('.');
+        String first = (dot < 0) ? name : name.substring(0, dot);
+        if ((dot < 0) && isTypeParameter(name)) {
+            return "T" + name + ";";
+        }
+
+        String key = types.containsKey(first) ? types.get(first) : imports.get(first);
+        if ((key == null) && isRuntimeType(first)) {
+            key = "Ljava/lang/" + first + ";";
+        }
+
+        if (key != null) {
+            return (dot < 0) ? key : key.substring(0, key.length() - 1) + "$" + name.substring(dot + 1).replace('.', '$') + ";";
+        }
+
+        return (dot < 0) ? "L" + packagePath + name + ";" : "L" + name.replace('.', '/') + ";";
+    }
+
+    /**
+     * 是否为所在类型或方法的类型参数
+     *
+     * @param name 名称
+     * @return 是否为类型参数
+     */
+    private boolean isTypeParameter(String name) {
+        for (Set<String> names : typeParameters) {
+            if (names.contains(name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 是否为java.lang包中的类型
+     *
+     * @param name 简单名称
+     * @return 是否为java.lang包中的类型
+     */
+    private boolean isRuntimeType(String name) {
+        String key = "Ljava/lang/" + name + ";";
+        for (LibraryIndex library : context.getLibraries()) {
+            if (library.getSubType(key) == Symbol.SYMBOL_SUB_TYPE_TYPE) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 获取类型参数名称
+     *
+     * @param parameters 类型参数列表
+     * @return 名称集合
+     */
+    private static Set<String> getTypeParameters(List<?> parameters) {
+        Set<String> result = new HashSet<>();
+        for (Object obj : parameters) {
+            result.add(((TypeParameter) obj).getName().getIdentifier());
+        }
+
+        return result;
+    }
+
+    /**
+     * 获取嵌套类型缩写
+     *
+     * @param outer 外部类型缩写, 如Lsub/Outer;
+     * @param name  嵌套类型名称
+     * @return 嵌套类型缩写, 如Lsub/Outer$Inner;
+     */
+    private static String getNestedKey(String outer, String name) {
+        return outer.substring(0, outer.length() - 1) + "$" + name + ";";
+    }
+
+    /**
+     * 获取数组维数前缀
+     *
+     * @param dimensions 维数
+     * @return 前缀, 如[[
+     */
+    private static String getArrayPrefix(int dimensions) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < dimensions; ++i) {
+            sb.append('[');
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * 获取基本类型缩写
+     *
+     * @param code 基本类型
+     * @return 类型缩写
+     */
+    private static String getPrimitiveKey(PrimitiveType.Code code) {
+        switch (code.toString()) {
+            case "boolean":
+                return "Z";
+            case "byte":
+                return "B";
+            case "char":
+                return "C";
+            case "short":
+                return "S";
+            case "int":
+                return "I";
+            case "long":
+                return "J";
+            case "float":
+                return "F";
+            case "double":
+                return "D";
+            default:
+                return "V";
+        }
+    }
+}
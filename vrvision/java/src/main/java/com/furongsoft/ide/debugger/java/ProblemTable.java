@@ -0,0 +1,104 @@
+package com.furongsoft.ide.debugger.java;
+
+import com.furongsoft.ide.debugger.entities.Diagnostic;
+import lombok.Getter;
+import org.eclipse.jdt.core.compiler.IProblem;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+/**
+ * 问题表
+ * <p>
+ * 以列式数组保存语法解析和绑定解析时发现的错误和警告, 解析完成后不保留编译单元, 行号和列号在查询时由行首位置表计算.
+ *
+ * @author Alex
+ */
+@Getter
+public class ProblemTable {
+    /**
+     * 空问题表
+     */
+    public static final ProblemTable EMPTY = new ProblemTable(new int[0], new byte[0], new int[0], new int[0], new String[0]);
+
+    /**
+     * 问题编号列表
+     */
+    private final int[] ids;
+
+    /**
+     * 严重程度列表
+     */
+    private final byte[] severities;
+
+    /**
+     * 位置列表
+     */
+    private final int[] positions;
+
+    /**
+     * 长度列表
+     */
+    private final int[] lengths;
+
+    /**
+     * 描述列表
+     */
+    private final String[] messages;
+
+    public ProblemTable(int[] ids, byte[] severities, int[] positions, int[] lengths, String[] messages) {
+        this.ids = ids;
+        this.severities = severities;
+        this.positions = positions;
+        this.lengths = lengths;
+        this.messages = messages;
+    }
+
+    /**
+     * 从编译单元创建问题表
+     *
+     * @param compilationUnit 编译单元
+     * @return 问题表
+     */
+    public static ProblemTable create(CompilationUnit compilationUnit) {
+        IProblem[] problems = compilationUnit.getProblems();
+        if (problems.length == 0) {
+            return EMPTY;
+        }
+
+        int[] ids = new int[problems.length];
+        byte[] severities = new byte[problems.length];
+        int[] positions = new int[problems.length];
+        int[] lengths = new int[problems.length];
+        String[] messages = new String[problems.length];
+        for (int i = 0; i < problems.length; ++i) {
+            IProblem problem = problems[i];
+            ids[i] = problem.getID();
+            severities[i] = (byte) (problem.isError() ? Diagnostic.SEVERITY_ERROR : problem.isWarning() ? Diagnostic.SEVERITY_WARNING : Diagnostic.SEVERITY_INFO);
+            positions[i] = Math.max(0, problem.getSourceStart());
+            lengths[i] = Math.max(0, problem.getSourceEnd() - problem.getSourceStart() + 1);
+            messages[i] = problem.getMessage();
+        }
+
+        return new ProblemTable(ids, severities, positions, lengths, messages);
+    }
+
+    /**
+     * 获取问题数量
+     *
+     * @return 问题数量
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * 创建诊断信息
+     *
+     * @param i          问题序号
+     * @param sourcePath 源代码路径
+     * @param lineTable  行首位置表
+     * @return 诊断信息
+     */
+    public Diagnostic getDiagnostic(int i, String sourcePath, LineTable lineTable) {
+        return new Diagnostic(severities[i], ids[i], messages[i], sourcePath, positions[i], lengths[i], lineTable.getLineNumber(positions[i]), lineTable.getColumnNumber(positions[i]));
+    }
+}
@@ -0,0 +1,1009 @@
+package com.furongsoft.ide.debugger.java;
+
+import com.furongsoft.ide.debugger.entities.CallHierarchy;
+import com.furongsoft.ide.debugger.entities.Diagnostic;
+import com.furongsoft.ide.debugger.entities.FileEdits;
+import com.furongsoft.ide.debugger.entities.SemanticTokens;
+import com.furongsoft.ide.debugger.entities.Symbol;
+import com.furongsoft.ide.debugger.entities.TextEdit;
+import com.furongsoft.ide.debugger.entities.TypeHierarchy;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * 符号表快照
+ * <p>
+ * 分析或增量分析完成时由上下文生成, 生成后不再修改, 查询无需加锁. 快照与上下文共享不可变的文件符号表和字符串表,
+ * 文件符号表对照表、符号定义表和名称索引在上下文下次修改时才复制, 因此生成快照的开销与修改量无关.
+ *
+ * @author Alex
+ */
+@Getter
+public class Snapshot {
+    /**
+     * 调用层次和类型层次最多展开的节点数
+     */
+    private static final int MAX_HIERARCHY_NODES = 1000;
+
+    /**
+     * 调用层次和类型层次最大深度
+     */
+    private static final int MAX_HIERARCHY_DEPTH = 32;
+
+    /**
+     * 版本
+     */
+    private final long version;
+
+    /**
+     * 字符串表
+     */
+    private final StringTable strings;
+
+    /**
+     * 文件符号表
+     */
+    private final Map<String, FileSymbols> files;
+
+    /**
+     * 符号定义表: 符号类型缩写序号 -> 源代码相对路径序号 + 1
+     */
+    private final int[] declarationFiles;
+
+    /**
+     * 符号定义表: 符号类型缩写序号 -> 文件内符号序号
+     */
+    private final int[] declarationIndexes;
+
+    /**
+     * 类库索引列表
+     */
+    private final List<LibraryIndex> libraries;
+
+    /**
+     * 符号名称索引
+     */
+    private final NameIndex nameIndex;
+
+    /**
+     * 尚未解析绑定的源代码相对路径集合
+     */
+    private final Set<String> unresolvedFiles;
+
+    /**
+     * 已淘汰绑定的源代码相对路径集合, 其中的文件保留上次解析绑定时的问题
+     */
+    private final Set<String> evictedFiles;
+
+    /**
+     * 方法调用图, 首次查询调用层次时建立
+     */
+    @Getter(AccessLevel.NONE)
+    private volatile CallGraph callGraph;
+
+    /**
+     * 类型继承索引, 首次查询类型层次时建立
+     */
+    @Getter(AccessLevel.NONE)
+    private volatile SubtypeIndex subtypeIndex;
+
+    public Snapshot(long version, StringTable strings, Map<String, FileSymbols> files, int[] declarationFiles, int[] declarationIndexes, List<LibraryIndex> libraries, NameIndex nameIndex,
+                    Set<String> unresolvedFiles, Set<String> evictedFiles) {
+        this.version = version;
+        this.strings = strings;
+        this.files = Collections.unmodifiableMap(files);
+        this.declarationFiles = declarationFiles;
+        this.declarationIndexes = declarationIndexes;
+        this.libraries = libraries;
+        this.nameIndex = nameIndex;
+        this.unresolvedFiles = Collections.unmodifiableSet(unresolvedFiles);
+        this.evictedFiles = Collections.unmodifiableSet(evictedFiles);
+    }
+
+    /**
+     * 文件是否已解析绑定
+     *
+     * @param sourcePath 源代码相对路径
+     * @return 是否已解析绑定, 未分析的文件视为已解析
+     */
+    public boolean isResolved(String sourcePath) {
+        return !unresolvedFiles.contains(sourcePath);
+    }
+
+    /**
+     * 获取问题尚未经过绑定检查的文件
+     * <p>
+     * 大纲只含语法问题, 淘汰绑定的文件保留上次解析绑定时的问题, 因此只有从未解析或变化后未解析的文件需要解析.
+     *
+     * @return 源代码相对路径列表, 按路径排序
+     */
+    public List<String> getUncheckedFiles() {
+        List<String> result = new ArrayList<>();
+        for (String sourcePath : unresolvedFiles) {
+            if (!evictedFiles.contains(sourcePath)) {
+                result.add(sourcePath);
+            }
+        }
+        Collections.sort(result);
+
+        return result;
+    }
+
+    /**
+     * 获取位置处符号所属类型的声明文件, 仅当该文件尚未解析绑定时返回
+     * <p>
+     * 已解析文件中的引用使用绑定类型缩写, 只有声明文件也解析绑定后才能与其中的声明对应.
+     *
+     * @param sourcePath 源代码路径
+     * @param position   位置
+     * @return 未解析绑定的声明文件源代码相对路径, 不存在或已解析时返回null
+     */
+    public String getUnresolvedDeclarationFile(String sourcePath, int position) {
+        FileSymbols fileSymbols = files.get(sourcePath);
+        int i = ((fileSymbols == null) || unresolvedFiles.isEmpty()) ? -1 : fileSymbols.find(position);
+        if (i < 0) {
+            return null;
+        }
+
+        String key = strings.get(fileSymbols.getKeys()[i]);
+        if (!key.startsWith("L")) {
+            return null;
+        }
+
+        int type = strings.find(LibraryIndex.eraseType(key.substring(0, LibraryIndex.skipType(key, 0))));
+        if ((type < 0) || (type >= declarationFiles.length) || (declarationFiles[type] == 0)) {
+            return null;
+        }
+
+        String declarationFile = strings.get(declarationFiles[type] - 1);
+        return unresolvedFiles.contains(declarationFile) ? declarationFile : null;
+    }
+
+    /**
+     * 获取源代码位置
+     *
+     * @param sourcePath   源代码相对路径
+     * @param lineNumber   行号
+     * @param columnNumber 列号
+     * @return 位置, 无效时返回-1
+     */
+    public int getPosition(String sourcePath, int lineNumber, int columnNumber) {
+        FileSymbols fileSymbols = files.get(sourcePath);
+        return (fileSymbols == null) ? -1 : fileSymbols.getLineTable().getPosition(lineNumber, columnNumber);
+    }
+
+    /**
+     * 获取符号
+     *
+     * @param sourcePath 源代码路径
+     * @param position   位置
+     * @return 符号
+     */
+    public Symbol getSymbol(String sourcePath, int position) {
+        FileSymbols fileSymbols = files.get(sourcePath);
+        if (fileSymbols == null) {
+            return null;
+        }
+
+        int i = fileSymbols.find(position);
+
+        return (i < 0) ? null : fileSymbols.getSymbol(i, strings);
+    }
+
+    /**
+     * 获取符号定义
+     *
+     * @param sourcePath 源代码路径
+     * @param position   位置
+     * @return 符号定义
+     */
+    public Symbol getDeclarationSymbol(String sourcePath, int position) {
+        FileSymbols fileSymbols = files.get(sourcePath);
+        if (fileSymbols == null) {
+            return null;
+        }
+
+        int i = fileSymbols.find(position);
+        if (i < 0) {
+            return null;
+        }
+
+        return getDeclarationSymbol(fileSymbols.getKeys()[i]);
+    }
+
+    /**
+     * 获取符号定义
+     *
+     * @param key 符号类型缩写序号
+     * @return 符号定义
+     */
+    public Symbol getDeclarationSymbol(int key) {
+        if (key < 0) {
+            return null;
+        }
+
+        if ((key >= declarationFiles.length) || (declarationFiles[key] == 0)) {
+            return getLibrarySymbol(key);
+        }
+
+        FileSymbols fileSymbols = files.get(strings.get(declarationFiles[key] - 1));
+
+        return (fileSymbols == null) ? null : fileSymbols.getSymbol(declarationIndexes[key], strings);
+    }
+
+    /**
+     * 获取变量符号序号
+     *
+     * @param sourcePath 源代码路径
+     * @param position   位置
+     * @return 位置处符号的变量符号类型缩写序号, 与调试器中变量的符号类型缩写序号一致, 不存在时返回-1
+     */
+    public int getVariableId(String sourcePath, int position) {
+        FileSymbols fileSymbols = files.get(sourcePath);
+        int i = (fileSymbols == null) ? -1 : fileSymbols.find(position);
+        if (i < 0) {
+            return -1;
+        }
+
+        int key = fileSymbols.getKeys()[i];
+        String value = strings.get(key);
+        String variableKey = SymbolKeys.getVariableKey(value);
+
+        return (variableKey.equals(value)) ? key : strings.find(variableKey);
+    }
+
+    /**
+     * 按名称查找声明符号
+     *
+     * @param query 查询字符串
+     * @param limit 最多返回的符号数量
+     * @return 声明符号列表
+     */
+    public List<Symbol> searchSymbols(String query, int limit) {
+        return nameIndex.search(query, limit, strings);
+    }
+
+    /**
+     * 获取位置处符号的符号类型缩写序号
+     *
+     * @param sourcePath 源代码路径
+     * @param position   位置
+     * @return 符号类型缩写序号, 不存在时返回-1
+     */
+    public int getKey(String sourcePath, int position) {
+        FileSymbols fileSymbols = files.get(sourcePath);
+        int i = (fileSymbols == null) ? -1 : fileSymbols.find(position);
+
+        return (i < 0) ? -1 : fileSymbols.getKeys()[i];
+    }
+
+    /**
+     * 获取可能引用指定符号的文件
+     * <p>
+     * 已解析的文件按符号表判断; 未解析的文件只有大纲, 由调用方按源代码内容判断. 局部变量只在声明所在文件中引用.
+     *
+     * @param sourcePath 符号所在源代码路径
+     * @param key        符号类型缩写序号
+     * @param filter     未解析文件的判断条件
+     * @return 源代码相对路径列表, 按路径排序
+     */
+    public List<String> getReferenceFiles(String sourcePath, int key, Predicate<String> filter) {
+        if (strings.get(key).indexOf('#') >= 0) {
+            return files.containsKey(sourcePath) ? Collections.singletonList(sourcePath) : Collections.emptyList();
+        }
+
+        List<String> result = new ArrayList<>();
+        for (FileSymbols fileSymbols : files.values()) {
+            String path = fileSymbols.getSourcePath();
+            if (unresolvedFiles.contains(path) ? filter.test(path) : fileSymbols.containsKey(key)) {
+                result.add(path);
+            }
+        }
+        Collections.sort(result);
+
+        return result;
+    }
+
+    /**
+     * 获取文件中指定符号的引用
+     *
+     * @param sourcePath 源代码路径
+     * @param key        符号类型缩写序号
+     * @return 引用符号列表, 按位置排序
+     */
+    public List<Symbol> getReferences(String sourcePath, int key) {
+        List<Symbol> result = new ArrayList<>();
+        FileSymbols fileSymbols = files.get(sourcePath);
+        if ((fileSymbols == null) || !fileSymbols.containsKey(key)) {
+            return result;
+        }
+
+        int[] keys = fileSymbols.getKeys();
+        byte[] types = fileSymbols.getTypes();
+        for (int i = 0; i < keys.length; ++i) {
+            if ((keys[i] == key) && (types[i] == Symbol.SYMBOL_TYPE_REFS)) {
+                result.add(fileSymbols.getSymbol(i, strings));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 获取调用层次
+     * <p>
+     * 从指定位置的方法调用或所在的方法声明开始, 沿调用图展开到指定深度. 递归调用只展开一次, 展开的节点总数有上限.
+     *
+     * @param sourcePath 源代码路径
+     * @param position   位置
+     * @param depth      展开深度
+     * @param incoming   是否为呼入层次, 否则为呼出层次
+     * @return 调用层次根节点, 位置不在方法中时返回null
+     */
+    public CallHierarchy getCallHierarchy(String sourcePath, int position, int depth, boolean incoming) {
+        FileSymbols fileSymbols = files.get(sourcePath);
+        int method = (fileSymbols == null) ? -1 : getKey(fileSymbols, position, Symbol.SYMBOL_SUB_TYPE_METHOD);
+        if (method < 0) {
+            return null;
+        }
+
+        int[] budget = {MAX_HIERARCHY_NODES};
+
+        return createCallHierarchy(method, new ArrayList<>(), Math.min(depth, MAX_HIERARCHY_DEPTH), incoming, new HashSet<>(), budget);
+    }
+
+    /**
+     * 获取方法调用图
+     * <p>
+     * 各文件的调用边在文件符号表中缓存, 建立调用图只需合并调用边, 无需重新解析源代码.
+     *
+     * @return 方法调用图
+     */
+    public CallGraph getCallGraph() {
+        CallGraph graph = callGraph;
+        if (graph == null) {
+            graph = new CallGraph(files.values());
+            callGraph = graph;
+        }
+
+        return graph;
+    }
+
+    /**
+     * 获取类型层次
+     * <p>
+     * 从指定位置的类型引用或所在的类型声明开始, 沿继承关系展开到指定深度, 展开的节点总数有上限.
+     *
+     * @param sourcePath 源代码路径
+     * @param position   位置
+     * @param depth      展开深度
+     * @param subtypes   是否为子类型层次, 否则为超类型层次
+     * @return 类型层次根节点, 位置不在类型中时返回null
+     */
+    public TypeHierarchy getTypeHierarchy(String sourcePath, int position, int depth, boolean subtypes) {
+        FileSymbols fileSymbols = files.get(sourcePath);
+        int type = (fileSymbols == null) ? -1 : getKey(fileSymbols, position, Symbol.SYMBOL_SUB_TYPE_TYPE);
+        if (type < 0) {
+            return null;
+        }
+
+        SubtypeIndex index = getSubtypeIndex();
+        int node = index.find(strings.get(type));
+        if (node < 0) {
+            return new TypeHierarchy(getTypeSymbol(type), new ArrayList<>());
+        }
+
+        int[] budget = {MAX_HIERARCHY_NODES};
+
+        return createTypeHierarchy(index, node, Math.min(depth, MAX_HIERARCHY_DEPTH), subtypes, new HashSet<>(), budget);
+    }
+
+    /**
+     * 查找实现
+     * <p>
+     * 位置处为方法时返回全部子类型中覆盖该方法的方法声明, 否则返回所在类型的全部子类型声明.
+     * 基类方法参数为类型变量时, 子类型方法的对应参数为任意引用类型即可, 如Box&lt;T&gt;.put(T)与IntBox.put(Integer).
+     *
+     * @param sourcePath 源代码路径
+     * @param position   位置
+     * @return 按源代码路径和位置排序的声明符号列表, 位置不在类型中时返回null
+     */
+    public List<Symbol> findImplementations(String sourcePath, int position) {
+        FileSymbols fileSymbols = files.get(sourcePath);
+        if (fileSymbols == null) {
+            return null;
+        }
+
+        SubtypeIndex index = getSubtypeIndex();
+        List<Symbol> result = new ArrayList<>();
+        int i = fileSymbols.find(position);
+        if ((i >= 0) && (fileSymbols.getSubTypes()[i] == Symbol.SYMBOL_SUB_TYPE_METHOD)) {
+            // Lsub/Box<TT;>;.put(TT;)V -> Lsub/Box<TT;>;, .put(TT;)V
+            String key = strings.get(fileSymbols.getKeys()[i]);
+            int end = LibraryIndex.skipType(key, 0);
+            int node = ((end > 0) && (end < key.length()) && (key.charAt(end) == '.')) ? index.find(key.substring(0, end)) : -1;
+            for (int subtype : (node < 0) ? new int[0] : index.getAllSubtypes(node)) {
+                int typeKey = index.getKey(subtype);
+                FileSymbols declarationFile = getDeclarationFile(typeKey);
+                if (declarationFile == null) {
+                    continue;
+                }
+
+                for (int j : declarationFile.getMembers(LibraryIndex.eraseType(strings.get(typeKey)), strings)) {
+                    String member = strings.get(declarationFile.getKeys()[j]);
+                    if ((declarationFile.getSubTypes()[j] == Symbol.SYMBOL_SUB_TYPE_METHOD) && overrides(member.substring(LibraryIndex.skipType(member, 0)), key.substring(end))) {
+                        result.add(declarationFile.getSymbol(j, strings));
+                    }
+                }
+            }
+        } else {
+            int type = getKey(fileSymbols, position, Symbol.SYMBOL_SUB_TYPE_TYPE);
+            if (type < 0) {
+                return null;
+            }
+
+            int node = index.find(strings.get(type));
+            for (int subtype : (node < 0) ? new int[0] : index.getAllSubtypes(node)) {
+                Symbol symbol = getDeclarationSymbol(index.getKey(subtype));
+                if (symbol != null) {
+                    result.add(symbol);
+                }
+            }
+        }
+
+        result.sort(Comparator.comparing(Symbol::getSourcePath).thenComparingInt(Symbol::getPosition));
+
+        return result;
+    }
+
+    /**
+     * 获取重命名修改
+     * <p>
+     * 由符号表直接得到声明和全部引用的名称位置, 无需重新扫描源代码. 方法同时重命名继承关系中覆盖或被覆盖的同名方法,
+     * 类型同时重命名其构造方法, 位置在构造方法名称上时重命名所在类型. 与文件同名的顶层类型需要移动文件, 不支持重命名.
+     *
+     * @param sourcePath 源代码路径
+     * @param position   位置, 须在符号名称上
+     * @param newName    新名称
+     * @return 文件修改列表, 按源代码路径排序; 位置不在源代码中声明的符号名称上时返回null
+     */
+    public List<FileEdits> getRenameEdits(String sourcePath, int position, String newName) {
+        FileSymbols fileSymbols = files.get(sourcePath);
+        int i = (fileSymbols == null) ? -1 : fileSymbols.find(position);
+        if (i < 0) {
+            return null;
+        }
+
+        int name = fileSymbols.getNames()[i];
+        int namePosition = fileSymbols.getNamePositions()[i];
+        if ((namePosition < 0) || (position < namePosition) || (position > namePosition + strings.get(name).length())) {
+            return null;
+        }
+
+        Set<Integer> keys = getRenameKeys(fileSymbols.getKeys()[i]);
+        if (keys == null) {
+            return null;
+        }
+
+        List<FileEdits> result = new ArrayList<>();
+        int length = strings.get(name).length();
+        for (FileSymbols other : files.values()) {
+            if (keys.stream().noneMatch(other::containsKey)) {
+                continue;
+            }
+
+            // 方法调用符号与其名称符号位置相同, 按名称位置去重
+            TreeSet<Integer> positions = new TreeSet<>();
+            for (int j = 0; j < other.size(); ++j) {
+                if ((other.getNames()[j] == name) && (other.getNamePositions()[j] >= 0) && keys.contains(other.getKeys()[j])) {
+                    positions.add(other.getNamePositions()[j]);
+                }
+            }
+
+            List<TextEdit> edits = new ArrayList<>();
+            LineTable lineTable = other.getLineTable();
+            for (int p : positions) {
+                edits.add(new TextEdit(p, length, lineTable.getLineNumber(p), lineTable.getColumnNumber(p), newName));
+            }
+            if (!edits.isEmpty()) {
+                result.add(new FileEdits(other.getSourcePath(), edits));
+            }
+        }
+        result.sort(Comparator.comparing(FileEdits::getSourcePath));
+
+        return result;
+    }
+
+    /**
+     * 获取重命名时需要一起修改的符号
+     *
+     * @param key 符号类型缩写序号
+     * @return 符号类型缩写序号集合, 符号不在源代码中声明或不支持重命名时返回null
+     */
+    private Set<Integer> getRenameKeys(int key) {
+        FileSymbols declarationFile = getDeclarationFile(key);
+        if (declarationFile == null) {
+            return null;
+        }
+
+        int i = declarationIndexes[key];
+        String value = strings.get(key);
+        Set<Integer> result = new HashSet<>();
+        result.add(key);
+        switch (declarationFile.getSubTypes()[i]) {
+            case Symbol.SYMBOL_SUB_TYPE_METHOD:
+                // Lsub/Box<TT;>;.(TT;)V -> Lsub/Box<TT;>;
+                int end = LibraryIndex.skipType(value, 0);
+                if (value.startsWith(".(", end)) {
+                    return getRenameKeys(strings.find(value.substring(0, end)));
+                }
+
+                addOverrides(value.substring(0, end), value.substring(end), result);
+                return result;
+            case Symbol.SYMBOL_SUB_TYPE_TYPE:
+                String type = LibraryIndex.eraseType(value);
+                String fileName = declarationFile.getSourcePath().substring(declarationFile.getSourcePath().lastIndexOf('/') + 1);
+                if ((type.indexOf('$') < 0) && fileName.equals(strings.get(declarationFile.getNames()[i]) + ".java")) {
+                    return null;
+                }
+
+                for (int j : declarationFile.getMembers(type, strings)) {
+                    String member = strings.get(declarationFile.getKeys()[j]);
+                    if ((declarationFile.getSubTypes()[j] == Symbol.SYMBOL_SUB_TYPE_METHOD) && member.startsWith(".(", LibraryIndex.skipType(member, 0))) {
+                        result.add(declarationFile.getKeys()[j]);
+                    }
+                }
+                return result;
+            case Symbol.SYMBOL_SUB_TYPE_MEMBER_VARIABLE:
+            case Symbol.SYMBOL_SUB_TYPE_LOCAL_VARIABLE:
+                return result;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 添加继承关系中覆盖或被覆盖的方法
+     * <p>
+     * 先找到声明了同名方法的全部超类型, 再从这些类型向下收集覆盖方法.
+     *
+     * @param type      方法所在类型缩写
+     * @param signature 方法签名, 如.put(TT;)V
+     * @param result    符号类型缩写序号集合
+     */
+    private void addOverrides(String type, String signature, Set<Integer> result) {
+        SubtypeIndex index = getSubtypeIndex();
+        int node = index.find(type);
+        if (node < 0) {
+            return;
+        }
+
+        Set<Integer> supertypes = new HashSet<>();
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            int current = stack.pop();
+            if (supertypes.add(current)) {
+                for (int supertype : index.getSupertypes(current)) {
+                    stack.push(supertype);
+                }
+            }
+        }
+
+        Set<Integer> visited = new HashSet<>();
+        for (int supertype : supertypes) {
+            if (!addMethods(index.getKey(supertype), signature, result) && (supertype != node)) {
+                continue;
+            }
+
+            for (int subtype : index.getAllSubtypes(supertype)) {
+                if (visited.add(subtype)) {
+                    addMethods(index.getKey(subtype), signature, result);
+                }
+            }
+        }
+    }
+
+    /**
+     * 添加类型中与方法签名互相覆盖的方法
+     *
+     * @param typeKey   类型符号类型缩写序号
+     * @param signature 方法签名
+     * @param result    符号类型缩写序号集合
+     * @return 是否添加了方法
+     */
+    private boolean addMethods(int typeKey, String signature, Set<Integer> result) {
+        FileSymbols declarationFile = getDeclarationFile(typeKey);
+        if (declarationFile == null) {
+            return false;
+        }
+
+        boolean found = false;
+        for (int j : declarationFile.getMembers(LibraryIndex.eraseType(strings.get(typeKey)), strings)) {
+            String member = strings.get(declarationFile.getKeys()[j]);
+            member = member.substring(LibraryIndex.skipType(member, 0));
+            if ((declarationFile.getSubTypes()[j] == Symbol.SYMBOL_SUB_TYPE_METHOD) && (overrides(member, signature) || overrides(signature, member))) {
+                result.add(declarationFile.getKeys()[j]);
+                found = true;
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * 获取类型继承索引
+     *
+     * @return 类型继承索引
+     */
+    public SubtypeIndex getSubtypeIndex() {
+        SubtypeIndex index = subtypeIndex;
+        if (index == null) {
+            index = new SubtypeIndex(files.values(), strings);
+            subtypeIndex = index;
+        }
+
+        return index;
+    }
+
+    /**
+     * 获取诊断信息
+     *
+     * @param sourcePath 源代码路径, 为空时返回所有文件的诊断信息
+     * @return 按源代码路径和位置排序的诊断信息列表, 文件不存在时返回null
+     */
+    public List<Diagnostic> getDiagnostics(String sourcePath) {
+        if (sourcePath != null) {
+            FileSymbols fileSymbols = files.get(sourcePath);
+            return (fileSymbols == null) ? null : fileSymbols.getDiagnostics();
+        }
+
+        List<FileSymbols> list = new ArrayList<>();
+        for (FileSymbols fileSymbols : files.values()) {
+            if (fileSymbols.getProblems().size() > 0) {
+                list.add(fileSymbols);
+            }
+        }
+        list.sort(Comparator.comparing(FileSymbols::getSourcePath));
+
+        List<Diagnostic> result = new ArrayList<>();
+        for (FileSymbols fileSymbols : list) {
+            result.addAll(fileSymbols.getDiagnostics());
+        }
+
+        return result;
+    }
+
+    /**
+     * 获取语义令牌
+     * <p>
+     * 只编码名称位置在指定行范围内的符号, 声明和名称符号位于同一标识符时合并为一个令牌.
+     *
+     * @param sourcePath      源代码路径
+     * @param startLineNumber 起始行号
+     * @param endLineNumber   结束行号(含)
+     * @return 语义令牌, 文件不存在时返回null
+     */
+    public SemanticTokens getSemanticTokens(String sourcePath, int startLineNumber, int endLineNumber) {
+        FileSymbols fileSymbols = files.get(sourcePath);
+        if (fileSymbols == null) {
+            return null;
+        }
+
+        LineTable lineTable = fileSymbols.getLineTable();
+        int[] lineStarts = lineTable.getLineStarts();
+        int first = Math.max(1, startLineNumber);
+        int last = Math.min(lineStarts.length, endLineNumber);
+        if (first > last) {
+            return new SemanticTokens(version, new int[0]);
+        }
+
+        // 名称位于符号范围内, 起始位置不小于结束位置的符号不必检查
+        int begin = lineStarts[first - 1];
+        int end = (last < lineStarts.length) ? lineStarts[last] : Integer.MAX_VALUE;
+        int[] positions = fileSymbols.getPositions();
+        int[] namePositions = fileSymbols.getNamePositions();
+        long[] order = new long[16];
+        int count = 0;
+        for (int i = 0; (i < positions.length) && (positions[i] < end); ++i) {
+            if ((namePositions[i] >= begin) && (namePositions[i] < end)) {
+                if (count == order.length) {
+                    order = Arrays.copyOf(order, count * 2);
+                }
+                order[count++] = ((long) namePositions[i] << 32) | i;
+            }
+        }
+        Arrays.sort(order, 0, count);
+
+        byte[] types = fileSymbols.getTypes();
+        byte[] subTypes = fileSymbols.getSubTypes();
+        int[] names = fileSymbols.getNames();
+        int[] data = new int[count * 5];
+        int size = 0;
+        int previousPosition = -1;
+        int previousLine = 0;
+        int previousColumn = 0;
+        for (int j = 0; j < count; ++j) {
+            int i = (int) order[j];
+            int position = (int) (order[j] >>> 32);
+            int modifiers = (types[i] == Symbol.SYMBOL_TYPE_DECLARATION) ? SemanticTokens.TOKEN_MODIFIER_DECLARATION : 0;
+            if (position == previousPosition) {
+                data[size - 1] |= modifiers;
+                continue;
+            }
+
+            int length = getTokenLength(strings.get(names[i]));
+            if (length == 0) {
+                continue;
+            }
+
+            int line = lineTable.getLineNumber(position) - 1;
+            int column = position - lineStarts[line];
+            data[size++] = line - previousLine;
+            data[size++] = (line == previousLine) ? column - previousColumn : column;
+            data[size++] = length;
+            data[size++] = subTypes[i];
+            data[size++] = modifiers;
+            previousPosition = position;
+            previousLine = line;
+            previousColumn = column;
+        }
+
+        return new SemanticTokens(version, Arrays.copyOf(data, size));
+    }
+
+    /**
+     * 获取令牌长度
+     *
+     * @param name 符号名称
+     * @return 名称标识符长度, 如List&lt;String&gt; -> 4
+     */
+    private static int getTokenLength(String name) {
+        int length = 0;
+        while ((length < name.length()) && (name.charAt(length) != '<') && (name.charAt(length) != '[')) {
+            length++;
+        }
+
+        return length;
+    }
+
+    /**
+     * 获取指定位置的方法或类型
+     *
+     * @param fileSymbols 文件符号表
+     * @param position    位置
+     * @param subType     子类型, 方法或类型
+     * @return 位置处引用或声明的符号类型缩写序号, 否则为包含位置的最内层声明, 不存在时返回-1
+     */
+    private static int getKey(FileSymbols fileSymbols, int position, int subType) {
+        int[] keys = fileSymbols.getKeys();
+        byte[] subTypes = fileSymbols.getSubTypes();
+        int i = fileSymbols.find(position);
+        if ((i >= 0) && (subTypes[i] == subType)) {
+            return keys[i];
+        }
+
+        int[] positions = fileSymbols.getPositions();
+        int[] lengths = fileSymbols.getLengths();
+        byte[] types = fileSymbols.getTypes();
+        int result = -1;
+        for (i = 0; (i < positions.length) && (positions[i] <= position); ++i) {
+            if ((types[i] == Symbol.SYMBOL_TYPE_DECLARATION) && (subTypes[i] == subType) && (position < positions[i] + lengths[i])) {
+                result = keys[i];
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 创建调用层次节点
+     *
+     * @param method    方法符号类型缩写序号
+     * @param callSites 与上层节点之间的方法调用符号列表
+     * @param depth     剩余展开深度
+     * @param incoming  是否为呼入层次
+     * @param path      根节点到本节点路径上的方法
+     * @param budget    剩余可展开的节点数
+     * @return 调用层次节点
+     */
+    private CallHierarchy createCallHierarchy(int method, List<Symbol> callSites, int depth, boolean incoming, Set<Integer> path, int[] budget) {
+        List<CallHierarchy> calls = new ArrayList<>();
+        if ((depth > 0) && path.add(method)) {
+            CallGraph graph = getCallGraph();
+            for (int target : incoming ? graph.getCallers(method) : graph.getCallees(method)) {
+                if (budget[0]-- <= 0) {
+                    break;
+                }
+
+                List<Symbol> sites = incoming ? getCallSites(target, method) : getCallSites(method, target);
+                calls.add(createCallHierarchy(target, sites, depth - 1, incoming, path, budget));
+            }
+            path.remove(method);
+            calls.sort(Comparator.comparing(c -> c.getSymbol().getName()));
+        }
+
+        return new CallHierarchy(getMethodSymbol(method), callSites, calls);
+    }
+
+    /**
+     * 获取调用方中调用指定方法的位置
+     *
+     * @param caller 调用方符号类型缩写序号
+     * @param callee 被调用方法符号类型缩写序号
+     * @return 方法调用符号列表, 调用方不在源代码中时为空列表
+     */
+    private List<Symbol> getCallSites(int caller, int callee) {
+        FileSymbols fileSymbols = getDeclarationFile(caller);
+        return (fileSymbols == null) ? new ArrayList<>() : fileSymbols.getCallSites(declarationIndexes[caller], callee, strings);
+    }
+
+    /**
+     * 创建类型层次节点
+     *
+     * @param index    类型继承索引
+     * @param node     类型节点序号
+     * @param depth    剩余展开深度
+     * @param subtypes 是否为子类型层次
+     * @param path     根节点到本节点路径上的类型节点
+     * @param budget   剩余可展开的节点数
+     * @return 类型层次节点
+     */
+    private TypeHierarchy createTypeHierarchy(SubtypeIndex index, int node, int depth, boolean subtypes, Set<Integer> path, int[] budget) {
+        List<TypeHierarchy> types = new ArrayList<>();
+        if ((depth > 0) && path.add(node)) {
+            for (int target : subtypes ? index.getSubtypes(node) : index.getSupertypes(node)) {
+                if (budget[0]-- <= 0) {
+                    break;
+                }
+
+                types.add(createTypeHierarchy(index, target, depth - 1, subtypes, path, budget));
+            }
+            path.remove(node);
+            types.sort(Comparator.comparing(t -> t.getSymbol().getName()));
+        }
+
+        return new TypeHierarchy(getTypeSymbol(index.getKey(node)), types);
+    }
+
+    /**
+     * 获取类型声明符号
+     *
+     * @param key 类型符号类型缩写序号
+     * @return 声明符号, 找不到声明时由类型缩写生成, 如Ljava/util/List&lt;TE;&gt;; -> List
+     */
+    private Symbol getTypeSymbol(int key) {
+        Symbol symbol = getDeclarationSymbol(key);
+        if (symbol != null) {
+            return symbol;
+        }
+
+        String value = strings.get(key);
+        String type = LibraryIndex.eraseType(value);
+        int begin = Math.max(type.lastIndexOf('/'), type.lastIndexOf('$')) + 1;
+        int end = type.endsWith(";") ? type.length() - 1 : type.length();
+        String name = (begin < end) ? type.substring(begin, end) : value;
+
+        return new Symbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_TYPE, name, value, null, 0, 0, 0, 0);
+    }
+
+    /**
+     * 判断方法是否覆盖基类方法
+     *
+     * @param member 方法类型缩写中类型之后的部分, 如.put(Ljava/lang/Integer;)V
+     * @param base   基类方法类型缩写中类型之后的部分, 如.put(TT;)V
+     * @return 名称相同且参数类型逐个匹配时返回true
+     */
+    private static boolean overrides(String member, String base) {
+        int memberBegin = member.indexOf('(');
+        int baseBegin = base.indexOf('(');
+        if ((memberBegin < 0) || (baseBegin < 0) || !getMethodName(member).equals(getMethodName(base))) {
+            return false;
+        }
+
+        int i = memberBegin + 1;
+        int j = baseBegin + 1;
+        while ((i < member.length()) && (j < base.length()) && (member.charAt(i) != ')') && (base.charAt(j) != ')')) {
+            int memberEnd = LibraryIndex.skipType(member, i);
+            int baseEnd = LibraryIndex.skipType(base, j);
+            if (!matchesParameter(member.substring(i, memberEnd), base.substring(j, baseEnd))) {
+                return false;
+            }
+
+            i = memberEnd;
+            j = baseEnd;
+        }
+
+        return (i < member.length()) && (j < base.length()) && (member.charAt(i) == ')') && (base.charAt(j) == ')');
+    }
+
+    /**
+     * 判断参数类型是否匹配
+     *
+     * @param member 方法参数类型缩写
+     * @param base   基类方法参数类型缩写
+     * @return 擦除类型参数后相同, 或基类参数为类型变量且方法参数为引用类型时返回true, 如TT; 与 Ljava/lang/Integer;
+     */
+    private static boolean matchesParameter(String member, String base) {
+        int i = 0;
+        while ((i < base.length()) && (i < member.length()) && (base.charAt(i) == '[') && (member.charAt(i) == '[')) {
+            i++;
+        }
+
+        if ((i < base.length()) && (i < member.length()) && (base.charAt(i) == 'T')) {
+            char c = member.charAt(i);
+            return (c == 'L') || (c == 'T') || (c == '[');
+        }
+
+        return LibraryIndex.eraseType(member).equals(LibraryIndex.eraseType(base));
+    }
+
+    /**
+     * 获取方法名称
+     *
+     * @param member 方法类型缩写中类型之后的部分, 如.put&lt;TK;&gt;(TK;)V
+     * @return 方法名称, 如put
+     */
+    private static String getMethodName(String member) {
+        int end = 1;
+        while ((end < member.length()) && (member.charAt(end) != '(') && (member.charAt(end) != '<')) {
+            end++;
+        }
+
+        return member.substring(1, end);
+    }
+
+    /**
+     * 获取声明所在的文件符号表
+     *
+     * @param key 符号类型缩写序号
+     * @return 文件符号表, 声明不在源代码中时返回null
+     */
+    private FileSymbols getDeclarationFile(int key) {
+        if ((key < 0) || (key >= declarationFiles.length) || (declarationFiles[key] == 0)) {
+            return null;
+        }
+
+        return files.get(strings.get(declarationFiles[key] - 1));
+    }
+
+    /**
+     * 获取方法声明符号
+     *
+     * @param key 方法符号类型缩写序号
+     * @return 声明符号, 找不到声明时由类型缩写生成, 如Ljava/io/PrintStream;.println(I)V -> println
+     */
+    private Symbol getMethodSymbol(int key) {
+        Symbol symbol = getDeclarationSymbol(key);
+        if (symbol != null) {
+            return symbol;
+        }
+
+        String value = strings.get(key);
+        int begin = LibraryIndex.skipType(value, 0) + 1;
+        int end = value.indexOf('(', begin);
+        String name = ((begin > 0) && (end > begin)) ? value.substring(begin, end) : value;
+
+        return new Symbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_METHOD, name, value, null, 0, 0, 0, 0);
+    }
+
+    /**
+     * 获取类库中的声明符号
+     *
+     * @param key 符号类型缩写序号
+     * @return 声明符号, 不存在时返回null
+     */
+    private Symbol getLibrarySymbol(int key) {
+        for (LibraryIndex library : libraries) {
+            Symbol symbol = library.getSymbol(strings.get(key));
+            if (symbol != null) {
+                return symbol;
+            }
+        }
+
+        return null;
+    }
+}
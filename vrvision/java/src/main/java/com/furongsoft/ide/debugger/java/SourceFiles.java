@@ -0,0 +1,135 @@
+package com.furongsoft.ide.debugger.java;
+
+import com.furongsoft.core.misc.FileUtils;
+import com.furongsoft.core.misc.Tracker;
+import com.furongsoft.ide.debugger.entities.TextEdit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 源代码文件读写
+ * <p>
+ * 保存和重构修改源代码都经过此处: 先把全部新内容写入同目录下的隐藏临时文件, 再逐个原子替换, 中途失败时恢复已替换的文件,
+ * 因此多个文件要么全部修改, 要么保持原样. 临时文件是隐藏文件, 文件监视器不会报告.
+ *
+ * @author Alex
+ */
+public class SourceFiles {
+    private SourceFiles() {
+    }
+
+    /**
+     * 读取源代码
+     *
+     * @param file 文件
+     * @return 源代码, 读取失败时返回null
+     */
+    public static String read(File file) {
+        byte[] content = FileUtils.readFile(file.toPath());
+
+        return (content == null) ? null : new String(content, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 应用文本修改
+     *
+     * @param code     源代码
+     * @param edits    文本修改列表, 按位置排序且互不重叠
+     * @param expected 被替换的原文本, 为空时不检查
+     * @return 修改后的源代码, 位置越界或原文本不一致时返回null
+     */
+    public static String applyEdits(String code, List<TextEdit> edits, String expected) {
+        StringBuilder sb = new StringBuilder(code.length());
+        int last = 0;
+        for (TextEdit edit : edits) {
+            int begin = edit.getPosition();
+            int end = begin + edit.getLength();
+            if ((begin < last) || (end > code.length())) {
+                return null;
+            }
+
+            if ((expected != null) && !code.substring(begin, end).equals(expected)) {
+                return null;
+            }
+
+            sb.append(code, last, begin).append(edit.getText());
+            last = end;
+        }
+
+        return sb.append(code, last, code.length()).toString();
+    }
+
+    /**
+     * 写入多个源代码文件
+     *
+     * @param contents 文件与新内容对照表
+     * @return 是否全部写入, 失败时所有文件保持原样
+     */
+    public static boolean write(Map<File, String> contents) {
+        Map<File, File> temporaries = new LinkedHashMap<>();
+        Map<File, byte[]> originals = new LinkedHashMap<>();
+        List<File> replaced = new ArrayList<>();
+        try {
+            for (Map.Entry<File, String> entry : contents.entrySet()) {
+                File file = entry.getKey();
+                byte[] original = FileUtils.readFile(file.toPath());
+                if (original == null) {
+                    return false;
+                }
+
+                // 先登记再写入, 写入中途失败时也删除不完整的临时文件
+                File temporary = new File(file.getParentFile(), "." + file.getName() + ".tmp");
+                temporaries.put(file, temporary);
+                originals.put(file, original);
+                Files.write(temporary.toPath(), entry.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+
+            for (Map.Entry<File, File> entry : temporaries.entrySet()) {
+                move(entry.getValue().toPath(), entry.getKey().toPath());
+                replaced.add(entry.getKey());
+            }
+
+            return true;
+        } catch (IOException e) {
+            Tracker.error(e);
+            for (File file : replaced) {
+                try {
+                    Files.write(file.toPath(), originals.get(file));
+                } catch (IOException e1) {
+                    Tracker.error(e1);
+                }
+            }
+
+            return false;
+        } finally {
+            for (File temporary : temporaries.values()) {
+                temporary.delete();
+            }
+        }
+    }
+
+    /**
+     * 替换文件, 文件系统不支持原子移动时直接覆盖
+     *
+     * @param source 新文件
+     * @param target 被替换的文件
+     * @throws IOException 异常
+     */
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
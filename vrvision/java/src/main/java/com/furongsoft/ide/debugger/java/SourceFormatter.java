@@ -0,0 +1,211 @@
+package com.furongsoft.ide.debugger.java;
+
+import com.furongsoft.core.misc.Tracker;
+import com.furongsoft.ide.debugger.entities.TextEdit;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.ToolFactory;
+import org.eclipse.jdt.core.formatter.CodeFormatter;
+import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
+import org.eclipse.text.edits.DeleteEdit;
+import org.eclipse.text.edits.InsertEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 源代码格式化器
+ * <p>
+ * JDT格式化器创建时要把选项表转换为格式化选项, 因此放入池中重复使用, 不必每次格式化都重新创建. 格式化器不是线程安全的,
+ * 同一时刻只借给一个线程, 池中没有空闲的格式化器时新建, 归还时超出上限的丢弃.
+ * 格式化结果为最小的文本修改, 只包含内容确实变化的部分, 调用方无需替换整个文件.
+ *
+ * @author Alex
+ */
+public class SourceFormatter {
+    /**
+     * 池中最多保留的空闲格式化器数量
+     */
+    private static final int MAX_IDLE_FORMATTERS = 4;
+
+    /**
+     * 缩进空格数
+     */
+    private static final String INDENTATION_SIZE = "4";
+
+    /**
+     * 最大行宽
+     */
+    private static final String LINE_LENGTH = "160";
+
+    /**
+     * 格式化选项
+     */
+    private final Map<String, String> options = createOptions();
+
+    /**
+     * 空闲的格式化器
+     */
+    private final Queue<CodeFormatter> formatters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 空闲的格式化器数量
+     */
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    /**
+     * 格式化源代码
+     *
+     * @param code            源代码
+     * @param startLineNumber 起始行号, 小于1时从第一行开始, 超出行数时没有需要格式化的行
+     * @param endLineNumber   结束行号(含), 小于1或超出行数时到最后一行
+     * @return 文本修改列表, 按位置排序; 无法格式化时返回null
+     */
+    public List<TextEdit> format(String code, int startLineNumber, int endLineNumber) {
+        LineTable lineTable = LineTable.create(code);
+        int[] lineStarts = lineTable.getLineStarts();
+        if (startLineNumber > lineStarts.length) {
+            return new ArrayList<>();
+        }
+
+        int start = (startLineNumber < 1) ? 0 : lineStarts[startLineNumber - 1];
+        int end = ((endLineNumber < 1) || (endLineNumber >= lineStarts.length)) ? code.length() : lineStarts[endLineNumber];
+        if (start > end) {
+            return new ArrayList<>();
+        }
+
+        org.eclipse.text.edits.TextEdit edit;
+        CodeFormatter formatter = acquire();
+        try {
+            edit = formatter.format(CodeFormatter.K_COMPILATION_UNIT | CodeFormatter.F_INCLUDE_COMMENTS, code, start, end - start, 0, getLineSeparator(code));
+        } catch (Exception e) {
+            Tracker.error(e);
+            return null;
+        } finally {
+            release(formatter);
+        }
+
+        if (edit == null) {
+            return null;
+        }
+
+        List<TextEdit> result = new ArrayList<>();
+        addEdits(edit, code, lineTable, result);
+        result.sort(Comparator.comparingInt(TextEdit::getPosition));
+
+        return result;
+    }
+
+    /**
+     * 借出格式化器
+     *
+     * @return 格式化器
+     */
+    private CodeFormatter acquire() {
+        CodeFormatter formatter = formatters.poll();
+        if (formatter == null) {
+            return ToolFactory.createCodeFormatter(options);
+        }
+
+        idleCount.decrementAndGet();
+        return formatter;
+    }
+
+    /**
+     * 归还格式化器
+     *
+     * @param formatter 格式化器
+     */
+    private void release(CodeFormatter formatter) {
+        if (idleCount.incrementAndGet() <= MAX_IDLE_FORMATTERS) {
+            formatters.offer(formatter);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * 展开JDT文本修改树, 去掉内容未变的修改以及新旧文本相同的首尾部分
+     *
+     * @param edit      JDT文本修改
+     * @param code      源代码
+     * @param lineTable 行首位置表
+     * @param result    文本修改列表
+     */
+    private static void addEdits(org.eclipse.text.edits.TextEdit edit, String code, LineTable lineTable, List<TextEdit> result) {
+        String text = null;
+        if (edit instanceof ReplaceEdit) {
+            text = ((ReplaceEdit) edit).getText();
+        } else if (edit instanceof InsertEdit) {
+            text = ((InsertEdit) edit).getText();
+        } else if (edit instanceof DeleteEdit) {
+            text = "";
+        }
+
+        if (text != null) {
+            int begin = edit.getOffset();
+            int end = begin + edit.getLength();
+            int textBegin = 0;
+            int textEnd = text.length();
+            while ((begin < end) && (textBegin < textEnd) && (code.charAt(begin) == text.charAt(textBegin))) {
+                ++begin;
+                ++textBegin;
+            }
+            while ((begin < end) && (textBegin < textEnd) && (code.charAt(end - 1) == text.charAt(textEnd - 1))) {
+                --end;
+                --textEnd;
+            }
+
+            if ((begin < end) || (textBegin < textEnd)) {
+                result.add(new TextEdit(begin, end - begin, lineTable.getLineNumber(begin), lineTable.getColumnNumber(begin), text.substring(textBegin, textEnd)));
+            }
+        }
+
+        for (org.eclipse.text.edits.TextEdit child : edit.getChildren()) {
+            addEdits(child, code, lineTable, result);
+        }
+    }
+
+    /**
+     * 获取源代码使用的行分隔符
+     *
+     * @param code 源代码
+     * @return 行分隔符, 源代码只有一行时为系统行分隔符
+     */
+    private static String getLineSeparator(String code) {
+        int i = code.indexOf('\n');
+        if (i < 0) {
+            return System.lineSeparator();
+        }
+
+        return ((i > 0) && (code.charAt(i - 1) == '\r')) ? "\r\n" : "\n";
+    }
+
+    /**
+     * 创建格式化选项
+     *
+     * @return 格式化选项
+     */
+    private static Map<String, String> createOptions() {
+        // JDT以原始类型返回默认设置, 其键和值都是字符串
+        @SuppressWarnings("unchecked")
+        Map<String, String> defaults = DefaultCodeFormatterConstants.getEclipseDefaultSettings();
+        Map<String, String> options = new HashMap<>(defaults);
+        options.put(JavaCore.COMPILER_COMPLIANCE, JavaCore.VERSION_11);
+        options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, JavaCore.VERSION_11);
+        options.put(JavaCore.COMPILER_SOURCE, JavaCore.VERSION_11);
+        options.put(DefaultCodeFormatterConstants.FORMATTER_TAB_CHAR, JavaCore.SPACE);
+        options.put(DefaultCodeFormatterConstants.FORMATTER_TAB_SIZE, INDENTATION_SIZE);
+        options.put(DefaultCodeFormatterConstants.FORMATTER_INDENTATION_SIZE, INDENTATION_SIZE);
+        options.put(DefaultCodeFormatterConstants.FORMATTER_LINE_SPLIT, LINE_LENGTH);
+        options.put(DefaultCodeFormatterConstants.FORMATTER_COMMENT_LINE_LENGTH, LINE_LENGTH);
+
+        return options;
+    }
+}
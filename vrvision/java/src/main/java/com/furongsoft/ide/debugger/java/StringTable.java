@@ -0,0 +1,88 @@
+package com.furongsoft.ide.debugger.java;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 字符串表
+ * <p>
+ * 将路径、名称和符号类型缩写等字符串映射为连续的整数序号, 序号一经分配不再改变.
+ * 查找已有字符串无需加锁, 只有添加新字符串时才会同步.
+ *
+ * @author Alex
+ */
+public class StringTable {
+    /**
+     * 字符串序号表
+     */
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * 字符串列表
+     */
+    private volatile String[] values = new String[1024];
+
+    /**
+     * 字符串数量
+     */
+    private volatile int size;
+
+    /**
+     * 获取字符串序号, 不存在时添加
+     *
+     * @param value 字符串
+     * @return 序号
+     */
+    public int intern(String value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (this) {
+            id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+
+            values[size] = value;
+            ids.put(value, size);
+
+            return size++;
+        }
+    }
+
+    /**
+     * 查找字符串序号
+     *
+     * @param value 字符串
+     * @return 序号, 不存在时返回-1
+     */
+    public int find(String value) {
+        Integer id = ids.get(value);
+        return (id == null) ? -1 : id;
+    }
+
+    /**
+     * 获取字符串
+     *
+     * @param id 序号
+     * @return 字符串
+     */
+    public String get(int id) {
+        return values[id];
+    }
+
+    /**
+     * 获取字符串数量
+     *
+     * @return 字符串数量
+     */
+    public int size() {
+        return size;
+    }
+}
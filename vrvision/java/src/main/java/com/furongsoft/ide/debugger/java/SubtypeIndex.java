@@ -0,0 +1,156 @@
+package com.furongsoft.ide.debugger.java;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 类型继承索引
+ * <p>
+ * 节点为去除类型参数后的类型缩写, 子类型和超类型分别以邻接数组存储: 节点i的邻接节点为 targets[offsets[i] .. offsets[i + 1]).
+ * 继承关系来自各文件符号表中记录的直接超类和接口, 建立后不再修改.
+ *
+ * @author Alex
+ */
+public class SubtypeIndex {
+    /**
+     * 节点表: 类型缩写(不含类型参数) -> 节点序号
+     */
+    private final Map<String, Integer> nodes = new HashMap<>();
+
+    /**
+     * 节点类型声明的符号类型缩写序号列表
+     */
+    private final int[] keys;
+
+    /**
+     * 子类型起始偏移列表
+     */
+    private final int[] subtypeOffsets;
+
+    /**
+     * 子类型列表
+     */
+    private final int[] subtypes;
+
+    /**
+     * 超类型起始偏移列表
+     */
+    private final int[] supertypeOffsets;
+
+    /**
+     * 超类型列表
+     */
+    private final int[] supertypes;
+
+    public SubtypeIndex(Collection<FileSymbols> files, StringTable strings) {
+        int count = 0;
+        for (FileSymbols fileSymbols : files) {
+            count += fileSymbols.getSupertypes().length / 2;
+        }
+
+        int[] nodeKeys = new int[16];
+        long[] edges = new long[count];
+        long[] reversed = new long[count];
+        int size = 0;
+        for (FileSymbols fileSymbols : files) {
+            int[] pairs = fileSymbols.getSupertypes();
+            for (int i = 0; i < pairs.length; i += 2) {
+                int type = getNode(pairs[i], strings);
+                int supertype = getNode(pairs[i + 1], strings);
+                while (nodes.size() > nodeKeys.length) {
+                    nodeKeys = Arrays.copyOf(nodeKeys, nodeKeys.length * 2);
+                }
+                nodeKeys[type] = pairs[i];
+                nodeKeys[supertype] = pairs[i + 1];
+                edges[size] = ((long) supertype << 32) | type;
+                reversed[size++] = ((long) type << 32) | supertype;
+            }
+        }
+
+        keys = Arrays.copyOf(nodeKeys, nodes.size());
+        subtypeOffsets = new int[keys.length + 1];
+        subtypes = CallGraph.createAdjacency(edges, subtypeOffsets);
+        supertypeOffsets = new int[keys.length + 1];
+        supertypes = CallGraph.createAdjacency(reversed, supertypeOffsets);
+    }
+
+    /**
+     * 查找类型节点
+     *
+     * @param key 类型缩写, 可以包含类型参数
+     * @return 节点序号, 不存在时返回-1
+     */
+    public int find(String key) {
+        Integer node = nodes.get(LibraryIndex.eraseType(key));
+        return (node == null) ? -1 : node;
+    }
+
+    /**
+     * 获取节点类型声明的符号类型缩写序号
+     *
+     * @param node 节点序号
+     * @return 符号类型缩写序号
+     */
+    public int getKey(int node) {
+        return keys[node];
+    }
+
+    /**
+     * 获取直接子类型
+     *
+     * @param node 节点序号
+     * @return 子类型节点序号列表
+     */
+    public int[] getSubtypes(int node) {
+        return Arrays.copyOfRange(subtypes, subtypeOffsets[node], subtypeOffsets[node + 1]);
+    }
+
+    /**
+     * 获取直接超类和接口
+     *
+     * @param node 节点序号
+     * @return 超类型节点序号列表
+     */
+    public int[] getSupertypes(int node) {
+        return Arrays.copyOfRange(supertypes, supertypeOffsets[node], supertypeOffsets[node + 1]);
+    }
+
+    /**
+     * 获取全部子类型, 不含自身
+     *
+     * @param node 节点序号
+     * @return 子类型节点序号列表, 按广度优先顺序排列
+     */
+    public int[] getAllSubtypes(int node) {
+        boolean[] visited = new boolean[keys.length];
+        int[] queue = new int[keys.length];
+        int head = 0;
+        int tail = 0;
+        visited[node] = true;
+        queue[tail++] = node;
+        while (head < tail) {
+            int current = queue[head++];
+            for (int i = subtypeOffsets[current]; i < subtypeOffsets[current + 1]; ++i) {
+                if (!visited[subtypes[i]]) {
+                    visited[subtypes[i]] = true;
+                    queue[tail++] = subtypes[i];
+                }
+            }
+        }
+
+        return Arrays.copyOfRange(queue, 1, tail);
+    }
+
+    /**
+     * 获取或创建类型节点
+     *
+     * @param key     符号类型缩写序号
+     * @param strings 字符串表
+     * @return 节点序号
+     */
+    private int getNode(int key, StringTable strings) {
+        return nodes.computeIfAbsent(LibraryIndex.eraseType(strings.get(key)), k -> nodes.size());
+    }
+}
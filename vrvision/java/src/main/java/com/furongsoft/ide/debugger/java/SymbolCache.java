@@ -0,0 +1,491 @@
+package com.furongsoft.ide.debugger.java;
+
+import com.furongsoft.core.misc.Tracker;
+import lombok.AllArgsConstructor;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * 符号缓存
+ * <p>
+ * 按源代码文件将上下文中的符号表保存到磁盘, 并以文件内容摘要判断缓存是否有效.
+ * 加载时把缓存文件一次读入堆内存后关闭文件, 只解析文件索引, 符号记录在恢复时才从内存读取. 不使用内存映射,
+ * 因为映射在回收前一直占用文件, Windows下保存时无法替换缓存文件.
+ * <p>
+ * 文件格式: 标识, 版本, 解析环境摘要, 字符串表, 文件记录列表. 解析环境(类路径和JAR文件内容)变化时整个缓存失效. 每条文件记录包含路径、内容摘要、行首位置表、按列存储的符号数组、类型声明列表、类型引用列表、超类型列表和问题列表,
+ * 字符串均以缓存字符串表序号表示, 恢复时再转换为上下文字符串表序号.
+ *
+ * @author Alex
+ */
+public class SymbolCache {
+    /**
+     * 缓存目录
+     */
+    private static final String CACHE_PATH = "caches/index";
+
+    /**
+     * 文件标识
+     */
+    private static final int MAGIC = 0x57494458;
+
+    /**
+     * 文件版本
+     */
+    private static final int VERSION = 8;
+
+    /**
+     * 单个符号记录长度
+     */
+    private static final int SYMBOL_RECORD_SIZE = 2 + 6 * 4;
+
+    /**
+     * 单个问题记录长度
+     */
+    private static final int PROBLEM_RECORD_SIZE = 1 + 4 * 4;
+
+    /**
+     * 缓存文件
+     */
+    private final File file;
+
+    /**
+     * 解析环境标识
+     */
+    private final String environment;
+
+    /**
+     * 缓存文件内容
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * 字符串表
+     */
+    private String[] strings;
+
+    /**
+     * 缓存字符串序号与上下文字符串序号对照表
+     */
+    private int[] stringIds;
+
+    /**
+     * 文件记录索引
+     */
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public SymbolCache(String rootPath, String environment) {
+        this.file = new File(CACHE_PATH, toHex(digest(rootPath.getBytes(StandardCharsets.UTF_8))) + ".idx");
+        this.environment = toHex(digest(environment.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 加载缓存
+     *
+     * @return 是否成功
+     */
+    public boolean load() {
+        if (!file.isFile()) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException(file.getPath());
+                }
+            }
+            buffer.flip();
+
+            if ((buffer.getInt() != MAGIC) || (buffer.getInt() != VERSION)) {
+                close();
+                return false;
+            }
+
+            byte[] header = new byte[buffer.getInt()];
+            buffer.get(header);
+            if (!environment.equals(new String(header, StandardCharsets.UTF_8))) {
+                close();
+                return false;
+            }
+
+            strings = new String[buffer.getInt()];
+            stringIds = new int[strings.length];
+            Arrays.fill(stringIds, -1);
+            for (int i = 0; i < strings.length; ++i) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            int fileCount = buffer.getInt();
+            for (int i = 0; i < fileCount; ++i) {
+                String sourcePath = strings[buffer.getInt()];
+                byte[] hash = new byte[buffer.getInt()];
+                buffer.get(hash);
+                entries.put(sourcePath, new Entry(hash, buffer.position()));
+
+                int lineCount = buffer.getInt();
+                buffer.position(buffer.position() + lineCount * 4);
+                int symbolCount = buffer.getInt();
+                buffer.position(buffer.position() + symbolCount * SYMBOL_RECORD_SIZE);
+                int typeCount = buffer.getInt();
+                buffer.position(buffer.position() + typeCount * 4);
+                int referenceCount = buffer.getInt();
+                buffer.position(buffer.position() + referenceCount * 4);
+                int supertypeCount = buffer.getInt();
+                buffer.position(buffer.position() + supertypeCount * 4);
+                int problemCount = buffer.getInt();
+                buffer.position(buffer.position() + problemCount * PROBLEM_RECORD_SIZE);
+            }
+
+            return true;
+        } catch (Exception e) {
+            Tracker.error(e);
+            close();
+            return false;
+        }
+    }
+
+    /**
+     * 关闭缓存
+     */
+    public void close() {
+        buffer = null;
+        strings = null;
+        stringIds = null;
+        entries.clear();
+    }
+
+    /**
+     * 获取缓存的源代码路径列表
+     *
+     * @return 源代码相对路径列表
+     */
+    public Set<String> getSourcePaths() {
+        return entries.keySet();
+    }
+
+    /**
+     * 判断缓存是否有效
+     *
+     * @param sourcePath 源代码相对路径
+     * @param hash       文件内容摘要
+     * @return 是否有效
+     */
+    public boolean isValid(String sourcePath, byte[] hash) {
+        Entry entry = entries.get(sourcePath);
+        return (entry != null) && (hash != null) && Arrays.equals(entry.hash, hash);
+    }
+
+    /**
+     * 从缓存恢复源代码文件的符号
+     *
+     * @param sourcePath 源代码相对路径
+     * @param context    上下文
+     * @return 是否成功
+     */
+    public boolean restore(String sourcePath, Context context) {
+        Entry entry = entries.get(sourcePath);
+        if ((entry == null) || (buffer == null)) {
+            return false;
+        }
+
+        ByteBuffer record = buffer.duplicate();
+        record.position(entry.offset);
+
+        StringTable table = context.getStrings();
+        LineTable lineTable = new LineTable(readInts(record, record.getInt()));
+        int symbolCount = record.getInt();
+        byte[] types = new byte[symbolCount];
+        byte[] subTypes = new byte[symbolCount];
+        record.get(types);
+        record.get(subTypes);
+        int[] names = readStrings(record, table, symbolCount);
+        int[] keys = readStrings(record, table, symbolCount);
+        int[] positions = readInts(record, symbolCount);
+        int[] lengths = readInts(record, symbolCount);
+        int[] namePositions = readInts(record, symbolCount);
+        int[] valueTypes = readStrings(record, table, symbolCount);
+        int[] declaredTypes = readStrings(record, table, record.getInt());
+        int[] referencedTypes = readStrings(record, table, record.getInt());
+        int[] supertypes = readStrings(record, table, record.getInt());
+        ProblemTable problems = readProblems(record);
+
+        // 缓存字符串序号转换为上下文字符串序号后顺序改变, 重新排序以便二分查找
+        Arrays.sort(declaredTypes);
+        Arrays.sort(referencedTypes);
+
+        context.putFile(new FileSymbols(sourcePath, table.intern(sourcePath), types, subTypes, names, keys, positions, lengths, namePositions, valueTypes, lineTable, problems,
+                declaredTypes, referencedTypes, supertypes));
+
+        return true;
+    }
+
+    /**
+     * 保存缓存
+     *
+     * @param context 上下文
+     * @param hashes  源代码文件内容摘要列表
+     * @return 是否成功
+     */
+    public boolean save(Context context, Map<String, byte[]> hashes) {
+        Map<String, Integer> table = new HashMap<>();
+        List<String> list = new ArrayList<>();
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+
+        try {
+            // 没有符号的文件不写入, 下次加载时重新解析
+            Map<String, byte[]> files = new LinkedHashMap<>();
+            for (Map.Entry<String, byte[]> entry : hashes.entrySet()) {
+                if (context.getFiles().containsKey(entry.getKey())) {
+                    files.put(entry.getKey(), entry.getValue());
+                }
+            }
+
+            DataOutputStream output = new DataOutputStream(records);
+            output.writeInt(files.size());
+            for (Map.Entry<String, byte[]> entry : files.entrySet()) {
+                String sourcePath = entry.getKey();
+                output.writeInt(intern(table, list, sourcePath));
+                output.writeInt(entry.getValue().length);
+                output.write(entry.getValue());
+
+                FileSymbols fileSymbols = context.getFiles().get(sourcePath);
+                StringTable strings = context.getStrings();
+                output.writeInt(fileSymbols.getLineTable().getLineCount());
+                writeInts(output, fileSymbols.getLineTable().getLineStarts());
+                output.writeInt(fileSymbols.size());
+                output.write(fileSymbols.getTypes());
+                output.write(fileSymbols.getSubTypes());
+                writeStrings(output, table, list, strings, fileSymbols.getNames());
+                writeStrings(output, table, list, strings, fileSymbols.getKeys());
+                writeInts(output, fileSymbols.getPositions());
+                writeInts(output, fileSymbols.getLengths());
+                writeInts(output, fileSymbols.getNamePositions());
+                writeStrings(output, table, list, strings, fileSymbols.getValueTypes());
+                output.writeInt(fileSymbols.getDeclaredTypes().length);
+                writeStrings(output, table, list, strings, fileSymbols.getDeclaredTypes());
+                output.writeInt(fileSymbols.getReferencedTypes().length);
+                writeStrings(output, table, list, strings, fileSymbols.getReferencedTypes());
+                output.writeInt(fileSymbols.getSupertypes().length);
+                writeStrings(output, table, list, strings, fileSymbols.getSupertypes());
+                writeProblems(output, table, list, fileSymbols.getProblems());
+            }
+            output.flush();
+
+            File folder = file.getParentFile();
+            if (!folder.exists() && !folder.mkdirs()) {
+                return false;
+            }
+
+            File temp = new File(folder, file.getName() + ".tmp");
+            try (DataOutputStream writer = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                writer.writeInt(MAGIC);
+                writer.writeInt(VERSION);
+                byte[] header = environment.getBytes(StandardCharsets.UTF_8);
+                writer.writeInt(header.length);
+                writer.write(header);
+                writer.writeInt(list.size());
+                for (String string : list) {
+                    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                    writer.writeInt(bytes.length);
+                    writer.write(bytes);
+                }
+                records.writeTo(writer);
+            }
+
+            close();
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+            return true;
+        } catch (IOException e) {
+            Tracker.error(e);
+            return false;
+        }
+    }
+
+    /**
+     * 计算内容摘要
+     *
+     * @param content 内容
+     * @return 摘要
+     */
+    public static byte[] digest(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 读取字符串序号列表
+     *
+     * @param record 记录
+     * @param table  上下文字符串表
+     * @param count  数量
+     * @return 上下文字符串序号列表, 序号-1保持不变
+     */
+    private int[] readStrings(ByteBuffer record, StringTable table, int count) {
+        int[] result = new int[count];
+        for (int i = 0; i < count; ++i) {
+            int id = record.getInt();
+            if (id < 0) {
+                result[i] = -1;
+                continue;
+            }
+
+            if (stringIds[id] < 0) {
+                stringIds[id] = table.intern(strings[id]);
+            }
+            result[i] = stringIds[id];
+        }
+
+        return result;
+    }
+
+    /**
+     * 读取整数列表
+     *
+     * @param record 记录
+     * @param count  数量
+     * @return 整数列表
+     */
+    private static int[] readInts(ByteBuffer record, int count) {
+        int[] result = new int[count];
+        record.asIntBuffer().get(result);
+        record.position(record.position() + count * 4);
+
+        return result;
+    }
+
+    /**
+     * 写入字符串序号列表
+     *
+     * @param output  输出流
+     * @param table   字符串序号表
+     * @param list    字符串表
+     * @param strings 上下文字符串表
+     * @param values  上下文字符串序号列表, 序号-1原样写入
+     * @throws IOException 异常
+     */
+    private static void writeStrings(DataOutputStream output, Map<String, Integer> table, List<String> list, StringTable strings, int[] values) throws IOException {
+        for (int value : values) {
+            output.writeInt((value < 0) ? -1 : intern(table, list, strings.get(value)));
+        }
+    }
+
+    /**
+     * 读取问题表
+     *
+     * @param record 记录
+     * @return 问题表
+     */
+    private ProblemTable readProblems(ByteBuffer record) {
+        int count = record.getInt();
+        if (count == 0) {
+            return ProblemTable.EMPTY;
+        }
+
+        int[] ids = readInts(record, count);
+        byte[] severities = new byte[count];
+        record.get(severities);
+        int[] positions = readInts(record, count);
+        int[] lengths = readInts(record, count);
+        String[] messages = new String[count];
+        for (int i = 0; i < count; ++i) {
+            messages[i] = strings[record.getInt()];
+        }
+
+        return new ProblemTable(ids, severities, positions, lengths, messages);
+    }
+
+    /**
+     * 写入问题表
+     *
+     * @param output   输出流
+     * @param table    字符串序号表
+     * @param list     字符串表
+     * @param problems 问题表
+     * @throws IOException 异常
+     */
+    private static void writeProblems(DataOutputStream output, Map<String, Integer> table, List<String> list, ProblemTable problems) throws IOException {
+        output.writeInt(problems.size());
+        writeInts(output, problems.getIds());
+        output.write(problems.getSeverities());
+        writeInts(output, problems.getPositions());
+        writeInts(output, problems.getLengths());
+        for (String message : problems.getMessages()) {
+            output.writeInt(intern(table, list, message));
+        }
+    }
+
+    /**
+     * 写入整数列表
+     *
+     * @param output 输出流
+     * @param values 整数列表
+     * @throws IOException 异常
+     */
+    private static void writeInts(DataOutputStream output, int[] values) throws IOException {
+        for (int value : values) {
+            output.writeInt(value);
+        }
+    }
+
+    /**
+     * 获取字符串序号
+     *
+     * @param table  字符串序号表
+     * @param list   字符串表
+     * @param string 字符串
+     * @return 序号
+     */
+    private static int intern(Map<String, Integer> table, List<String> list, String string) {
+        return table.computeIfAbsent(string, k -> {
+            list.add(k);
+            return list.size() - 1;
+        });
+    }
+
+    /**
+     * 转换为十六进制字符串
+     *
+     * @param bytes 字节数组
+     * @return 十六进制字符串
+     */
+    static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * 文件记录索引项
+     */
+    @AllArgsConstructor
+    private static class Entry {
+        /**
+         * 文件内容摘要
+         */
+        private final byte[] hash;
+
+        /**
+         * 符号记录位置
+         */
+        private final int offset;
+    }
+}
@@ -0,0 +1,77 @@
+package com.furongsoft.ide.debugger.java;
+
+/**
+ * 符号位置索引
+ * <p>
+ * 同一源代码文件中的符号按起始位置升序、长度降序排列, 并记录每个符号的最近外层符号.
+ * 查询时先二分查找最后一个起始位置不大于目标位置的符号, 再沿外层符号回溯, 第一个包含目标位置的符号即为最内层符号.
+ *
+ * @author Alex
+ */
+public class SymbolIndex {
+    /**
+     * 起始位置列表
+     */
+    private final int[] starts;
+
+    /**
+     * 结束位置列表(包含)
+     */
+    private final int[] ends;
+
+    /**
+     * 外层符号索引列表
+     */
+    private final int[] parents;
+
+    /**
+     * @param starts  已排序的起始位置列表
+     * @param lengths 长度列表
+     */
+    public SymbolIndex(int[] starts, int[] lengths) {
+        int count = starts.length;
+        this.starts = starts;
+        ends = new int[count];
+        parents = new int[count];
+
+        int[] stack = new int[count];
+        int top = -1;
+        for (int i = 0; i < count; ++i) {
+            ends[i] = starts[i] + lengths[i];
+
+            while ((top >= 0) && (ends[stack[top]] < starts[i])) {
+                top--;
+            }
+
+            parents[i] = (top >= 0) ? stack[top] : -1;
+            stack[++top] = i;
+        }
+    }
+
+    /**
+     * 获取包含指定位置的最内层符号
+     *
+     * @param position 位置
+     * @return 符号索引, 不存在时返回-1
+     */
+    public int find(int position) {
+        int low = 0;
+        int high = starts.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] <= position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        for (int i = low - 1; i >= 0; i = parents[i]) {
+            if (position <= ends[i]) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,92 @@
+package com.furongsoft.ide.debugger.java;
+
+/**
+ * 符号类型缩写
+ * <p>
+ * 源代码分析得到的JDT绑定类型缩写和调试时JDI提供的类型签名统一转换为同一格式, 再存入同一字符串表,
+ * 两者以字符串表序号比较, 无需逐个比较字符串:
+ * <ul>
+ * <li>成员变量: [class signature].[name])[signature]</li>
+ * <li>局部变量: [class signature].[method name][method signature]#[name]</li>
+ * </ul>
+ *
+ * @author Alex
+ */
+public class SymbolKeys {
+    private SymbolKeys() {
+    }
+
+    /**
+     * 转换JDT绑定类型缩写
+     *
+     * @param key      绑定类型缩写
+     * @param rootPath 源代码根目录
+     * @return 符号类型缩写
+     */
+    public static String ofBinding(String key, String rootPath) {
+        // 绝大多数类型缩写不含路径分隔符、编译单元名称和异常列表, 无需转换
+        if ((key.indexOf('\\') < 0) && (key.indexOf('~') < 0) && (key.indexOf('|') < 0)) {
+            return key;
+        }
+
+        // member: L[file]~[class signature];.[name])[signature] -> [class signature].[name])[signature]
+        // local: L[file]~[class signature];.[method name][method signature]#[name] -> [class signature].[method name][method signature]#[name]
+        key = key.replace('\\', '/');
+
+        int pos1 = key.indexOf(rootPath);
+        int pos2 = key.indexOf('~');
+        if ((pos1 >= 0) && (pos2 >= 0)) {
+            key = key.substring(0, pos1) + key.substring(pos2);
+        }
+
+        key = key.replace("/~", ".");
+        key = key.replace("~", "");
+
+        // 异常列表: .foo()V|Ljava/io/IOException;#a -> .foo()V#a
+        int begin = key.indexOf('|');
+        int end = key.lastIndexOf(';');
+        if ((begin >= 0) && (end > begin)) {
+            key = key.substring(0, begin) + key.substring(end + 1);
+        }
+
+        return key;
+    }
+
+    /**
+     * 生成JDI局部变量的符号类型缩写
+     *
+     * @param classSignature  类型签名
+     * @param methodName      方法名称
+     * @param methodSignature 方法签名
+     * @param name            变量名称
+     * @return 符号类型缩写
+     */
+    public static String ofLocalVariable(String classSignature, String methodName, String methodSignature, String name) {
+        return classSignature + '.' + methodName + methodSignature + '#' + name;
+    }
+
+    /**
+     * 生成JDI成员变量的符号类型缩写
+     *
+     * @param classSignature 类型签名
+     * @param name           变量名称
+     * @param signature      变量类型签名
+     * @return 符号类型缩写
+     */
+    public static String ofField(String classSignature, String name, String signature) {
+        return classSignature + '.' + name + ')' + signature;
+    }
+
+    /**
+     * 获取变量符号类型缩写, 去除JDT局部变量类型缩写中JDI无法提供的序号
+     *
+     * @param key 符号类型缩写, 如LTest;.bar(II)V#a#0#0
+     * @return 变量符号类型缩写, 如LTest;.bar(II)V#a
+     */
+    public static String getVariableKey(String key) {
+        int begin = key.indexOf('#');
+        int end = (begin < 0) ? -1 : key.indexOf('#', begin + 1);
+
+        return (end < 0) ? key : key.substring(0, end);
+    }
+}
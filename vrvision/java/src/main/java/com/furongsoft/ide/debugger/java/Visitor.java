@@ -28,9 +28,9 @@ public class Visitor extends ASTVisitor {
     public boolean visit(FieldDeclaration node) {
         for (Object obj : node.fragments()) {
             VariableDeclaration v = (VariableDeclaration) obj;
-            IBinding binding = v.resolveBinding();
-            context.getMemberVariables().put(binding.getKey(), v);
-            context.addSymbol(new Symbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_MEMBER_VARIABLE, binding.getName(), binding.getKey(), node.getStartPosition(), node.getLength(), binding));
+            IVariableBinding binding = v.resolveBinding();
+            context.addSymbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_MEMBER_VARIABLE, binding.getName(), binding.getKey(), node.getStartPosition(), node.getLength(), v.getName().getStartPosition(),
+                    binding.getType().getKey());
             Tracker.info(String.format("FieldDeclaration: %s, (%d)", v.getName(), v.getStartPosition()));
         }
 
@@ -39,15 +39,16 @@ public class Visitor extends ASTVisitor {
 
     @Override
     public boolean visit(MethodDeclaration node) {
-        IBinding binding = node.resolveBinding();
-        context.addSymbol(new Symbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_METHOD, binding.getName(), binding.getKey(), node.getStartPosition(), node.getLength(), binding));
+        IMethodBinding binding = node.resolveBinding();
+        context.addSymbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_METHOD, binding.getName(), binding.getKey(), node.getStartPosition(), node.getLength(), node.getName().getStartPosition(),
+                binding.getReturnType().getKey());
         Tracker.info(String.format("MethodDeclaration: %s, (%d)", node.getName(), node.getStartPosition()));
 
         node.parameters().forEach(n -> {
             SingleVariableDeclaration v = (SingleVariableDeclaration) n;
-            IBinding binding1 = v.resolveBinding();
-            context.getLocalVariables().put(binding1.getKey(), v);
-            context.addSymbol(new Symbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_LOCAL_VARIABLE, binding1.getName(), binding1.getKey(), v.getStartPosition(), v.getLength(), binding));
+            IVariableBinding binding1 = v.resolveBinding();
+            context.addSymbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_LOCAL_VARIABLE, binding1.getName(), binding1.getKey(), v.getStartPosition(), v.getLength(), v.getName().getStartPosition(),
+                    binding1.getType().getKey());
             Tracker.info(String.format("MethodParametersDeclaration: %s, (%d)", v.getName(), v.getStartPosition()));
         });
 
@@ -56,33 +57,91 @@ public class Visitor extends ASTVisitor {
 
     @Override
     public boolean visit(MethodInvocation node) {
-        IBinding binding = node.resolveMethodBinding();
+        IMethodBinding binding = node.resolveMethodBinding();
         if (binding == null) {
             Tracker.info(String.format("MethodInvocation: %s, null", node.getName()));
+            context.addUnresolvedBinding();
             return super.visit(node);
         }
 
-        context.addSymbol(new Symbol(Symbol.SYMBOL_TYPE_REFS, Symbol.SYMBOL_SUB_TYPE_METHOD, binding.getName(), binding.getKey(), node.getStartPosition(), node.getLength(), binding));
+        if (binding.isRecovered()) {
+            context.addRecoveredBinding();
+        }
+
+        context.addSymbol(Symbol.SYMBOL_TYPE_REFS, Symbol.SYMBOL_SUB_TYPE_METHOD, binding.getName(), binding.getKey(), node.getStartPosition(), node.getLength(), node.getName().getStartPosition(),
+                binding.getReturnType().getKey());
         Tracker.info(String.format("MethodInvocation: %s, (%d)", node.getName(), node.getStartPosition()));
         return super.visit(node);
     }
 
     @Override
     public boolean visit(TypeDeclaration node) {
-        IBinding binding = node.resolveBinding();
-        context.addSymbol(new Symbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_TYPE, binding.getName(), binding.getKey(), node.getStartPosition(), node.getLength(), binding));
+        ITypeBinding binding = node.resolveBinding();
+        context.addSymbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_TYPE, binding.getName(), binding.getKey(), node.getStartPosition(), node.getLength(), node.getName().getStartPosition(), null);
+
+        // 未声明超类时不记录java.lang.Object
+        ITypeBinding superclass = binding.getSuperclass();
+        if ((node.getSuperclassType() != null) && (superclass != null)) {
+            context.addSupertype(binding.getKey(), superclass.getTypeDeclaration().getKey());
+        }
+        for (ITypeBinding superInterface : binding.getInterfaces()) {
+            context.addSupertype(binding.getKey(), superInterface.getTypeDeclaration().getKey());
+        }
         Tracker.info(String.format("TypeDeclaration: %s, (%d)", node.getName(), node.getStartPosition()));
         return super.visit(node);
     }
 
+    @Override
+    public boolean visit(EnumDeclaration node) {
+        ITypeBinding binding = node.resolveBinding();
+        context.addSymbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_TYPE, binding.getName(), binding.getKey(), node.getStartPosition(), node.getLength(), node.getName().getStartPosition(), null);
+
+        // 枚举类型的超类为java.lang.Enum
+        if (binding.getSuperclass() != null) {
+            context.addSupertype(binding.getKey(), binding.getSuperclass().getTypeDeclaration().getKey());
+        }
+        for (ITypeBinding superInterface : binding.getInterfaces()) {
+            context.addSupertype(binding.getKey(), superInterface.getTypeDeclaration().getKey());
+        }
+        Tracker.info(String.format("EnumDeclaration: %s, (%d)", node.getName(), node.getStartPosition()));
+        return super.visit(node);
+    }
+
+    @Override
+    public boolean visit(EnumConstantDeclaration node) {
+        IVariableBinding binding = node.resolveVariable();
+        context.addSymbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_MEMBER_VARIABLE, binding.getName(), binding.getKey(), node.getStartPosition(), node.getLength(), node.getName().getStartPosition(),
+                binding.getType().getKey());
+        Tracker.info(String.format("EnumConstantDeclaration: %s, (%d)", node.getName(), node.getStartPosition()));
+        return super.visit(node);
+    }
+
+    @Override
+    public boolean visit(AnnotationTypeDeclaration node) {
+        ITypeBinding binding = node.resolveBinding();
+        context.addSymbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_TYPE, binding.getName(), binding.getKey(), node.getStartPosition(), node.getLength(), node.getName().getStartPosition(), null);
+        Tracker.info(String.format("AnnotationTypeDeclaration: %s, (%d)", node.getName(), node.getStartPosition()));
+        return super.visit(node);
+    }
+
+    @Override
+    public boolean visit(AnnotationTypeMemberDeclaration node) {
+        IMethodBinding binding = node.resolveBinding();
+        context.addSymbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_METHOD, binding.getName(), binding.getKey(), node.getStartPosition(), node.getLength(), node.getName().getStartPosition(),
+                binding.getReturnType().getKey());
+        Tracker.info(String.format("AnnotationTypeMemberDeclaration: %s, (%d)", node.getName(), node.getStartPosition()));
+        return super.visit(node);
+    }
+
     @Override
     public boolean visit(VariableDeclarationStatement node) {
         for (Object obj : node.fragments()) {
             VariableDeclaration v = (VariableDeclaration) obj;
             IVariableBinding binding = v.resolveBinding();
-            context.getLocalVariables().put(binding.getKey(), v);
-            context.addSymbol(new Symbol(Symbol.SYMBOL_TYPE_REFS, Symbol.SYMBOL_SUB_TYPE_TYPE, binding.getType().getName(), binding.getType().getKey(), node.getStartPosition(), node.getLength(), binding));
-            context.addSymbol(new Symbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_LOCAL_VARIABLE, binding.getName(), binding.getKey(), v.getStartPosition(), v.getLength(), binding));
+            context.addSymbol(Symbol.SYMBOL_TYPE_REFS, Symbol.SYMBOL_SUB_TYPE_TYPE, binding.getType().getName(), binding.getType().getKey(), node.getStartPosition(), node.getLength(),
+                    getNamePosition(node.getType()), null);
+            context.addSymbol(Symbol.SYMBOL_TYPE_DECLARATION, Symbol.SYMBOL_SUB_TYPE_LOCAL_VARIABLE, binding.getName(), binding.getKey(), v.getStartPosition(), v.getLength(), v.getName().getStartPosition(),
+                    binding.getType().getKey());
             Tracker.info(String.format("VariableDeclaration: %s, (%d)", v.getName(), v.getStartPosition()));
         }
 
@@ -94,6 +153,7 @@ public class Visitor extends ASTVisitor {
         IBinding binding = node.resolveBinding();
         if (binding == null) {
             Tracker.info(String.format("SimpleName: %s, null", node.getFullyQualifiedName()));
+            context.addUnresolvedBinding();
             return super.visit(node);
         }
 
@@ -101,4 +161,27 @@ public class Visitor extends ASTVisitor {
 
         return super.visit(node);
     }
+
+    /**
+     * 获取类型名称标识符的位置
+     *
+     * @param type 类型
+     * @return 位置, 基本类型或var等没有类型名称时返回-1
+     */
+    private static int getNamePosition(Type type) {
+        if (type.isVar()) {
+            return -1;
+        } else if (type.isParameterizedType()) {
+            return getNamePosition(((ParameterizedType) type).getType());
+        } else if (type.isArrayType()) {
+            return getNamePosition(((ArrayType) type).getElementType());
+        } else if (type.isQualifiedType()) {
+            return ((QualifiedType) type).getName().getStartPosition();
+        } else if (type.isSimpleType()) {
+            Name name = ((SimpleType) type).getName();
+            return (name.isQualifiedName() ? ((QualifiedName) name).getName() : name).getStartPosition();
+        }
+
+        return -1;
+    }
 }
@@ -0,0 +1,232 @@
+package com.furongsoft.ide.debugger.java;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 工作区
+ * <p>
+ * 同时打开的多个源代码根目录各自拥有分析器、符号表和文件监视器, 切换根目录时无需重新分析;
+ * 所有根目录共享同一字符串表和分析调度器, 运行时类库和类路径中JAR文件的类库索引按内容摘要在进程内共享.
+ *
+ * @author Alex
+ */
+public class Workspace {
+    /**
+     * 共享的字符串表
+     */
+    private final StringTable strings = new StringTable();
+
+    /**
+     * 根目录表: 根目录 -> 根目录状态, 按加入顺序排列
+     */
+    private final Map<String, Root> roots = new LinkedHashMap<>();
+
+    /**
+     * 监视事件丢失时的重新分析函数, 参数为根目录和类路径
+     */
+    private final BiConsumer<String, String> reanalyzer;
+
+    /**
+     * 增量分析后的处理函数, 参数为完成增量分析的分析器, 用于在后台解析标记为未解析的文件
+     */
+    private final Consumer<Analyzer> updated;
+
+    /**
+     * 分析调度器
+     */
+    private final AnalysisScheduler scheduler;
+
+    public Workspace(AnalysisScheduler scheduler, BiConsumer<String, String> reanalyzer, Consumer<Analyzer> updated) {
+        this.scheduler = scheduler;
+        this.reanalyzer = reanalyzer;
+        this.updated = updated;
+    }
+
+    /**
+     * 创建不属于任何根目录的分析器
+     *
+     * @return 分析器
+     */
+    public Analyzer createAnalyzer() {
+        Analyzer analyzer = new Analyzer(strings);
+        analyzer.setScheduler(scheduler);
+        return analyzer;
+    }
+
+    /**
+     * 获取根目录的分析器, 不存在时加入根目录
+     *
+     * @param rootPath 根目录
+     * @return 分析器
+     */
+    public synchronized Analyzer getAnalyzer(String rootPath) {
+        return roots.computeIfAbsent(normalize(rootPath), k -> new Root(k, createAnalyzer())).analyzer;
+    }
+
+    /**
+     * 分析完成后开始监视根目录
+     *
+     * @param rootPath  根目录
+     * @param classPath 类路径
+     * @param analyzer  完成分析的分析器
+     * @return 根目录是否仍属于工作区且使用该分析器
+     */
+    public boolean watch(String rootPath, String classPath, Analyzer analyzer) {
+        Root root;
+        synchronized (this) {
+            root = roots.get(normalize(rootPath));
+            if ((root == null) || (root.analyzer != analyzer)) {
+                return false;
+            }
+
+            root.classPath = classPath;
+        }
+
+        return root.watch();
+    }
+
+    /**
+     * 移除根目录, 停止监视并释放符号表
+     *
+     * @param rootPath 根目录
+     * @return 移除的分析器, 根目录不存在时返回null
+     */
+    public Analyzer removeRoot(String rootPath) {
+        Root root;
+        synchronized (this) {
+            root = roots.remove(normalize(rootPath));
+        }
+
+        if (root == null) {
+            return null;
+        }
+
+        root.watcher.stop();
+        return root.analyzer;
+    }
+
+    /**
+     * 获取根目录列表
+     *
+     * @return 根目录列表
+     */
+    public synchronized List<String> getRootPaths() {
+        return new ArrayList<>(roots.keySet());
+    }
+
+    /**
+     * 增量分析文件, 由文件所在的根目录分析
+     *
+     * @param path 文件绝对路径
+     * @return 是否成功
+     */
+    public boolean update(String path) {
+        Root root = findRoot(normalize(path));
+        if ((root == null) || !root.analyzer.update(path)) {
+            return false;
+        }
+
+        updated.accept(root.analyzer);
+        return true;
+    }
+
+    /**
+     * 停止监视全部根目录
+     */
+    public void dispose() {
+        List<Root> list;
+        synchronized (this) {
+            list = new ArrayList<>(roots.values());
+        }
+
+        for (Root root : list) {
+            root.watcher.stop();
+        }
+    }
+
+    /**
+     * 查找文件所在的根目录, 根目录嵌套时取最内层
+     *
+     * @param path 文件绝对路径
+     * @return 根目录状态, 不存在时返回null
+     */
+    private synchronized Root findRoot(String path) {
+        Root result = null;
+        for (Root root : roots.values()) {
+            if (path.startsWith(root.rootPath + '/') && ((result == null) || (root.rootPath.length() > result.rootPath.length()))) {
+                result = root;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * 转换为与分析器相同格式的绝对路径
+     *
+     * @param path 路径
+     * @return 绝对路径
+     */
+    private static String normalize(String path) {
+        return new File(path).getAbsolutePath().replace('\\', '/');
+    }
+
+    /**
+     * 根目录状态
+     */
+    private class Root implements FileWatcher.Listener {
+        /**
+         * 根目录
+         */
+        private final String rootPath;
+
+        /**
+         * 分析器
+         */
+        private final Analyzer analyzer;
+
+        /**
+         * 文件监视器
+         */
+        private final FileWatcher watcher = new FileWatcher(this);
+
+        /**
+         * 最近一次分析使用的类路径
+         */
+        private volatile String classPath;
+
+        Root(String rootPath, Analyzer analyzer) {
+            this.rootPath = rootPath;
+            this.analyzer = analyzer;
+        }
+
+        /**
+         * 开始监视, 已在监视时不重复启动
+         *
+         * @return 是否成功
+         */
+        boolean watch() {
+            String watchedPath = new File(rootPath).getAbsolutePath();
+            return watchedPath.equals(watcher.getRootPath()) || watcher.start(watchedPath);
+        }
+
+        @Override
+        public void onChanged(Set<String> paths) {
+            if (Boolean.TRUE.equals(scheduler.call(AnalysisScheduler.Priority.UPDATE, () -> analyzer.update(paths)))) {
+                updated.accept(analyzer);
+            }
+        }
+
+        @Override
+        public void onOverflow() {
+            reanalyzer.accept(rootPath, classPath);
+        }
+    }
+}
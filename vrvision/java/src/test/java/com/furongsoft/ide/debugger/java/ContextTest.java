@@ -0,0 +1,121 @@
+package com.furongsoft.ide.debugger.java;
+
+import com.furongsoft.ide.debugger.entities.Symbol;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * 符号表上下文测试
+ *
+ * @author Alex
+ */
+public class ContextTest {
+    private static final String ROOT_PATH = "/project/src";
+
+    @Test
+    public void snapshotIsNotAffectedByLaterChanges() {
+        StringTable strings = new StringTable();
+        Context context = createContext(strings);
+        addFile(context, "sub/A.java", "package sub; public class A { int alpha; void run() {} }");
+        addFile(context, "sub/B.java", "package sub; public class B { int beta; }");
+        context.linkSymbols();
+        context.addUnresolvedFiles(Arrays.asList("sub/A.java", "sub/B.java"));
+
+        Snapshot snapshot = context.snapshot(1);
+        Map<String, FileSymbols> files = new HashMap<>(snapshot.getFiles());
+        Symbol alpha = snapshot.searchSymbols("alpha", 1).get(0);
+        int alphaKey = strings.find(alpha.getKey());
+
+        // 删除文件, 替换文件, 再链接新文件
+        context.removeSymbols("sub/A.java");
+        Context other = createContext(strings);
+        addFile(other, "sub/B.java", "package sub; public class B { int delta; }");
+        other.linkSymbols();
+        context.putFile(other.getFiles().get("sub/B.java"));
+        addFile(context, "sub/C.java", "package sub; public class C { int gamma; }");
+        context.linkSymbols();
+
+        assertEquals(files, snapshot.getFiles());
+        assertEquals(names("alpha"), names(snapshot.searchSymbols("alpha", 10)));
+        assertEquals(names("beta"), names(snapshot.searchSymbols("beta", 10)));
+        assertTrue(snapshot.searchSymbols("gamma", 10).isEmpty());
+        assertTrue(snapshot.searchSymbols("delta", 10).isEmpty());
+        assertEquals("sub/A.java", snapshot.getDeclarationSymbol(alphaKey).getSourcePath());
+        assertFalse(snapshot.isResolved("sub/A.java"));
+        assertFalse(snapshot.isResolved("sub/B.java"));
+
+        Snapshot current = context.snapshot(2);
+        assertEquals(new HashSet<>(Arrays.asList("sub/B.java", "sub/C.java")), current.getFiles().keySet());
+        assertTrue(current.searchSymbols("alpha", 10).isEmpty());
+        assertTrue(current.searchSymbols("beta", 10).isEmpty());
+        assertEquals(names("gamma"), names(current.searchSymbols("gamma", 10)));
+        assertEquals(names("delta"), names(current.searchSymbols("delta", 10)));
+        assertNull(current.getDeclarationSymbol(alphaKey));
+        assertTrue(current.isResolved("sub/A.java"));
+        assertFalse(current.isResolved("sub/B.java"));
+    }
+
+    @Test
+    public void snapshotsTakenInSequenceAreIndependent() {
+        StringTable strings = new StringTable();
+        Context context = createContext(strings);
+        addFile(context, "sub/A.java", "package sub; public class A { int alpha; }");
+        context.linkSymbols();
+        Snapshot first = context.snapshot(1);
+
+        addFile(context, "sub/B.java", "package sub; public class B { int beta; }");
+        context.linkSymbols();
+        Snapshot second = context.snapshot(2);
+
+        context.removeSymbols("sub/A.java");
+
+        assertEquals(Collections.singleton("sub/A.java"), first.getFiles().keySet());
+        assertEquals(new HashSet<>(Arrays.asList("sub/A.java", "sub/B.java")), second.getFiles().keySet());
+        assertEquals(names("alpha"), names(second.searchSymbols("alpha", 10)));
+        assertEquals(Collections.singleton("sub/B.java"), context.snapshot(3).getFiles().keySet());
+    }
+
+    private static Context createContext(StringTable strings) {
+        Context context = new Context(strings);
+        context.setRootPath(ROOT_PATH);
+
+        return context;
+    }
+
+    /**
+     * 按大纲添加源代码文件, 不解析绑定
+     *
+     * @param context    上下文
+     * @param sourcePath 源代码相对路径
+     * @param code       源代码
+     */
+    private static void addFile(Context context, String sourcePath, String code) {
+        ASTParser parser = ASTParser.newParser(AST.JLS11);
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        parser.setSource(code.toCharArray());
+        CompilationUnit compilationUnit = (CompilationUnit) parser.createAST(null);
+
+        context.beginFile(ROOT_PATH + "/" + sourcePath, compilationUnit);
+        compilationUnit.accept(new OutlineVisitor(context));
+        context.endFile();
+    }
+
+    private static List<String> names(String... names) {
+        return Arrays.asList(names);
+    }
+
+    private static List<String> names(List<Symbol> symbols) {
+        List<String> result = new ArrayList<>();
+        for (Symbol symbol : symbols) {
+            result.add(symbol.getName());
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,145 @@
+package com.furongsoft.ide.debugger.java;
+
+import com.furongsoft.ide.debugger.entities.Symbol;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 符号名称索引测试
+ *
+ * @author Alex
+ */
+public class NameIndexTest {
+    private final StringTable strings = new StringTable();
+
+    @Test
+    public void searchRanksByMatchKind() {
+        NameIndex index = new NameIndex();
+        index.addFile(createFile("sub/A.java", "NullPointerException", "nullValue", "Null", "annulled", "nOxuxlxl"), strings);
+
+        // 完全 > 前缀 > 驼峰缩写 > 子串 > 模糊
+        assertEquals(names("Null", "nullValue", "NullPointerException", "annulled", "nOxuxlxl"), names(index.snapshot().search("null", 10, strings)));
+        assertEquals(names("NullPointerException"), names(index.snapshot().search("npe", 10, strings)));
+        assertEquals(names("NullPointerException"), names(index.snapshot().search("NuPoEx", 10, strings)));
+        assertEquals(names("NullPointerException", "annulled", "nullValue"), names(index.snapshot().search("nulle", 10, strings)));
+        assertEquals(names("Null", "nullValue"), names(index.snapshot().search("null", 2, strings)));
+    }
+
+    @Test
+    public void searchPrefersExactCase() {
+        NameIndex index = new NameIndex();
+        index.addFile(createFile("sub/A.java", "value", "Value", "valueOf", "ValueHolder"), strings);
+
+        assertEquals(names("Value", "value", "ValueHolder", "valueOf"), names(index.snapshot().search("Value", 10, strings)));
+    }
+
+    @Test
+    public void removeFileKeepsOverloadsInOtherFiles() {
+        NameIndex index = new NameIndex();
+        FileSymbols a = createFile("sub/A.java", "run", "run", "stop");
+        FileSymbols b = createFile("sub/B.java", "run", "start");
+        index.addFile(a, strings);
+        index.addFile(b, strings);
+        assertEquals(3, index.snapshot().search("run", 10, strings).size());
+
+        index.removeFile(a);
+        List<Symbol> result = index.snapshot().search("run", 10, strings);
+        assertEquals(1, result.size());
+        assertEquals("sub/B.java", result.get(0).getSourcePath());
+        assertTrue(index.snapshot().search("stop", 10, strings).isEmpty());
+        assertEquals(2, index.size());
+
+        index.removeFile(b);
+        assertTrue(index.snapshot().search("run", 10, strings).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void snapshotSurvivesCompaction() {
+        NameIndex index = new NameIndex();
+        List<FileSymbols> files = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            FileSymbols fileSymbols = createFile("sub/F" + i + ".java", "removedLongName" + i, "keptName" + i);
+            files.add(fileSymbols);
+            index.addFile(fileSymbols, strings);
+        }
+
+        NameIndex snapshot = index.snapshot();
+
+        // 删除大部分名称使字符池整理, 再追加新名称覆盖整理后的字符池
+        for (int i = 0; i < 90; ++i) {
+            index.removeFile(files.get(i));
+        }
+        for (int i = 0; i < 50; ++i) {
+            index.addFile(createFile("sub/G" + i + ".java", "addedName" + i), strings);
+        }
+
+        assertEquals(200, snapshot.size());
+        assertEquals(names("removedLongName7"), names(snapshot.search("removedLongName7", 1, strings)));
+        assertEquals(names("keptName95"), names(snapshot.search("keptName95", 1, strings)));
+        assertTrue(snapshot.search("addedName", 10, strings).isEmpty());
+
+        NameIndex current = index.snapshot();
+        assertEquals(70, current.size());
+        assertEquals(names("removedLongName97"), names(current.search("removedLongName7", 10, strings)));
+        assertEquals(names("keptName95"), names(current.search("keptName95", 1, strings)));
+        assertEquals(names("addedName7"), names(current.search("addedName7", 1, strings)));
+    }
+
+    /**
+     * 创建文件符号表, 首字母大写的名称为类型, 其余为方法
+     *
+     * @param sourcePath 源代码路径
+     * @param names      名称列表, 名称相同的方法为重载方法
+     * @return 文件符号表
+     */
+    private FileSymbols createFile(String sourcePath, String... names) {
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < names.length; ++i) {
+            code.append(names[i]).append('\n');
+        }
+
+        FileSymbols.Builder builder = new FileSymbols.Builder(sourcePath, strings.intern(sourcePath), LineTable.create(code.toString()), ProblemTable.EMPTY);
+        String type = "L" + sourcePath.substring(0, sourcePath.length() - 5) + ";";
+        for (int i = 0, position = 0; i < names.length; position += names[i++].length() + 1) {
+            boolean isType = Character.isUpperCase(names[i].charAt(0));
+            String key = isType ? type.substring(0, type.length() - 1) + "$" + names[i] + ";" : type + "." + names[i] + "(" + repeat("I", i) + ")V";
+            builder.add(Symbol.SYMBOL_TYPE_DECLARATION, isType ? Symbol.SYMBOL_SUB_TYPE_TYPE : Symbol.SYMBOL_SUB_TYPE_METHOD, strings.intern(names[i]), strings.intern(key),
+                    position, names[i].length(), position, -1);
+        }
+
+        return builder.build();
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            sb.append(value);
+        }
+
+        return sb.toString();
+    }
+
+    private static List<String> names(String... names) {
+        List<String> result = new ArrayList<>();
+        for (String name : names) {
+            result.add(name);
+        }
+
+        return result;
+    }
+
+    private static List<String> names(List<Symbol> symbols) {
+        List<String> result = new ArrayList<>();
+        for (Symbol symbol : symbols) {
+            result.add(symbol.getName());
+        }
+
+        return result;
+    }
+}
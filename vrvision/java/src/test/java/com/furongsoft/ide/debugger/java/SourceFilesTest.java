@@ -0,0 +1,115 @@
+package com.furongsoft.ide.debugger.java;
+
+import com.furongsoft.ide.debugger.entities.TextEdit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 源代码文件读写测试
+ *
+ * @author Alex
+ */
+public class SourceFilesTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void applyEditsReplacesText() {
+        String code = "int value = old + old;";
+        String result = SourceFiles.applyEdits(code, Arrays.asList(new TextEdit(12, 3, 1, 13, "fresh"), new TextEdit(18, 3, 1, 19, "fresh")), "old");
+
+        assertEquals("int value = fresh + fresh;", result);
+    }
+
+    @Test
+    public void applyEditsRejectsStaleExpected() {
+        // 第二处原文本已被修改
+        String code = "int value = old + new;";
+
+        assertNull(SourceFiles.applyEdits(code, Arrays.asList(new TextEdit(12, 3, 1, 13, "fresh"), new TextEdit(18, 3, 1, 19, "fresh")), "old"));
+    }
+
+    @Test
+    public void applyEditsRejectsOverlappingEdits() {
+        assertNull(SourceFiles.applyEdits("abcdef", Arrays.asList(new TextEdit(1, 3, 1, 2, "x"), new TextEdit(2, 1, 1, 3, "y")), null));
+        assertNull(SourceFiles.applyEdits("abcdef", Arrays.asList(new TextEdit(4, 3, 1, 5, "x")), null));
+    }
+
+    @Test
+    public void writeReplacesAllFiles() throws IOException {
+        File a = createFile("A.java", "class A {}");
+        File b = createFile("B.java", "class B {}");
+        Map<File, String> contents = new LinkedHashMap<>();
+        contents.put(a, "class A { int x; }");
+        contents.put(b, "class B { int y; }");
+
+        assertTrue(SourceFiles.write(contents));
+        assertEquals("class A { int x; }", SourceFiles.read(a));
+        assertEquals("class B { int y; }", SourceFiles.read(b));
+        assertNoTemporaries();
+    }
+
+    @Test
+    public void writeRestoresReplacedFilesWhenMoveFails() throws IOException {
+        File a = createFile("A.java", "class A {}");
+        File b = createFile("B.java", "class B {}");
+        File c = createFile("C.java", "class C {}");
+
+        // 第一次取路径用于读取原内容, 第二次用于替换, 指向不存在的目录使替换失败
+        File failing = new File(b.getPath()) {
+            private int calls;
+
+            @Override
+            public Path toPath() {
+                return (++calls < 2) ? super.toPath() : new File(getParentFile(), "missing/B.java").toPath();
+            }
+        };
+
+        Map<File, String> contents = new LinkedHashMap<>();
+        contents.put(a, "class A { int x; }");
+        contents.put(failing, "class B { int y; }");
+        contents.put(c, "class C { int z; }");
+
+        assertFalse(SourceFiles.write(contents));
+        assertEquals("class A {}", SourceFiles.read(a));
+        assertEquals("class B {}", SourceFiles.read(b));
+        assertEquals("class C {}", SourceFiles.read(c));
+        assertNoTemporaries();
+    }
+
+    @Test
+    public void writeFailsWhenFileIsMissing() throws IOException {
+        File a = createFile("A.java", "class A {}");
+        Map<File, String> contents = new LinkedHashMap<>();
+        contents.put(a, "class A { int x; }");
+        contents.put(new File(folder.getRoot(), "Missing.java"), "class Missing {}");
+
+        assertFalse(SourceFiles.write(contents));
+        assertEquals("class A {}", SourceFiles.read(a));
+        assertNoTemporaries();
+    }
+
+    private File createFile(String name, String code) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), code.getBytes(StandardCharsets.UTF_8));
+
+        return file;
+    }
+
+    private void assertNoTemporaries() {
+        String[] names = folder.getRoot().list((dir, name) -> name.endsWith(".tmp"));
+        assertEquals(0, (names == null) ? 0 : names.length);
+    }
+}